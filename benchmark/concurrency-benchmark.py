@@ -0,0 +1,232 @@
+#!/usr/bin/env python3
+"""
+Request-concurrency benchmark for the producer and consumer REST APIs.
+
+Holds a fixed number of requests open at once against each endpoint mode and records request
+throughput, latency percentiles, status codes (429s from producer admission control included) and
+the peak number of live JVM threads on the server, sampled from /actuator/metrics while the load
+runs. Endpoint modes:
+  - produce        POST /api/v1/produce        (blocks a request thread per batch)
+  - produce-async  POST /api/v1/produce/async  (releases the request thread while sending)
+  - query          GET  /api/v1/consumer/messages (waits on JDBC)
+
+With --threads platform,virtual the script starts both jars once per threading mode, setting
+VIRTUAL_THREADS_ENABLED accordingly, so every endpoint mode is measured on Tomcat's platform pool
+and on virtual threads. Virtual threads need a Java 21 runtime; on an older `java` that mode is
+skipped. Kafka and Postgres must already be running (e.g. the `benchmark` compose profile), or use
+--no-apps to measure applications that are already running.
+
+Results are written as JSON to benchmark/results/concurrency-<timestamp>.json.
+
+Usage: benchmark/concurrency-benchmark.py [--concurrency 50,200,1000] [--requests 2000]
+                                          [--modes produce,produce-async,query] [--threads platform,virtual]
+Only the Python standard library is required.
+"""
+import argparse
+import json
+import os
+import re
+import statistics
+import subprocess
+import sys
+import threading
+import time
+import urllib.error
+import urllib.request
+from concurrent.futures import ThreadPoolExecutor
+from datetime import datetime, timezone
+
+ROOT_DIR = os.path.dirname(os.path.dirname(os.path.abspath(__file__)))
+RESULTS_DIR = os.path.join(ROOT_DIR, "benchmark", "results")
+PRODUCER_URL = os.environ.get("PRODUCER_URL", "http://localhost:8080")
+CONSUMER_URL = os.environ.get("CONSUMER_URL", "http://localhost:8081")
+READY_PATH = "/actuator/health/readiness"
+MODES = ("produce", "produce-async", "query")
+
+
+def parse_args():
+    parser = argparse.ArgumentParser(description="REST API request-concurrency benchmark")
+    parser.add_argument("--concurrency", default="50,200,1000", help="comma-separated in-flight request levels")
+    parser.add_argument("--requests", type=int, default=2000, help="requests per mode and concurrency level")
+    parser.add_argument("--modes", default=",".join(MODES), help="comma-separated endpoint modes")
+    parser.add_argument("--threads", default="platform", help="comma-separated threading modes: platform,virtual")
+    parser.add_argument("--batch-size", type=int, default=10, help="messages per produce request")
+    parser.add_argument("--payload-bytes", type=int, default=256, help="payload size per message")
+    parser.add_argument("--no-apps", action="store_true", help="use applications that are already running")
+    parser.add_argument("--output", help="result file (default benchmark/results/concurrency-<timestamp>.json)")
+    return parser.parse_args()
+
+
+def request(method, url, body=None, timeout=300):
+    data = json.dumps(body).encode() if body is not None else None
+    req = urllib.request.Request(url, data=data, method=method, headers={"Content-Type": "application/json"})
+    try:
+        with urllib.request.urlopen(req, timeout=timeout) as response:
+            response.read()
+            return response.status
+    except urllib.error.HTTPError as e:
+        return e.code
+    except OSError:
+        return 0
+
+
+def metric_value(base_url, name):
+    with urllib.request.urlopen(f"{base_url}/actuator/metrics/{name}", timeout=5) as response:
+        return json.loads(response.read())["measurements"][0]["value"]
+
+
+def wait_ready(base_url, timeout=300):
+    deadline = time.monotonic() + timeout
+    while time.monotonic() < deadline:
+        if request("GET", base_url + READY_PATH, timeout=2) == 200:
+            return
+        time.sleep(0.5)
+    raise TimeoutError(f"Timed out after {timeout}s waiting for {base_url} readiness")
+
+
+def java_major_version():
+    output = subprocess.run(["java", "-version"], capture_output=True, text=True).stderr
+    match = re.search(r'version "(\d+)', output)
+    return int(match.group(1)) if match else 0
+
+
+def start_apps(threads, log_dir):
+    processes = []
+    for module, port in (("producer", 8080), ("consumer", 8081)):
+        jar = os.path.join(ROOT_DIR, f"msk-cross-account-{module}", "target",
+                           f"msk-cross-account-{module}-1.0.0-exec.jar")
+        if not os.path.isfile(jar):
+            sys.exit(f"Jar not found: {jar} - build the module first")
+        log = open(os.path.join(log_dir, f"{module}-{threads}.log"), "w")
+        env = dict(os.environ, SPRING_PROFILES_ACTIVE="local", SERVER_PORT=str(port),
+                   VIRTUAL_THREADS_ENABLED=str(threads == "virtual").lower())
+        processes.append(subprocess.Popen(["java", "-jar", jar], stdout=log, stderr=subprocess.STDOUT, env=env))
+    print(f"Waiting for both applications ({threads} threads) to finish warm-up...")
+    wait_ready(PRODUCER_URL)
+    wait_ready(CONSUMER_URL)
+    return processes
+
+
+def stop_apps(processes):
+    for process in processes:
+        process.terminate()
+    for process in processes:
+        process.wait(timeout=60)
+
+
+def call_for(mode, args):
+    if mode == "query":
+        return CONSUMER_URL, lambda: request("GET", CONSUMER_URL + "/api/v1/consumer/messages?page=0&size=20")
+    body = {
+        "payload": "x" * args.payload_bytes,
+        "messageType": "concurrency-benchmark",
+        "batchSize": args.batch_size,
+        "sourceAccount": "benchmark",
+        "targetAccount": "benchmark",
+    }
+    path = "/api/v1/produce/async" if mode == "produce-async" else "/api/v1/produce"
+    return PRODUCER_URL, lambda: request("POST", PRODUCER_URL + path, body)
+
+
+def percentile(sorted_values, fraction):
+    if not sorted_values:
+        return None
+    index = min(len(sorted_values) - 1, max(0, int(round(fraction * len(sorted_values) + 0.5)) - 1))
+    return round(sorted_values[index], 2)
+
+
+def run_level(mode, concurrency, args):
+    base_url, call = call_for(mode, args)
+    peak_threads = [metric_value(base_url, "jvm.threads.live")]
+    done = threading.Event()
+
+    def sample_threads():
+        while not done.wait(0.25):
+            try:
+                peak_threads.append(metric_value(base_url, "jvm.threads.live"))
+            except (OSError, ValueError):
+                pass
+
+    def timed_call(_):
+        started = time.monotonic()
+        status = call()
+        return status, (time.monotonic() - started) * 1000
+
+    sampler = threading.Thread(target=sample_threads, daemon=True)
+    sampler.start()
+    started = time.monotonic()
+    with ThreadPoolExecutor(max_workers=concurrency) as pool:
+        results = list(pool.map(timed_call, range(args.requests)))
+    seconds = time.monotonic() - started
+    done.set()
+    sampler.join()
+
+    statuses = {}
+    for status, _ in results:
+        statuses[str(status)] = statuses.get(str(status), 0) + 1
+    latencies = sorted(latency for status, latency in results if status == 200)
+    return {
+        "mode": mode,
+        "concurrency": concurrency,
+        "requests": args.requests,
+        "seconds": round(seconds, 3),
+        "successfulRequestsPerSecond": round(len(latencies) / seconds, 1),
+        "latencyMs": {
+            "p50": percentile(latencies, 0.50),
+            "p99": percentile(latencies, 0.99),
+            "mean": round(statistics.mean(latencies), 2) if latencies else None,
+        },
+        "statuses": statuses,
+        "peakServerThreads": int(max(peak_threads)),
+    }
+
+
+def main():
+    args = parse_args()
+    modes = [m.strip() for m in args.modes.split(",") if m.strip()]
+    unknown = set(modes) - set(MODES)
+    if unknown:
+        sys.exit(f"Unknown mode(s): {', '.join(sorted(unknown))}")
+    levels = [int(level) for level in args.concurrency.split(",")]
+    threads_modes = [t.strip() for t in args.threads.split(",") if t.strip()]
+    if "virtual" in threads_modes and not args.no_apps and java_major_version() < 21:
+        print("Skipping virtual threads: they need a Java 21 runtime", file=sys.stderr)
+        threads_modes.remove("virtual")
+
+    os.makedirs(RESULTS_DIR, exist_ok=True)
+    stamp = datetime.now(timezone.utc).strftime("%Y%m%dT%H%M%SZ")
+    output = args.output or os.path.join(RESULTS_DIR, f"concurrency-{stamp}.json")
+    log_dir = os.path.join(RESULTS_DIR, f"concurrency-{stamp}-logs")
+    os.makedirs(log_dir, exist_ok=True)
+
+    runs = []
+    print(f"{'threads':<9} {'mode':<14} {'conc':>5} {'req/s':>9} {'p50 ms':>9} {'p99 ms':>9} "
+          f"{'threads':>8}  statuses")
+    for threads in threads_modes:
+        processes = [] if args.no_apps else start_apps(threads, log_dir)
+        try:
+            for mode in modes:
+                for level in levels:
+                    result = run_level(mode, level, args)
+                    result["threads"] = threads
+                    runs.append(result)
+                    print(f"{threads:<9} {mode:<14} {level:>5} {result['successfulRequestsPerSecond']:>9} "
+                          f"{result['latencyMs']['p50']!s:>9} {result['latencyMs']['p99']!s:>9} "
+                          f"{result['peakServerThreads']:>8}  {result['statuses']}")
+        finally:
+            stop_apps(processes)
+
+    commit = subprocess.run(["git", "-C", ROOT_DIR, "rev-parse", "--short", "HEAD"],
+                            capture_output=True, text=True).stdout.strip() or "unknown"
+    with open(output, "w") as f:
+        json.dump({
+            "timestamp": stamp,
+            "gitCommit": commit,
+            "config": {k: v for k, v in vars(args).items() if k != "output"},
+            "runs": runs,
+        }, f, indent=2)
+    print(f"Results written to {output}")
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,302 @@
+#!/usr/bin/env python3
+"""
+End-to-end throughput and latency benchmark for the producer/consumer pair.
+
+Runs both applications with the `local` profile (plaintext Kafka, no IAM) against the Kafka and
+Postgres containers of the `benchmark` compose profile, drives fixed workloads through
+POST /api/v1/produce and waits until the consumer has persisted every message. For each run it
+records:
+  - produce throughput (messages accepted by /produce per second)
+  - end-to-end latency percentiles (consumed_timestamp - original_timestamp, from the export API)
+  - database rows per second (messages / time from first produce call until the last row landed)
+  - batch completeness as reported by /batches/{id}/verify
+
+Results are written as JSON to benchmark/results/e2e-<timestamp>.json. With --min-produce-rate,
+--min-db-rate or --max-p99-ms the script exits with status 2 when the median of the measured
+runs misses the threshold, so it can gate a CI job.
+
+The same measurement runs without Docker, against an embedded broker and H2, as
+EndToEndBenchmarkTest in msk-cross-account-e2e (see the README).
+
+Build both jars first, from the repository root:
+  mvn package -DskipTests
+
+Usage: benchmark/e2e-benchmark.py [--messages 10000] [--batch-size 1000] [--concurrency 4] [--runs 3]
+Only the Python standard library is required.
+"""
+import argparse
+import json
+import os
+import socket
+import statistics
+import subprocess
+import sys
+import time
+import urllib.error
+import urllib.parse
+import urllib.request
+from concurrent.futures import ThreadPoolExecutor
+from datetime import datetime, timedelta, timezone
+
+ROOT_DIR = os.path.dirname(os.path.dirname(os.path.abspath(__file__)))
+RESULTS_DIR = os.path.join(ROOT_DIR, "benchmark", "results")
+PRODUCER_URL = os.environ.get("PRODUCER_URL", "http://localhost:8080")
+CONSUMER_URL = os.environ.get("CONSUMER_URL", "http://localhost:8081")
+READY_PATH = "/actuator/health/readiness"
+
+
+def parse_args():
+    parser = argparse.ArgumentParser(description="End-to-end throughput and latency benchmark")
+    parser.add_argument("--messages", type=int, default=10000, help="messages per measured run")
+    parser.add_argument("--batch-size", type=int, default=1000, help="messages per /produce call (max 1000)")
+    parser.add_argument("--concurrency", type=int, default=4, help="parallel /produce calls")
+    parser.add_argument("--runs", type=int, default=3, help="measured runs")
+    parser.add_argument("--warmup-messages", type=int, default=2000, help="unmeasured messages sent first")
+    parser.add_argument("--payload-bytes", type=int, default=256, help="payload size per message")
+    parser.add_argument("--timeout", type=int, default=300, help="seconds to wait for persistence per run")
+    parser.add_argument("--no-stack", action="store_true", help="do not start Kafka/Postgres via docker compose")
+    parser.add_argument("--no-apps", action="store_true", help="use applications that are already running")
+    parser.add_argument("--min-produce-rate", type=float, help="fail if median produce msgs/s is lower")
+    parser.add_argument("--min-db-rate", type=float, help="fail if median DB rows/s is lower")
+    parser.add_argument("--max-p99-ms", type=float, help="fail if median end-to-end p99 is higher")
+    parser.add_argument("--output", help="result file (default benchmark/results/e2e-<timestamp>.json)")
+    return parser.parse_args()
+
+
+def http_json(method, url, body=None, timeout=60):
+    data = json.dumps(body).encode() if body is not None else None
+    request = urllib.request.Request(url, data=data, method=method,
+                                     headers={"Content-Type": "application/json"})
+    with urllib.request.urlopen(request, timeout=timeout) as response:
+        return json.loads(response.read() or b"null")
+
+
+def wait_until(description, predicate, timeout, interval=0.5):
+    deadline = time.monotonic() + timeout
+    while time.monotonic() < deadline:
+        try:
+            if predicate():
+                return
+        except (OSError, urllib.error.URLError, ValueError):
+            pass
+        time.sleep(interval)
+    raise TimeoutError(f"Timed out after {timeout}s waiting for {description}")
+
+
+def port_open(port):
+    with socket.socket() as sock:
+        sock.settimeout(1)
+        return sock.connect_ex(("localhost", port)) == 0
+
+
+def is_ready(base_url):
+    try:
+        with urllib.request.urlopen(base_url + READY_PATH, timeout=2) as response:
+            return response.status == 200
+    except urllib.error.HTTPError:
+        return False
+
+
+def start_stack():
+    print("Starting Kafka and Postgres (docker compose --profile benchmark)...")
+    subprocess.run(["docker", "compose", "--profile", "benchmark", "up", "-d", "postgres", "kafka"],
+                   cwd=ROOT_DIR, check=True)
+    wait_until("Postgres on :5432", lambda: port_open(5432), 120)
+    wait_until("Kafka on :9092", lambda: port_open(9092), 120)
+
+
+def start_apps(log_dir):
+    processes = []
+    for module, port in (("producer", 8080), ("consumer", 8081)):
+        jar = os.path.join(ROOT_DIR, f"msk-cross-account-{module}", "target",
+                           f"msk-cross-account-{module}-1.0.0-exec.jar")
+        if not os.path.isfile(jar):
+            sys.exit(f"Jar not found: {jar} - build the module first")
+        log = open(os.path.join(log_dir, f"{module}.log"), "w")
+        env = dict(os.environ, SPRING_PROFILES_ACTIVE="local", SERVER_PORT=str(port))
+        processes.append(subprocess.Popen(["java", "-jar", jar], stdout=log, stderr=subprocess.STDOUT, env=env))
+    print("Waiting for both applications to finish warm-up...")
+    wait_until("producer readiness", lambda: is_ready(PRODUCER_URL), 300)
+    wait_until("consumer readiness", lambda: is_ready(CONSUMER_URL), 300)
+    return processes
+
+
+def persisted_count():
+    return int(http_json("GET", CONSUMER_URL + "/api/v1/consumer/metrics")["totalSuccessfulMessages"])
+
+
+def produce_batch(batch_size, payload):
+    started = time.monotonic()
+    response = http_json("POST", PRODUCER_URL + "/api/v1/produce", {
+        "payload": payload,
+        "messageType": "benchmark",
+        "batchSize": batch_size,
+        "sourceAccount": "benchmark",
+        "targetAccount": "benchmark",
+    })
+    return response["batchId"], response.get("failureCount", 0), (time.monotonic() - started) * 1000
+
+
+def fetch_latencies(batch_ids, window_start, window_end):
+    query = urllib.parse.urlencode({
+        "startTime": window_start.isoformat().replace("+00:00", "Z"),
+        "endTime": window_end.isoformat().replace("+00:00", "Z"),
+        "format": "ndjson",
+    })
+    latencies = []
+    with urllib.request.urlopen(CONSUMER_URL + "/api/v1/consumer/messages/export?" + query, timeout=300) as response:
+        for line in response:
+            if not line.strip():
+                continue
+            row = json.loads(line)
+            if row.get("batchId") not in batch_ids or not row.get("originalTimestamp"):
+                continue
+            produced = datetime.fromisoformat(row["originalTimestamp"].replace("Z", "+00:00"))
+            consumed = datetime.fromisoformat(row["consumedTimestamp"].replace("Z", "+00:00"))
+            latencies.append((consumed - produced).total_seconds() * 1000)
+    return sorted(latencies)
+
+
+def percentile(sorted_values, fraction):
+    if not sorted_values:
+        return None
+    index = min(len(sorted_values) - 1, max(0, int(round(fraction * len(sorted_values) + 0.5)) - 1))
+    return round(sorted_values[index], 2)
+
+
+def run_workload(args, messages, payload, measured):
+    batch_sizes = [args.batch_size] * (messages // args.batch_size)
+    if messages % args.batch_size:
+        batch_sizes.append(messages % args.batch_size)
+
+    baseline = persisted_count()
+    window_start = datetime.now(timezone.utc) - timedelta(seconds=1)
+    started = time.monotonic()
+    with ThreadPoolExecutor(max_workers=args.concurrency) as pool:
+        results = list(pool.map(lambda size: produce_batch(size, payload), batch_sizes))
+    produce_seconds = time.monotonic() - started
+
+    wait_until(f"{messages} persisted messages", lambda: persisted_count() - baseline >= messages,
+               args.timeout, interval=0.2)
+    persist_seconds = time.monotonic() - started
+    if not measured:
+        return None
+
+    batch_ids = {batch_id for batch_id, _, _ in results}
+    statuses = {}
+    for batch_id, size in zip((r[0] for r in results), batch_sizes):
+        status = http_json("GET", f"{CONSUMER_URL}/api/v1/consumer/batches/{batch_id}/verify?expectedCount={size}")
+        statuses[status["status"]] = statuses.get(status["status"], 0) + 1
+
+    latencies = fetch_latencies(batch_ids, window_start, datetime.now(timezone.utc) + timedelta(seconds=1))
+    request_latencies = sorted(r[2] for r in results)
+    return {
+        "messages": messages,
+        "batches": len(batch_sizes),
+        "produceFailures": sum(r[1] for r in results),
+        "produceSeconds": round(produce_seconds, 3),
+        "produceMessagesPerSecond": round(messages / produce_seconds, 1),
+        "produceRequestP50Ms": percentile(request_latencies, 0.50),
+        "produceRequestP99Ms": percentile(request_latencies, 0.99),
+        "persistSeconds": round(persist_seconds, 3),
+        "dbRowsPerSecond": round(messages / persist_seconds, 1),
+        "endToEndLatencyMs": {
+            "samples": len(latencies),
+            "p50": percentile(latencies, 0.50),
+            "p95": percentile(latencies, 0.95),
+            "p99": percentile(latencies, 0.99),
+            "max": round(latencies[-1], 2) if latencies else None,
+        },
+        "batchVerification": statuses,
+    }
+
+
+def summarize(runs):
+    def median(values):
+        values = [v for v in values if v is not None]
+        return round(statistics.median(values), 2) if values else None
+
+    return {
+        "produceMessagesPerSecond": median(r["produceMessagesPerSecond"] for r in runs),
+        "dbRowsPerSecond": median(r["dbRowsPerSecond"] for r in runs),
+        "endToEndP50Ms": median(r["endToEndLatencyMs"]["p50"] for r in runs),
+        "endToEndP95Ms": median(r["endToEndLatencyMs"]["p95"] for r in runs),
+        "endToEndP99Ms": median(r["endToEndLatencyMs"]["p99"] for r in runs),
+        "incompleteBatches": sum(n for r in runs for s, n in r["batchVerification"].items() if s != "COMPLETE"),
+    }
+
+
+def check_thresholds(args, summary):
+    failures = []
+    if args.min_produce_rate and (summary["produceMessagesPerSecond"] or 0) < args.min_produce_rate:
+        failures.append(f"produce rate {summary['produceMessagesPerSecond']} < {args.min_produce_rate} msgs/s")
+    if args.min_db_rate and (summary["dbRowsPerSecond"] or 0) < args.min_db_rate:
+        failures.append(f"DB rate {summary['dbRowsPerSecond']} < {args.min_db_rate} rows/s")
+    if args.max_p99_ms and (summary["endToEndP99Ms"] is None or summary["endToEndP99Ms"] > args.max_p99_ms):
+        failures.append(f"end-to-end p99 {summary['endToEndP99Ms']}ms > {args.max_p99_ms}ms")
+    if summary["incompleteBatches"]:
+        failures.append(f"{summary['incompleteBatches']} batches failed verification")
+    return failures
+
+
+def main():
+    args = parse_args()
+    if not 1 <= args.batch_size <= 1000:
+        sys.exit("--batch-size must be between 1 and 1000 (the /produce limit)")
+    os.makedirs(RESULTS_DIR, exist_ok=True)
+    stamp = datetime.now(timezone.utc).strftime("%Y%m%dT%H%M%SZ")
+    output = args.output or os.path.join(RESULTS_DIR, f"e2e-{stamp}.json")
+    log_dir = os.path.join(RESULTS_DIR, f"e2e-{stamp}-logs")
+    os.makedirs(log_dir, exist_ok=True)
+    payload = "x" * args.payload_bytes
+
+    processes = []
+    try:
+        if not args.no_stack:
+            start_stack()
+        if not args.no_apps:
+            processes = start_apps(log_dir)
+
+        if args.warmup_messages:
+            print(f"Warm-up: {args.warmup_messages} messages")
+            run_workload(args, args.warmup_messages, payload, measured=False)
+
+        runs = []
+        for run in range(1, args.runs + 1):
+            result = run_workload(args, args.messages, payload, measured=True)
+            result["run"] = run
+            runs.append(result)
+            print(f"[run {run}] produce {result['produceMessagesPerSecond']} msgs/s, "
+                  f"DB {result['dbRowsPerSecond']} rows/s, "
+                  f"e2e p50/p95/p99 {result['endToEndLatencyMs']['p50']}/{result['endToEndLatencyMs']['p95']}/"
+                  f"{result['endToEndLatencyMs']['p99']}ms, batches {result['batchVerification']}")
+    finally:
+        for process in processes:
+            process.terminate()
+        for process in processes:
+            process.wait(timeout=60)
+
+    summary = summarize(runs)
+    failures = check_thresholds(args, summary)
+    commit = subprocess.run(["git", "-C", ROOT_DIR, "rev-parse", "--short", "HEAD"],
+                            capture_output=True, text=True).stdout.strip() or "unknown"
+    report = {
+        "timestamp": stamp,
+        "gitCommit": commit,
+        "config": {k: v for k, v in vars(args).items() if k != "output"},
+        "runs": runs,
+        "summary": summary,
+        "thresholdFailures": failures,
+    }
+    with open(output, "w") as f:
+        json.dump(report, f, indent=2)
+
+    print(f"Summary: {json.dumps(summary)}")
+    print(f"Results written to {output}")
+    if failures:
+        print("Threshold check failed: " + "; ".join(failures), file=sys.stderr)
+        sys.exit(2)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,38 @@
+#!/usr/bin/env bash
+#
+# JMH microbenchmarks for the per-message hot paths (src/jmh/java in each module).
+#
+# Compiles the module's test sources with the jmh profile (the benchmarks are test sources, so they
+# never reach the application jar) and runs the benchmarks with the GC profiler, so every
+# result carries gc.alloc.rate.norm (bytes allocated per operation) next to the time per operation.
+# Extra arguments go straight to JMH, e.g. a benchmark regex or -p payloadSize=1024.
+#
+# Usage: benchmark/jmh-benchmark.sh <producer|consumer> [jmh args...]
+# Results are written as JSON to benchmark/results/jmh-<module>-<commit>.json; compare two runs with
+#   benchmark/jmh-compare.py <baseline.json> <candidate.json>
+#
+set -euo pipefail
+
+MODULE="${1:?usage: $0 <producer|consumer> [jmh args...]}"
+shift
+
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+MODULE_DIR="$ROOT_DIR/msk-cross-account-$MODULE"
+RESULTS_DIR="$ROOT_DIR/benchmark/results"
+[[ -d "$MODULE_DIR" ]] || { echo "Unknown module: $MODULE" >&2; exit 1; }
+
+GIT_COMMIT="$(git -C "$ROOT_DIR" rev-parse --short HEAD 2>/dev/null || echo unknown)"
+if [[ -n "$(git -C "$ROOT_DIR" status --porcelain -- "$MODULE_DIR" 2>/dev/null)" ]]; then
+  GIT_COMMIT="$GIT_COMMIT-dirty"
+fi
+RESULTS_FILE="${RESULTS_FILE:-$RESULTS_DIR/jmh-$MODULE-$GIT_COMMIT.json}"
+
+echo "Building $MODULE with the jmh profile..."
+mvn -B -q -f "$ROOT_DIR/pom.xml" -pl "msk-cross-account-$MODULE" -am -Pjmh test-compile
+
+mkdir -p "$RESULTS_DIR"
+CLASSPATH="$MODULE_DIR/target/test-classes:$MODULE_DIR/target/classes:$(cat "$MODULE_DIR/target/jmh-classpath.txt")"
+java -cp "$CLASSPATH" org.openjdk.jmh.Main \
+  -prof gc -rf json -rff "$RESULTS_FILE" "$@"
+
+echo "Results written to $RESULTS_FILE"
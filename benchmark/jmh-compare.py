@@ -0,0 +1,74 @@
+#!/usr/bin/env python3
+"""
+Compares two JMH JSON result files (as written by benchmark/jmh-benchmark.sh).
+
+Prints time per operation and bytes allocated per operation for every benchmark and parameter
+combination present in both files, with the relative change from baseline to candidate.
+
+Usage: benchmark/jmh-compare.py <baseline.json> <candidate.json> [--threshold 10]
+Exits with status 2 if any benchmark got slower or allocates more by more than --threshold percent.
+"""
+import argparse
+import json
+import sys
+
+
+def load(path):
+    with open(path) as f:
+        results = {}
+        for entry in json.load(f):
+            params = ",".join(f"{k}={v}" for k, v in sorted((entry.get("params") or {}).items()))
+            name = entry["benchmark"].rsplit(".", 2)
+            key = f"{name[-2]}.{name[-1]}" + (f" [{params}]" if params else "")
+            alloc = entry.get("secondaryMetrics", {}).get("gc.alloc.rate.norm", {}).get("score")
+            results[key] = (entry["primaryMetric"]["score"], entry["primaryMetric"]["scoreUnit"], alloc)
+        return results
+
+
+def change(before, after):
+    if before is None or after is None or before == 0:
+        return None
+    return (after - before) / before * 100
+
+
+def fmt_change(value):
+    return "n/a" if value is None else f"{value:+.1f}%"
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Compare two JMH JSON result files")
+    parser.add_argument("baseline")
+    parser.add_argument("candidate")
+    parser.add_argument("--threshold", type=float, default=10.0, help="regression threshold in percent")
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    candidate = load(args.candidate)
+    regressions = []
+
+    print(f"{'benchmark':<60} {'time':>12} {'change':>8} {'B/op':>10} {'change':>8}")
+    for key in sorted(baseline.keys() & candidate.keys()):
+        before_score, unit, before_alloc = baseline[key]
+        after_score, _, after_alloc = candidate[key]
+        time_change = change(before_score, after_score)
+        alloc_change = change(before_alloc, after_alloc)
+        alloc_text = f"{after_alloc:.0f}" if after_alloc is not None else "n/a"
+        print(f"{key:<60} {after_score:>9.1f} {unit.split('/')[0]:<2} {fmt_change(time_change):>8} "
+              f"{alloc_text:>10} {fmt_change(alloc_change):>8}")
+        # Throughput modes report ops per time unit, where lower is worse
+        slower = time_change is not None and (-time_change if unit.startswith("ops") else time_change) > args.threshold
+        if slower or (alloc_change is not None and alloc_change > args.threshold):
+            regressions.append(key)
+
+    for key in sorted(baseline.keys() ^ candidate.keys()):
+        print(f"{key:<60} only in {'baseline' if key in baseline else 'candidate'}")
+
+    if regressions:
+        print(f"\n{len(regressions)} benchmark(s) regressed by more than {args.threshold}%:", file=sys.stderr)
+        for key in regressions:
+            print(f"  {key}", file=sys.stderr)
+        sys.exit(2)
+
+
+if __name__ == "__main__":
+    main()
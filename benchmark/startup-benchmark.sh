@@ -0,0 +1,146 @@
+#!/usr/bin/env bash
+#
+# Startup benchmark for the producer/consumer applications.
+#
+# Measures time-to-ready (process start until the readiness URL answers 200) and the latency of
+# the first real request, for each launch mode:
+#   jar      - plain fat jar (java -jar)
+#   aot      - fat jar with the Spring AOT-processed context (-Dspring.aot.enabled=true)
+#   cds      - unpacked class path with an AppCDS archive
+#   aot-cds  - both
+#
+# The jar must be built with the fast-startup profile for the aot modes:
+#   mvn -f msk-cross-account-producer/pom.xml clean package -Pfast-startup -DskipTests
+#
+# Usage: benchmark/startup-benchmark.sh <producer|consumer> [runs-per-mode] [modes...]
+# Results are appended as CSV to benchmark/results/startup-<module>.csv
+#
+set -euo pipefail
+
+MODULE="${1:?usage: $0 <producer|consumer> [runs] [modes...]}"
+shift
+RUNS="${1:-5}"
+[[ $# -gt 0 ]] && shift
+if [[ $# -gt 0 ]]; then
+  MODES=("$@")
+else
+  MODES=(jar aot cds aot-cds)
+fi
+
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+MODULE_DIR="$ROOT_DIR/msk-cross-account-$MODULE"
+JAR="$MODULE_DIR/target/msk-cross-account-$MODULE-1.0.0-exec.jar"
+RESULTS_DIR="$ROOT_DIR/benchmark/results"
+RESULTS_FILE="$RESULTS_DIR/startup-$MODULE.csv"
+WORK_DIR="$(mktemp -d)"
+
+case "$MODULE" in
+  producer)
+    PORT="${PORT:-8080}"
+    MAIN_CLASS="com.example.msk.producer.MskProducerApplication"
+    READY_PATH="${READY_PATH:-/api/v1/health}"
+    FIRST_REQUEST_PATH="${FIRST_REQUEST_PATH:-/api/v1/metrics}"
+    ;;
+  consumer)
+    PORT="${PORT:-8081}"
+    MAIN_CLASS="com.example.msk.consumer.MskConsumerApplication"
+    READY_PATH="${READY_PATH:-/api/v1/consumer/health}"
+    FIRST_REQUEST_PATH="${FIRST_REQUEST_PATH:-/api/v1/consumer/status}"
+    ;;
+  *)
+    echo "Unknown module: $MODULE" >&2
+    exit 1
+    ;;
+esac
+
+export SPRING_PROFILES_ACTIVE="${SPRING_PROFILES_ACTIVE:-dev}"
+export SERVER_PORT="$PORT"
+
+cleanup() {
+  [[ -n "${APP_PID:-}" ]] && kill "$APP_PID" 2>/dev/null || true
+  rm -rf "$WORK_DIR"
+}
+trap cleanup EXIT
+
+[[ -f "$JAR" ]] || { echo "Jar not found: $JAR - build the module first" >&2; exit 1; }
+
+now_ms() {
+  date +%s%3N
+}
+
+prepare_cds() {
+  local aot_flag="$1" archive="$2"
+  if [[ ! -d "$WORK_DIR/unpacked" ]]; then
+    mkdir -p "$WORK_DIR/unpacked" "$WORK_DIR/lib"
+    (cd "$WORK_DIR/unpacked" && jar -xf "$JAR")
+    cp "$WORK_DIR"/unpacked/BOOT-INF/lib/*.jar "$WORK_DIR/lib/"
+    jar -cf "$WORK_DIR/application.jar" -C "$WORK_DIR/unpacked/BOOT-INF/classes" .
+  fi
+  echo "Creating CDS archive $archive (training run)..."
+  java -XX:ArchiveClassesAtExit="$archive" "-Dspring.aot.enabled=$aot_flag" \
+    -Dspring.context.exit=onRefresh -Dspring.profiles.active=training \
+    -cp "$WORK_DIR/application.jar:$WORK_DIR/lib/*" "$MAIN_CLASS" > "$WORK_DIR/training.log" 2>&1
+}
+
+launch() {
+  local mode="$1" log="$2"
+  case "$mode" in
+    jar)     java -jar "$JAR" > "$log" 2>&1 & ;;
+    aot)     java -Dspring.aot.enabled=true -jar "$JAR" > "$log" 2>&1 & ;;
+    cds)     java -XX:SharedArchiveFile="$WORK_DIR/cds.jsa" \
+               -cp "$WORK_DIR/application.jar:$WORK_DIR/lib/*" "$MAIN_CLASS" > "$log" 2>&1 & ;;
+    aot-cds) java -XX:SharedArchiveFile="$WORK_DIR/aot-cds.jsa" -Dspring.aot.enabled=true \
+               -cp "$WORK_DIR/application.jar:$WORK_DIR/lib/*" "$MAIN_CLASS" > "$log" 2>&1 & ;;
+    *) echo "Unknown mode: $mode" >&2; exit 1 ;;
+  esac
+  APP_PID=$!
+}
+
+mkdir -p "$RESULTS_DIR"
+[[ -f "$RESULTS_FILE" ]] || echo "timestamp,git_commit,module,mode,run,time_to_ready_ms,spring_started_s,first_request_ms,first_request_status" > "$RESULTS_FILE"
+GIT_COMMIT="$(git -C "$ROOT_DIR" rev-parse --short HEAD 2>/dev/null || echo unknown)"
+
+for mode in "${MODES[@]}"; do
+  case "$mode" in
+    cds)     prepare_cds false "$WORK_DIR/cds.jsa" ;;
+    aot-cds) prepare_cds true "$WORK_DIR/aot-cds.jsa" ;;
+  esac
+
+  for run in $(seq 1 "$RUNS"); do
+    log="$WORK_DIR/$mode-$run.log"
+    start=$(now_ms)
+    launch "$mode" "$log"
+
+    ready=""
+    for _ in $(seq 1 2400); do
+      if curl -sf -o /dev/null "http://localhost:$PORT$READY_PATH"; then
+        ready=$(( $(now_ms) - start ))
+        break
+      fi
+      kill -0 "$APP_PID" 2>/dev/null || break
+      sleep 0.05
+    done
+
+    if [[ -z "$ready" ]]; then
+      echo "[$mode #$run] application did not become ready - see log below" >&2
+      tail -20 "$log" >&2
+      kill "$APP_PID" 2>/dev/null || true
+      wait "$APP_PID" 2>/dev/null || true
+      continue
+    fi
+
+    read -r first_status first_seconds < <(curl -s -o /dev/null -w '%{http_code} %{time_total}\n' \
+      "http://localhost:$PORT$FIRST_REQUEST_PATH")
+    first_ms=$(awk "BEGIN { printf \"%.1f\", $first_seconds * 1000 }")
+    started=$(grep -oE 'Started [A-Za-z]+ in [0-9.]+ seconds' "$log" | grep -oE '[0-9.]+' | head -1 || true)
+
+    echo "[$mode #$run] ready: ${ready}ms, spring started: ${started:-?}s, first request: ${first_ms}ms (HTTP $first_status)"
+    echo "$(date -u +%Y-%m-%dT%H:%M:%SZ),$GIT_COMMIT,$MODULE,$mode,$run,$ready,${started:-},$first_ms,$first_status" >> "$RESULTS_FILE"
+
+    kill "$APP_PID" 2>/dev/null || true
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=""
+  done
+done
+
+echo "Results written to $RESULTS_FILE"
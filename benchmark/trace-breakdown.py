@@ -0,0 +1,136 @@
+#!/usr/bin/env python3
+"""
+Per-hop latency breakdown of sampled end-to-end traces.
+
+Sends produce requests, collects the spans of every sampled one from both applications
+(GET /api/v1/traces/{traceId} on the producer, GET /api/v1/consumer/traces/{traceId} on the
+consumer) and prints p50, p99 and max per hop:
+  - http        producer HTTP request, from arrival to response
+  - coalesce    time queued for a coalesced send pass
+  - send        producer send until the partition leader acknowledged it
+  - delivery    producer send start until the consumer's listener started (send, broker, fetch)
+  - listener    consumer listener; with fair share only the hand-off to the queue
+  - queue     time waiting in the source account's fair-share queue
+  - dedup, build, save, ack   consumer pipeline stages
+
+It also prints, per trace, the hop that took longest, so a latency jump can be traced to the hop
+that caused it. Run both applications with TRACING_SAMPLING_PROBABILITY=1.0 to trace every request;
+at lower rates only the sampled requests are analysed. `delivery` compares the two hosts' clocks.
+
+Usage: benchmark/trace-breakdown.py [--requests 50] [--batch-size 1] [--trace-id ID ...]
+Only the Python standard library is required.
+"""
+import argparse
+import json
+import os
+import time
+import urllib.error
+import urllib.request
+
+PRODUCER_URL = os.environ.get("PRODUCER_URL", "http://localhost:8080")
+CONSUMER_URL = os.environ.get("CONSUMER_URL", "http://localhost:8081")
+HOPS = ("http", "coalesce", "send", "delivery", "listener", "queue", "dedup", "build", "save", "ack")
+STAGES = {"consumer queue": "queue", "consumer dedup": "dedup", "consumer build": "build",
+          "consumer save": "save", "consumer ack": "ack"}
+
+
+def parse_args():
+    parser = argparse.ArgumentParser(description="Per-hop latency breakdown of sampled traces")
+    parser.add_argument("--requests", type=int, default=50, help="produce requests to send")
+    parser.add_argument("--batch-size", type=int, default=1, help="messages per produce request")
+    parser.add_argument("--trace-id", nargs="*", default=[], help="analyse these traces instead of producing")
+    parser.add_argument("--wait", type=float, default=10, help="seconds to wait for spans to be exported")
+    return parser.parse_args()
+
+
+def get_json(url, body=None):
+    data = json.dumps(body).encode() if body is not None else None
+    req = urllib.request.Request(url, data=data, method="POST" if body is not None else "GET",
+                                 headers={"Content-Type": "application/json"})
+    try:
+        with urllib.request.urlopen(req, timeout=30) as response:
+            return json.loads(response.read())
+    except urllib.error.HTTPError as e:
+        if e.code == 404:
+            return []
+        raise
+
+
+def produce(args):
+    body = {
+        "payload": "trace-breakdown",
+        "messageType": "trace-breakdown",
+        "batchSize": args.batch_size,
+        "sourceAccount": "benchmark",
+        "targetAccount": "benchmark",
+    }
+    trace_ids = []
+    for _ in range(args.requests):
+        trace_id = get_json(PRODUCER_URL + "/api/v1/produce", body).get("traceId")
+        if trace_id:
+            trace_ids.append(trace_id)
+    return trace_ids
+
+
+def hops(trace_id):
+    spans = get_json(f"{PRODUCER_URL}/api/v1/traces/{trace_id}")
+    spans += get_json(f"{CONSUMER_URL}/api/v1/consumer/traces/{trace_id}")
+    by_id = {span["spanId"]: span for span in spans}
+    result = {}
+
+    def add(hop, micros):
+        # A batch has one send and one listener span per message; keep the slowest
+        result[hop] = max(result.get(hop, 0), micros / 1000)
+
+    for span in spans:
+        name, kind = span["name"], span["kind"]
+        if kind == "SERVER":
+            add("http", span["durationMicros"])
+        elif name == "producer coalesce wait":
+            add("coalesce", span["durationMicros"])
+        elif kind == "PRODUCER":
+            add("send", span["durationMicros"])
+        elif kind == "CONSUMER":
+            add("listener", span["durationMicros"])
+            parent = by_id.get(span["parentSpanId"])
+            if parent is not None and parent["kind"] == "PRODUCER":
+                add("delivery", span["startEpochMicros"] - parent["startEpochMicros"])
+        elif name in STAGES:
+            add(STAGES[name], span["durationMicros"])
+    return result
+
+
+def percentile(values, fraction):
+    values = sorted(values)
+    return values[min(len(values) - 1, int(fraction * len(values)))]
+
+
+def main():
+    args = parse_args()
+    trace_ids = args.trace_id
+    if not trace_ids:
+        trace_ids = produce(args)
+        print(f"{len(trace_ids)} of {args.requests} requests sampled; waiting {args.wait}s for span export...")
+        time.sleep(args.wait)
+    traces = {trace_id: hops(trace_id) for trace_id in trace_ids}
+    traces = {trace_id: result for trace_id, result in traces.items() if result}
+    if not traces:
+        print("No spans found - check TRACING_SAMPLING_PROBABILITY on both applications")
+        return
+
+    print(f"\n{'hop':<10} {'traces':>6} {'p50 ms':>9} {'p99 ms':>9} {'max ms':>9}")
+    for hop in HOPS:
+        values = [result[hop] for result in traces.values() if hop in result]
+        if values:
+            print(f"{hop:<10} {len(values):>6} {percentile(values, 0.5):>9.2f} {percentile(values, 0.99):>9.2f} "
+                  f"{max(values):>9.2f}")
+
+    print("\nSlowest hop per trace (5 slowest traces by delivery):")
+    slowest = sorted(traces.items(), key=lambda item: item[1].get("delivery", 0), reverse=True)[:5]
+    for trace_id, result in slowest:
+        hop = max((h for h in result if h != "http"), key=result.get)
+        print(f"  {trace_id}  {hop} {result[hop]:.2f} ms  (delivery {result.get('delivery', 0):.2f} ms)")
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,94 @@
+package com.example.msk.common.credentials;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.StsClientBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Assumes the cross-account MSK role once per application and keeps the credentials fresh in the
+ * background. Kafka clients sign with this provider through {@link MskCredentialsCallbackHandler}.
+ */
+@AutoConfiguration(after = CompositeMeterRegistryAutoConfiguration.class)
+@ConditionalOnProperty(name = "aws.msk.iam.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class MskCredentialsAutoConfiguration {
+    
+    @Value("${aws.region}")
+    private String awsRegion;
+    
+    @Value("${aws.msk.role-arn}")
+    private String crossAccountRoleArn;
+    
+    @Value("${aws.msk.role-session-name}")
+    private String roleSessionName;
+    
+    @Value("${aws.msk.role-duration-seconds}")
+    private Integer roleDurationSeconds;
+    
+    // Optional STS endpoint override, e.g. a local STS stand-in for testing
+    @Value("${aws.msk.sts-endpoint:}")
+    private String stsEndpoint;
+    
+    @Value("${aws.msk.credentials.refresh-ahead-seconds:300}")
+    private Long refreshAheadSeconds;
+    
+    @Value("${aws.msk.credentials.max-jitter-seconds:120}")
+    private Long maxJitterSeconds;
+    
+    @Value("${aws.msk.credentials.retry-delay-seconds:30}")
+    private Long retryDelaySeconds;
+    
+    // When false the first assume-role call runs in the background instead of during bean creation
+    @Value("${aws.msk.credentials.fail-fast:false}")
+    private Boolean failFast;
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public RefreshingStsCredentialsProvider mskCredentialsProvider(MeterRegistry meterRegistry) {
+        // Set up STS client to assume cross-account role
+        StsClientBuilder stsClientBuilder = StsClient.builder()
+            .region(Region.of(awsRegion))
+            .credentialsProvider(DefaultCredentialsProvider.create());
+        if (StringUtils.hasText(stsEndpoint)) {
+            stsClientBuilder.endpointOverride(URI.create(stsEndpoint));
+            log.info("Using STS endpoint override: {}", stsEndpoint);
+        }
+        
+        RefreshingStsCredentialsProvider provider = new RefreshingStsCredentialsProvider(
+            stsClientBuilder.build(),
+            crossAccountRoleArn,
+            roleSessionName,
+            roleDurationSeconds,
+            Duration.ofSeconds(refreshAheadSeconds),
+            Duration.ofSeconds(maxJitterSeconds),
+            Duration.ofSeconds(retryDelaySeconds),
+            meterRegistry);
+        
+        if (!failFast) {
+            provider.prefetch();
+            return provider;
+        }
+        
+        try {
+            provider.refresh(false);
+        } catch (Exception e) {
+            log.error("Failed to assume cross-account role", e);
+            provider.close();
+            throw new RuntimeException("Failed to configure cross-account access", e);
+        }
+        return provider;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.msk.common.credentials;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.BasicSessionCredentials;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.msk.auth.iam.IAMClientCallbackHandler;
+import software.amazon.msk.auth.iam.internals.AWSCredentialsCallback;
+
+import javax.security.auth.login.AppConfigurationEntry;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MSK IAM callback handler that signs SASL handshakes with the application's shared, auto-refreshing
+ * credentials provider instead of building its own provider chain per client. The provider instance is
+ * passed through the Kafka client config map; without it the stock IAM behaviour applies.
+ */
+@Slf4j
+public class MskCredentialsCallbackHandler extends IAMClientCallbackHandler {
+    
+    public static final String CREDENTIALS_PROVIDER_CONFIG = "msk.iam.credentials.provider";
+    
+    private AwsCredentialsProvider credentialsProvider;
+    
+    @Override
+    public void configure(Map<String, ?> configs, String saslMechanism, List<AppConfigurationEntry> jaasConfigEntries) {
+        super.configure(configs, saslMechanism, jaasConfigEntries);
+        Object provider = configs.get(CREDENTIALS_PROVIDER_CONFIG);
+        if (provider instanceof AwsCredentialsProvider awsCredentialsProvider) {
+            this.credentialsProvider = awsCredentialsProvider;
+        } else {
+            log.warn("No shared credentials provider configured, falling back to the default MSK IAM provider chain");
+        }
+    }
+    
+    @Override
+    protected void handleCallback(AWSCredentialsCallback callback) throws IOException {
+        if (credentialsProvider == null) {
+            super.handleCallback(callback);
+            return;
+        }
+        try {
+            AwsCredentials credentials = credentialsProvider.resolveCredentials();
+            if (credentials instanceof AwsSessionCredentials session) {
+                callback.setAwsCredentials(new BasicSessionCredentials(
+                    session.accessKeyId(), session.secretAccessKey(), session.sessionToken()));
+            } else {
+                callback.setAwsCredentials(new BasicAWSCredentials(
+                    credentials.accessKeyId(), credentials.secretAccessKey()));
+            }
+        } catch (Exception e) {
+            callback.setLoadingException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.example.msk.common.credentials;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
+import software.amazon.awssdk.services.sts.model.Credentials;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches assumed-role credentials for the cross-account MSK role and refreshes them on a
+ * background thread ahead of expiry. A random jitter is subtracted from each refresh time so
+ * that pods started together do not all call STS in the same second.
+ */
+@Slf4j
+public class RefreshingStsCredentialsProvider implements AwsCredentialsProvider, AutoCloseable {
+    
+    private final StsClient stsClient;
+    private final String roleArn;
+    private final String roleSessionName;
+    private final Integer roleDurationSeconds;
+    private final Duration refreshAhead;
+    private final Duration maxJitter;
+    private final Duration retryDelay;
+    
+    private final ScheduledExecutorService scheduler;
+    private final Counter refreshSuccessCounter;
+    private final Counter refreshFailureCounter;
+    private final Timer refreshTimer;
+    
+    private volatile CachedCredentials cached;
+    private ScheduledFuture<?> nextRefresh;
+    
+    public RefreshingStsCredentialsProvider(StsClient stsClient, String roleArn, String roleSessionName,
+                                            Integer roleDurationSeconds, Duration refreshAhead,
+                                            Duration maxJitter, Duration retryDelay,
+                                            MeterRegistry meterRegistry) {
+        this.stsClient = stsClient;
+        this.roleArn = roleArn;
+        this.roleSessionName = roleSessionName;
+        this.roleDurationSeconds = roleDurationSeconds;
+        this.refreshAhead = refreshAhead;
+        this.maxJitter = maxJitter;
+        this.retryDelay = retryDelay;
+        
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sts-credentials-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.refreshSuccessCounter = meterRegistry.counter("msk.credentials.refresh", "outcome", "success");
+        this.refreshFailureCounter = meterRegistry.counter("msk.credentials.refresh", "outcome", "failure");
+        this.refreshTimer = meterRegistry.timer("msk.credentials.refresh.duration");
+        Gauge.builder("msk.credentials.expiry.seconds", this, RefreshingStsCredentialsProvider::secondsUntilExpiry)
+            .description("Seconds until the cached assumed-role credentials expire")
+            .register(meterRegistry);
+    }
+    
+    @Override
+    public AwsCredentials resolveCredentials() {
+        CachedCredentials current = cached;
+        if (current == null || !Instant.now().isBefore(current.expiration())) {
+            // Nothing usable cached (first call or every background refresh failed) - block on STS
+            current = refresh(false);
+        }
+        return current.credentials();
+    }
+    
+    /**
+     * Assumes the role synchronously, caches the result and schedules the next background refresh.
+     * Unless forced, returns the cached credentials if another caller refreshed them meanwhile.
+     */
+    public synchronized CachedCredentials refresh(boolean force) {
+        CachedCredentials current = cached;
+        if (!force && current != null && Instant.now().isBefore(current.expiration())) {
+            return current;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            Credentials credentials = stsClient.assumeRole(AssumeRoleRequest.builder()
+                .roleArn(roleArn)
+                .roleSessionName(roleSessionName)
+                .durationSeconds(roleDurationSeconds)
+                .build())
+                .credentials();
+            
+            CachedCredentials refreshed = new CachedCredentials(
+                AwsSessionCredentials.create(credentials.accessKeyId(), credentials.secretAccessKey(),
+                    credentials.sessionToken()),
+                credentials.expiration());
+            cached = refreshed;
+            refreshSuccessCounter.increment();
+            
+            Duration delay = nextRefreshDelay(refreshed.expiration());
+            scheduleRefresh(delay);
+            log.info("Assumed cross-account role {} - credentials expire at {}, next refresh in {}s",
+                roleArn, refreshed.expiration(), delay.toSeconds());
+            return refreshed;
+        
+        } catch (RuntimeException e) {
+            refreshFailureCounter.increment();
+            throw e;
+        } finally {
+            refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Starts the first assume-role call on the refresh thread so it does not block application startup.
+     * Kafka clients that authenticate before it completes wait for it in {@link #resolveCredentials()}.
+     */
+    public void prefetch() {
+        scheduleRefresh(Duration.ZERO);
+    }
+    
+    private void backgroundRefresh() {
+        try {
+            refresh(true);
+        } catch (Exception e) {
+            log.warn("Background refresh of role {} failed, retrying in {}s", roleArn, retryDelay.toSeconds(), e);
+            scheduleRefresh(retryDelay);
+        }
+    }
+    
+    // Only one refresh is ever pending, however many callers triggered a synchronous refresh
+    private synchronized void scheduleRefresh(Duration delay) {
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        nextRefresh = scheduler.schedule(this::backgroundRefresh, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    private Duration nextRefreshDelay(Instant expiration) {
+        long jitterMillis = maxJitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(maxJitter.toMillis());
+        Duration delay = Duration.between(Instant.now(), expiration)
+            .minus(refreshAhead)
+            .minusMillis(jitterMillis);
+        return delay.isNegative() ? retryDelay : delay;
+    }
+    
+    private double secondsUntilExpiry() {
+        CachedCredentials current = cached;
+        return current != null ? Duration.between(Instant.now(), current.expiration()).toSeconds() : 0;
+    }
+    
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        stsClient.close();
+    }
+    
+    public record CachedCredentials(AwsCredentials credentials, Instant expiration) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.example.msk.common.metrics;
+
+import io.micrometer.cloudwatch2.CloudWatchConfig;
+import io.micrometer.cloudwatch2.CloudWatchMeterRegistry;
+import io.micrometer.core.instrument.Clock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+
+import java.time.Duration;
+
+/**
+ * Spring Boot does not auto-configure the CloudWatch registry, so it is registered here when
+ * enabled. Boot combines it with the Prometheus registry into the composite the application uses,
+ * which is why it has to be registered before the composite is configured.
+ */
+@AutoConfiguration(after = MetricsAutoConfiguration.class,
+    before = {CompositeMeterRegistryAutoConfiguration.class, SimpleMetricsExportAutoConfiguration.class})
+@ConditionalOnProperty(name = "management.metrics.export.cloudwatch.enabled", havingValue = "true")
+@Slf4j
+public class CloudWatchMetricsAutoConfiguration {
+    
+    @Value("${aws.region}")
+    private String awsRegion;
+    
+    @Value("${management.metrics.export.cloudwatch.namespace}")
+    private String namespace;
+    
+    @Value("${management.metrics.export.cloudwatch.step:1m}")
+    private Duration step;
+    
+    @Bean(destroyMethod = "close")
+    public CloudWatchMeterRegistry cloudWatchMeterRegistry() {
+        CloudWatchConfig config = new CloudWatchConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+            
+            @Override
+            public String namespace() {
+                return namespace;
+            }
+            
+            @Override
+            public Duration step() {
+                return step;
+            }
+        };
+        
+        log.info("Publishing metrics to CloudWatch namespace {} every {}s", namespace, step.toSeconds());
+        return new CloudWatchMeterRegistry(config, Clock.SYSTEM,
+            CloudWatchAsyncClient.builder().region(Region.of(awsRegion)).build());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.example.msk.common.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Span exporter that needs no collector: finished spans are kept in a bounded in-memory ring, served
+ * by each application's traces endpoint, and optionally appended as JSON lines to a file. Spring
+ * Boot registers it with the OpenTelemetry SDK's batch processor, so export runs off the request and
+ * listener threads, and only sampled spans reach it.
+ */
+@Slf4j
+public class LocalSpanExporter implements SpanExporter {
+    
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ArrayDeque<Map<String, Object>> recent = new ArrayDeque<>();
+    private final int bufferSize;
+    private final String service;
+    private BufferedWriter file;
+    
+    public LocalSpanExporter(TracingProperties properties, String service) {
+        this.bufferSize = Math.max(1, properties.getBufferSize());
+        this.service = service;
+        String file = properties.getFile() != null ? properties.getFile() : "";
+        if (!file.isBlank()) {
+            try {
+                Path path = Path.of(file);
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                this.file = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                log.info("Writing sampled spans to {}", path.toAbsolutePath());
+            } catch (IOException e) {
+                log.warn("Span file {} not writable - spans are kept in memory only: {}", file, e.getMessage());
+            }
+        }
+    }
+    
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        for (SpanData span : spans) {
+            Map<String, Object> view = toView(span);
+            if (recent.size() >= bufferSize) {
+                recent.poll();
+            }
+            recent.add(view);
+            if (file != null) {
+                try {
+                    file.write(objectMapper.writeValueAsString(view));
+                    file.newLine();
+                } catch (IOException e) {
+                    log.warn("Could not write span to file: {}", e.getMessage());
+                }
+            }
+        }
+        return flush();
+    }
+    
+    private Map<String, Object> toView(SpanData span) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("service", service);
+        view.put("traceId", span.getTraceId());
+        view.put("spanId", span.getSpanId());
+        String parentSpanId = span.getParentSpanId();
+        view.put("parentSpanId", INVALID_SPAN_ID.equals(parentSpanId) ? null : parentSpanId);
+        view.put("name", span.getName());
+        view.put("kind", span.getKind().name());
+        view.put("start", Instant.ofEpochSecond(0, span.getStartEpochNanos()).toString());
+        view.put("startEpochMicros", span.getStartEpochNanos() / 1000);
+        view.put("durationMicros", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1000);
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+        view.put("attributes", attributes);
+        return view;
+    }
+    
+    /**
+     * Spans of one trace recorded by this application, in start order.
+     */
+    public synchronized List<Map<String, Object>> getTrace(String traceId) {
+        return recent.stream()
+            .filter(span -> traceId.equals(span.get("traceId")))
+            .sorted(Comparator.comparingLong(span -> (Long) span.get("startEpochMicros")))
+            .toList();
+    }
+    
+    @Override
+    public synchronized CompletableResultCode flush() {
+        if (file != null) {
+            try {
+                file.flush();
+            } catch (IOException e) {
+                return CompletableResultCode.ofFailure();
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+    
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        flush();
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.debug("Closing span file failed: {}", e.getMessage());
+            }
+            file = null;
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.example.msk.common.tracing;
+
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Registers the {@link LocalSpanExporter}; Spring Boot's OpenTelemetry auto-configuration picks up
+ * every {@link SpanExporter} bean and feeds it from its batch span processor.
+ */
+@AutoConfiguration
+@ConditionalOnClass(SpanExporter.class)
+@EnableConfigurationProperties(TracingProperties.class)
+public class LocalTracingAutoConfiguration {
+    
+    @Bean
+    public LocalSpanExporter localSpanExporter(TracingProperties properties,
+                                               @Value("${spring.application.name:application}") String service) {
+        return new LocalSpanExporter(properties, service);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.msk.common.tracing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "msk.tracing")
+@Data
+public class TracingProperties {
+    
+    // Sampled spans kept in memory for the application's traces endpoint
+    private int bufferSize = 10000;
+    
+    // Also append sampled spans to this file as JSON lines; empty to keep them in memory only
+    private String file = "";
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.example.msk.common;
+
+import com.example.msk.common.metrics.CloudWatchMetricsAutoConfiguration;
+import com.example.msk.common.tracing.LocalSpanExporter;
+import com.example.msk.common.tracing.LocalTracingAutoConfiguration;
+import io.micrometer.cloudwatch2.CloudWatchMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ObservabilityAutoConfigurationTest {
+    
+    // SpringApplication installs Boot's conversion service, which turns the "1m" step into a Duration
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withInitializer(context -> context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance()))
+        .withConfiguration(AutoConfigurations.of(LocalTracingAutoConfiguration.class, CloudWatchMetricsAutoConfiguration.class))
+        .withPropertyValues("spring.application.name=msk-cross-account-producer", "aws.region=us-east-1");
+    
+    @Test
+    void spanExporterIsRegisteredAndCloudWatchIsOffByDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(LocalSpanExporter.class);
+            assertThat(context).doesNotHaveBean(CloudWatchMeterRegistry.class);
+        });
+    }
+    
+    @Test
+    void cloudWatchRegistryIsRegisteredWhenEnabled() {
+        contextRunner
+            .withPropertyValues("management.metrics.export.cloudwatch.enabled=true",
+                "management.metrics.export.cloudwatch.namespace=MSKCrossAccountProducer",
+                "management.metrics.export.cloudwatch.step=1m")
+            .run(context -> assertThat(context).hasSingleBean(CloudWatchMeterRegistry.class));
+    }
+}
\ No newline at end of file
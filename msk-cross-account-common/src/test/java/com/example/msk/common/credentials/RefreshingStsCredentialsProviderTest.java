@@ -0,0 +1,197 @@
+package com.example.msk.common.credentials;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.model.StsException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs the provider against a local STS stand-in that answers AssumeRole with queued responses, so the
+ * real SDK client, its request and its response parsing are exercised without AWS.
+ */
+class RefreshingStsCredentialsProviderTest {
+    
+    private static final String ROLE_ARN = "arn:aws:iam::123456789012:role/msk-cross-account";
+    
+    private final Queue<Response> responses = new ConcurrentLinkedQueue<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HttpServer sts;
+    private RefreshingStsCredentialsProvider provider;
+    
+    private record Response(int status, String body) {
+    }
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        sts = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        sts.createContext("/", this::assumeRole);
+        sts.start();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (provider != null) {
+            provider.close();
+        }
+        sts.stop(0);
+    }
+    
+    @Test
+    void credentialsAreCachedUntilTheyAreDueForRefresh() {
+        respondWithCredentials("AKID1", Instant.now().plus(1, ChronoUnit.HOURS));
+        provider = provider(Duration.ofMinutes(5), Duration.ofSeconds(1));
+        
+        AwsSessionCredentials first = (AwsSessionCredentials) provider.resolveCredentials();
+        AwsSessionCredentials second = (AwsSessionCredentials) provider.resolveCredentials();
+        
+        assertThat(first.accessKeyId()).isEqualTo("AKID1");
+        assertThat(first.sessionToken()).isEqualTo("token-AKID1");
+        assertThat(second).isSameAs(first);
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0)).contains("Action=AssumeRole", "RoleArn=" + ROLE_ARN,
+            "RoleSessionName=msk-test", "DurationSeconds=3600");
+        assertThat(meterRegistry.get("msk.credentials.expiry.seconds").gauge().value()).isGreaterThan(3500);
+    }
+    
+    @Test
+    void credentialsAreRefreshedInTheBackgroundAheadOfExpiry() {
+        respondWithCredentials("AKID1", Instant.now().plusSeconds(3));
+        respondWithCredentials("AKID2", Instant.now().plus(1, ChronoUnit.HOURS));
+        provider = provider(Duration.ofSeconds(2), Duration.ofSeconds(1));
+        
+        assertThat(provider.resolveCredentials().accessKeyId()).isEqualTo("AKID1");
+        
+        // The counters move once the response is cached, the stand-in's request log before that
+        await().atMost(Duration.ofSeconds(5)).until(() -> refreshes("success") == 2);
+        assertThat(provider.resolveCredentials().accessKeyId()).isEqualTo("AKID2");
+        assertThat(requests).hasSize(2);
+    }
+    
+    @Test
+    void failedBackgroundRefreshKeepsTheCachedCredentialsAndRetries() {
+        // STS reports whole seconds, so AKID1 lasts four to five seconds and is refreshed after one or two
+        respondWithCredentials("AKID1", Instant.now().plusSeconds(5));
+        respondWithError("Throttling", "Rate exceeded");
+        respondWithCredentials("AKID2", Instant.now().plus(1, ChronoUnit.HOURS));
+        provider = provider(Duration.ofSeconds(3), Duration.ofMillis(500));
+        
+        assertThat(provider.resolveCredentials().accessKeyId()).isEqualTo("AKID1");
+        
+        await().atMost(Duration.ofSeconds(5)).until(() -> refreshes("failure") == 1);
+        // Still valid for about three seconds, so callers keep getting them while the retry is pending
+        assertThat(provider.resolveCredentials().accessKeyId()).isEqualTo("AKID1");
+        
+        await().atMost(Duration.ofSeconds(5)).until(() -> refreshes("success") == 2);
+        assertThat(provider.resolveCredentials().accessKeyId()).isEqualTo("AKID2");
+    }
+    
+    @Test
+    void callersFailWhenNothingIsCachedAndStsRejectsTheRole() {
+        respondWithError("AccessDenied", "User is not authorized to perform: sts:AssumeRole");
+        provider = provider(Duration.ofMinutes(5), Duration.ofMinutes(1));
+        
+        assertThatThrownBy(() -> provider.resolveCredentials())
+            .isInstanceOf(StsException.class)
+            .hasMessageContaining("not authorized");
+        assertThat(refreshes("failure")).isEqualTo(1);
+    }
+    
+    @Test
+    void prefetchAssumesTheRoleWithoutACaller() {
+        respondWithCredentials("AKID1", Instant.now().plus(1, ChronoUnit.HOURS));
+        provider = provider(Duration.ofMinutes(5), Duration.ofMinutes(1));
+        
+        provider.prefetch();
+        
+        await().atMost(Duration.ofSeconds(5)).until(() -> refreshes("success") == 1);
+        assertThat(provider.resolveCredentials().accessKeyId()).isEqualTo("AKID1");
+        assertThat(requests).hasSize(1);
+    }
+    
+    private RefreshingStsCredentialsProvider provider(Duration refreshAhead, Duration retryDelay) {
+        StsClient client = StsClient.builder()
+            .region(Region.US_EAST_1)
+            .endpointOverride(URI.create("http://127.0.0.1:" + sts.getAddress().getPort()))
+            .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("caller", "caller-secret")))
+            // The queued responses are consumed one per call, so the SDK must not retry on its own
+            .overrideConfiguration(configuration -> configuration.retryPolicy(RetryPolicy.none()))
+            .build();
+        return new RefreshingStsCredentialsProvider(client, ROLE_ARN, "msk-test", 3600, refreshAhead,
+            Duration.ZERO, retryDelay, meterRegistry);
+    }
+    
+    private double refreshes(String outcome) {
+        return meterRegistry.get("msk.credentials.refresh").tag("outcome", outcome).counter().count();
+    }
+    
+    private void respondWithCredentials(String accessKeyId, Instant expiration) {
+        responses.add(new Response(200, """
+            <AssumeRoleResponse xmlns="https://sts.amazonaws.com/doc/2011-06-15/">
+              <AssumeRoleResult>
+                <Credentials>
+                  <AccessKeyId>%s</AccessKeyId>
+                  <SecretAccessKey>secret-%s</SecretAccessKey>
+                  <SessionToken>token-%s</SessionToken>
+                  <Expiration>%s</Expiration>
+                </Credentials>
+                <AssumedRoleUser>
+                  <AssumedRoleId>AROA:msk-test</AssumedRoleId>
+                  <Arn>arn:aws:sts::123456789012:assumed-role/msk-cross-account/msk-test</Arn>
+                </AssumedRoleUser>
+              </AssumeRoleResult>
+              <ResponseMetadata><RequestId>request</RequestId></ResponseMetadata>
+            </AssumeRoleResponse>
+            """.formatted(accessKeyId, accessKeyId, accessKeyId, expiration.truncatedTo(ChronoUnit.SECONDS))));
+    }
+    
+    private void respondWithError(String code, String message) {
+        responses.add(new Response(403, """
+            <ErrorResponse xmlns="https://sts.amazonaws.com/doc/2011-06-15/">
+              <Error><Type>Sender</Type><Code>%s</Code><Message>%s</Message></Error>
+              <RequestId>request</RequestId>
+            </ErrorResponse>
+            """.formatted(code, message)));
+    }
+    
+    private void assumeRole(HttpExchange exchange) throws IOException {
+        requests.add(URLDecoder.decode(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8),
+            StandardCharsets.UTF_8));
+        Response response = responses.poll();
+        if (response == null) {
+            response = new Response(500, "<ErrorResponse><Error><Code>InternalFailure</Code></Error></ErrorResponse>");
+        }
+        byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/xml");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,115 @@
+package com.example.msk.common.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalSpanExporterTest {
+    
+    @TempDir
+    Path directory;
+    
+    private SdkTracerProvider tracerProvider;
+    
+    @AfterEach
+    void tearDown() {
+        if (tracerProvider != null) {
+            tracerProvider.close();
+        }
+    }
+    
+    @Test
+    void traceIsReturnedInStartOrderWithParents() {
+        LocalSpanExporter exporter = exporter(100, "");
+        Tracer tracer = tracer(exporter);
+        
+        Span parent = tracer.spanBuilder("POST /api/v1/produce").startSpan();
+        try (Scope scope = parent.makeCurrent()) {
+            tracer.spanBuilder("connectivity-test send").setAttribute("messaging.destination.name", "connectivity-test")
+                .startSpan().end();
+        } finally {
+            parent.end();
+        }
+        tracer.spanBuilder("unrelated").startSpan().end();
+        
+        List<Map<String, Object>> trace = exporter.getTrace(parent.getSpanContext().getTraceId());
+        assertThat(trace).extracting(span -> span.get("name")).containsExactly("POST /api/v1/produce", "connectivity-test send");
+        assertThat(trace.get(0)).containsEntry("parentSpanId", null).containsEntry("service", "test-service");
+        assertThat(trace.get(1)).containsEntry("parentSpanId", parent.getSpanContext().getSpanId());
+        assertThat(trace.get(1).get("attributes")).isEqualTo(Map.of("messaging.destination.name", "connectivity-test"));
+    }
+    
+    @Test
+    void oldestSpansAreDroppedOnceTheBufferIsFull() {
+        LocalSpanExporter exporter = exporter(2, "");
+        Tracer tracer = tracer(exporter);
+        
+        Span first = tracer.spanBuilder("first").startSpan();
+        first.end();
+        Span second = tracer.spanBuilder("second").startSpan();
+        second.end();
+        Span third = tracer.spanBuilder("third").startSpan();
+        third.end();
+        
+        assertThat(exporter.getTrace(first.getSpanContext().getTraceId())).isEmpty();
+        assertThat(exporter.getTrace(second.getSpanContext().getTraceId())).hasSize(1);
+        assertThat(exporter.getTrace(third.getSpanContext().getTraceId())).hasSize(1);
+    }
+    
+    @Test
+    void spansAreAppendedToTheFileAsJsonLines() throws IOException {
+        Path file = directory.resolve("spans/producer.jsonl");
+        LocalSpanExporter exporter = exporter(100, file.toString());
+        Tracer tracer = tracer(exporter);
+        
+        Span span = tracer.spanBuilder("consumer save").startSpan();
+        span.end();
+        tracerProvider.close();
+        tracerProvider = null;
+        
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(1);
+        Map<?, ?> written = new ObjectMapper().readValue(lines.get(0), Map.class);
+        assertThat(written.get("name")).isEqualTo("consumer save");
+        assertThat(written.get("traceId")).isEqualTo(span.getSpanContext().getTraceId());
+    }
+    
+    @Test
+    void unwritableFileFallsBackToMemory() throws IOException {
+        Path notADirectory = Files.createFile(directory.resolve("file"));
+        LocalSpanExporter exporter = exporter(100, notADirectory.resolve("spans.jsonl").toString());
+        Tracer tracer = tracer(exporter);
+        
+        Span span = tracer.spanBuilder("still recorded").startSpan();
+        span.end();
+        
+        assertThat(exporter.getTrace(span.getSpanContext().getTraceId())).hasSize(1);
+    }
+    
+    private static LocalSpanExporter exporter(int bufferSize, String file) {
+        TracingProperties properties = new TracingProperties();
+        properties.setBufferSize(bufferSize);
+        properties.setFile(file);
+        return new LocalSpanExporter(properties, "test-service");
+    }
+    
+    // The simple processor exports each span as it ends, so no collector or batching is involved
+    private Tracer tracer(LocalSpanExporter exporter) {
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter)).build();
+        return tracerProvider.get("test");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.dto.ConsumedMessageDTO;
+import com.example.msk.consumer.entity.ConsumedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity-to-DTO mapping done for every row returned by the query endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@State(Scope.Thread)
+public class ConsumedMessageMapperBenchmark {
+    
+    @Param({"64", "1024", "16384"})
+    private int payloadSize;
+    
+    private ConsumedMessage entity;
+    
+    @Setup
+    public void setup() {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("messageId", UUID.randomUUID().toString());
+        payload.put("payload", "x".repeat(payloadSize));
+        payload.put("messageType", "connectivity-test");
+        
+        entity = ConsumedMessage.builder()
+            .id(1L)
+            .messageId(UUID.randomUUID().toString())
+            .originalTimestamp(Instant.now())
+            .consumedTimestamp(Instant.now())
+            .sourceAccount("123456789012")
+            .targetAccount("987654321098")
+            .messageType("connectivity-test")
+            .payload(payload)
+            .batchId(UUID.randomUUID().toString())
+            .sequenceNumber(42)
+            .processingDurationMs(3L)
+            .kafkaPartition(3)
+            .kafkaOffset(123456L)
+            .processingStatus(ConsumedMessage.ProcessingStatus.SUCCESS)
+            .build();
+    }
+    
+    @Benchmark
+    public ConsumedMessageDTO toDTO() {
+        return ConsumedMessageMapper.toDTO(entity);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.entity.ConsumedMessage;
+import com.example.msk.consumer.model.TestMessage;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message work on the consume path before the database: JSON deserialization configured as in
+ * {@code KafkaConfig}, the payload map from {@link ConsumedMessageMapper#toPayload} and the
+ * {@link ConsumedMessage} built for every record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@State(Scope.Thread)
+public class ConsumerHotPathBenchmark {
+    
+    private static final String TOPIC = "connectivity-test";
+    private static final String PRODUCER_TYPE_ID = "com.example.msk.producer.model.TestMessage";
+    
+    // Payload characters per message: a short probe, a typical event and a large document
+    @Param({"64", "1024", "16384"})
+    private int payloadSize;
+    
+    private JsonDeserializer<Object> deserializer;
+    private byte[] record;
+    private Headers headers;
+    private TestMessage message;
+    
+    @Setup
+    public void setup() {
+        deserializer = new JsonDeserializer<>();
+        deserializer.configure(Map.of(
+            JsonDeserializer.TRUSTED_PACKAGES, "com.example.msk.consumer.model",
+            JsonDeserializer.USE_TYPE_INFO_HEADERS, false,
+            JsonDeserializer.VALUE_DEFAULT_TYPE, TestMessage.class), false);
+        
+        message = TestMessage.builder()
+            .messageId(UUID.randomUUID().toString())
+            .timestamp(Instant.now())
+            .sourceAccount("123456789012")
+            .targetAccount("987654321098")
+            .payload(randomText(payloadSize))
+            .messageType("connectivity-test")
+            .batchId(UUID.randomUUID().toString())
+            .sequenceNumber(42)
+            .build();
+        
+        try (JsonSerializer<TestMessage> serializer = new JsonSerializer<>()) {
+            serializer.setAddTypeInfo(false);
+            record = serializer.serialize(TOPIC, message);
+        }
+        // Records from the producer carry its own class name in the type header
+        headers = new RecordHeaders();
+        headers.add("__TypeId__", PRODUCER_TYPE_ID.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @TearDown
+    public void tearDown() {
+        deserializer.close();
+    }
+    
+    @Benchmark
+    public Object deserialize() {
+        return deserializer.deserialize(TOPIC, headers, record);
+    }
+    
+    @Benchmark
+    public Map<String, Object> toPayload() {
+        return ConsumedMessageMapper.toPayload(message);
+    }
+    
+    @Benchmark
+    public ConsumedMessage buildConsumedMessage() {
+        return ConsumedMessageMapper.toEntity(message, 3, 123456L, "msk-cross-account-consumer-group",
+            ConsumedMessage.ProcessingStatus.SUCCESS);
+    }
+    
+    @Benchmark
+    public ConsumedMessage deserializeAndBuild() {
+        TestMessage received = (TestMessage) deserializer.deserialize(TOPIC, headers, record);
+        return ConsumedMessageMapper.toEntity(received, 3, 123456L, "msk-cross-account-consumer-group",
+            ConsumedMessage.ProcessingStatus.SUCCESS);
+    }
+    
+    static String randomText(int length) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ,.-\"";
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.msk.consumer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "consumer.adaptive-concurrency")
+@Data
+public class AdaptiveConcurrencyProperties {
+    
+    // Off by default: every resize restarts the listener container and rebalances the group
+    private boolean enabled = false;
+    
+    private long intervalMs = 15000;
+    
+    private long initialDelayMs = 60000;
+    
+    private int minConcurrency = 1;
+    
+    // Also capped by the topic's partition count and the primary pool size
+    private int maxConcurrency = 10;
+    
+    // Scale up while the current lag would take longer than this to drain at the observed rate
+    private long targetDrainSeconds = 30;
+    
+    // Scale down when the lag would drain within this time with one consumer fewer
+    private long idleDrainSeconds = 5;
+    
+    // Consecutive samples a scale-down condition must hold, so short lulls do not trigger a restart
+    private int scaleDownSamples = 4;
+    
+    // Minimum time between two resizes; each one restarts the container and rebalances the group
+    private long resizeCooldownMs = 60000;
+    
+    // Above this smoothed save latency Postgres is treated as the bottleneck: no scale-up, shed a consumer
+    private double dbLatencyThresholdMs = 100;
+    
+    // Above this save latency, or with this fraction of the pool's size waiting for a connection, fetching is paused
+    private double pauseLatencyThresholdMs = 1000;
+    
+    private double pauseWaitingRatio = 1.0;
+    
+    private long partitionRefreshMs = 300000;
+    
+    // Most recent decisions kept for the metrics endpoint
+    private int decisionHistory = 20;
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.example.msk.consumer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "consumer.canary")
+@Data
+public class CanaryProperties {
+    
+    private boolean enabled = true;
+    
+    // Topic the producer sends probes to; its partitions are watched from assignment, before the first probe arrives
+    private String topic;
+    
+    // Probes that took longer than this from the producer's timestamp to arrival count as late
+    private long lateThresholdMs = 5000;
+    
+    // A watched partition without a probe for this long is stale; keep well above the producer's interval
+    private long missingAfterMs = 15000;
+    
+    // A partition stays unhealthy for this long after a missing or late probe
+    private long unhealthyWindowMs = 60000;
+    
+    // A producer run that sent no probe to a partition for this long is forgotten there, e.g. after a restart
+    private long runExpiryMs = 300000;
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.example.msk.consumer.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Map;
+
+/**
+ * Splits database access across two HikariCP pools. Read-only transactions (reporting endpoints,
+ * exports, batch verification) are routed to the read pool, which may point at a replica, while
+ * the Kafka listener keeps the primary pool to itself.
+ */
+@Configuration
+@ConditionalOnProperty(name = "consumer.datasource.read.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class DataSourceConfig {
+    
+    private static final String PRIMARY = "primary";
+    private static final String READ = "read";
+    
+    @Value("${consumer.datasource.read.url}")
+    private String readUrl;
+    
+    @Value("${consumer.datasource.read.username}")
+    private String readUsername;
+    
+    @Value("${consumer.datasource.read.password}")
+    private String readPassword;
+    
+    @Value("${consumer.datasource.read.maximum-pool-size:10}")
+    private Integer readMaximumPoolSize;
+    
+    @Value("${consumer.datasource.read.minimum-idle:2}")
+    private Integer readMinimumIdle;
+    
+    @Value("${consumer.datasource.read.connection-timeout:30000}")
+    private Long readConnectionTimeout;
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+        dataSource.setPoolName("primary-pool");
+        return dataSource;
+    }
+    
+    @Bean
+    public HikariDataSource readDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("read-pool");
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(readUrl);
+        dataSource.setUsername(readUsername);
+        dataSource.setPassword(readPassword);
+        dataSource.setMaximumPoolSize(readMaximumPoolSize);
+        dataSource.setMinimumIdle(readMinimumIdle);
+        dataSource.setConnectionTimeout(readConnectionTimeout);
+        dataSource.setReadOnly(true);
+        
+        log.info("Read datasource configured with pool size {} for {}", readMaximumPoolSize, readUrl);
+        return dataSource;
+    }
+    
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("readDataSource") DataSource readDataSource) {
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource();
+        routingDataSource.setTargetDataSources(Map.of(PRIMARY, primaryDataSource, READ, readDataSource));
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+        
+        // The physical connection must be fetched lazily, after the transaction's read-only flag is set.
+        // Defaults are set explicitly so the proxy does not open a connection at startup to detect them.
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(routingDataSource);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        proxy.afterPropertiesSet();
+        return proxy;
+    }
+    
+    static class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+        
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? READ : PRIMARY;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.msk.consumer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "consumer.dead-letter")
+@Data
+public class DeadLetterProperties {
+    
+    // Records a fair-share worker could neither store nor record as failed are published here
+    private boolean enabled = true;
+    
+    private String topic = "connectivity-test-dlq";
+    
+    // Also bounds how long a send may block waiting for metadata
+    private long sendTimeoutMs = 10000;
+}
\ No newline at end of file
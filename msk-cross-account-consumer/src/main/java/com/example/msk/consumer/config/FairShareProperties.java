@@ -0,0 +1,54 @@
+package com.example.msk.consumer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "consumer.fair-share")
+@Data
+public class FairShareProperties {
+    
+    // When disabled, every record is written on its listener thread in partition order
+    private boolean enabled = false;
+    
+    // Threads writing queued records to Postgres, capped at the primary pool size less reserved-connections
+    private int workers = 8;
+    
+    // Primary-pool connections left to the listener threads, warm-up and retention
+    private int reservedConnections = 2;
+    
+    // Fetching from a partition pauses at this many unacknowledged records and resumes at half of it
+    private int maxPendingPerPartition = 1000;
+    
+    // Share of a tenant with weight 1, in messages per second; a tenant's share is this times its weight
+    private double ratePerSecond = 200;
+    
+    // Unused share a tenant may save up, in seconds of its rate
+    private double burstSeconds = 2;
+    
+    private double defaultWeight = 1.0;
+    
+    // Keyed by sourceAccount
+    private Map<String, Double> weights = new HashMap<>();
+    
+    // Idle write capacity goes to tenants over their share; otherwise they wait for their next token
+    private boolean workConserving = true;
+    
+    // Further source accounts share the "other" tenant, which bounds metric cardinality
+    private int maxTenants = 100;
+    
+    // A queued record that was neither stored nor recorded as failed is retried, then dead-lettered;
+    // without a dead-letter topic it is retried until its partition is revoked
+    private int maxAttempts = 3;
+    
+    private long retryBackoffMs = 1000;
+    
+    public double weightOf(String tenant) {
+        Double weight = weights.get(tenant);
+        return weight != null && weight > 0 ? weight : defaultWeight;
+    }
+}
\ No newline at end of file
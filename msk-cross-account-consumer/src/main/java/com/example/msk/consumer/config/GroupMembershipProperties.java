@@ -0,0 +1,24 @@
+package com.example.msk.consumer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "consumer.group-membership")
+@Data
+public class GroupMembershipProperties {
+    
+    // CooperativeStickyAssignor: a rebalance only revokes the partitions that move instead of all of them
+    private boolean cooperativeRebalancing = true;
+    
+    // Base of group.instance.id (static membership); blank keeps dynamic membership. Every listener
+    // container appends its listener ID and each of its consumers its index, so the base must be
+    // stable across restarts of the same instance and unique across instances, e.g. a StatefulSet pod name
+    private String instanceId;
+    
+    // Static members that restart within this time get their partitions back without a rebalance
+    private int staticSessionTimeoutMs = 60000;
+    
+    private int sessionTimeoutMs = 30000;
+}
\ No newline at end of file
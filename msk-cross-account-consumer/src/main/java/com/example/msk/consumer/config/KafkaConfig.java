@@ -1,10 +1,20 @@
 package com.example.msk.consumer.config;
 
+import com.example.msk.common.credentials.MskCredentialsCallbackHandler;
+import com.example.msk.common.credentials.RefreshingStsCredentialsProvider;
+import com.example.msk.consumer.model.TestMessage;
+import com.example.msk.consumer.service.ConsumerPipelineMetrics;
+import com.example.msk.consumer.service.ConsumerRebalanceMetrics;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.CommonClientConfigs;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.config.SaslConfigs;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,41 +22,48 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
-import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.sts.StsClient;
-import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
-import software.amazon.awssdk.services.sts.model.AssumeRoleResponse;
-import software.amazon.awssdk.services.sts.model.Credentials;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.StringUtils;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 @Configuration
 @EnableKafka
+@RequiredArgsConstructor
 @Slf4j
 public class KafkaConfig {
     
+    private final ObjectProvider<RefreshingStsCredentialsProvider> credentialsProvider;
+    private final ConsumerPipelineMetrics pipelineMetrics;
+    private final ConsumerRebalanceMetrics rebalanceMetrics;
+    private final GroupMembershipProperties membership;
+    private final DeadLetterProperties deadLetter;
+    
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
     
-    @Value("${spring.kafka.consumer.group-id}")
-    private String groupId;
-    
-    @Value("${aws.region}")
-    private String awsRegion;
+    // Disabled by the local profile, which talks to a plaintext broker
+    @Value("${aws.msk.iam.enabled:true}")
+    private Boolean iamEnabled;
     
-    @Value("${aws.msk.role-arn}")
-    private String crossAccountRoleArn;
+    // Observed listeners continue the producer's trace from the traceparent header
+    @Value("${management.tracing.enabled:true}")
+    private Boolean tracingEnabled;
     
-    @Value("${aws.msk.role-session-name}")
-    private String roleSessionName;
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
     
-    @Value("${aws.msk.role-duration-seconds}")
-    private Integer roleDurationSeconds;
+    // Starting size of the default listener; AdaptiveConcurrencyService resizes it at runtime when enabled
+    @Value("${spring.kafka.listener.concurrency:3}")
+    private Integer concurrency;
     
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
@@ -54,28 +71,29 @@ public class KafkaConfig {
         
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.msk.consumer.model");
+        // Producers stamp their own TestMessage class name in the type header; always map to ours
+        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, TestMessage.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
-        props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 30000);
-        
-        // MSK IAM Authentication
-        props.put(CommonClientConfigs.SECURITY_PROTOCOL_CONFIG, "SASL_SSL");
-        props.put(SaslConfigs.SASL_MECHANISM, "AWS_MSK_IAM");
-        props.put(SaslConfigs.SASL_JAAS_CONFIG, 
-            "software.amazon.msk.auth.iam.IAMLoginModule required;");
-        props.put(SaslConfigs.SASL_CLIENT_CALLBACK_HANDLER_CLASS, 
-            "software.amazon.msk.auth.iam.IAMClientCallbackHandler");
+        if (membership.isCooperativeRebalancing()) {
+            props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
+        }
+        // group.instance.id itself is set per listener container, see kafkaListenerContainerFactory()
+        props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, isStaticMembership()
+            ? membership.getStaticSessionTimeoutMs() : membership.getSessionTimeoutMs());
         
-        // Configure AWS credentials for cross-account access
-        configureAwsCredentials();
+        addSecurityProperties(props);
+        if (!iamEnabled) {
+            log.warn("MSK IAM authentication disabled - connecting to {} over PLAINTEXT", bootstrapServers);
+        }
         
         log.info("Kafka consumer configuration initialized for MSK cluster");
-        return new DefaultKafkaConsumerFactory<>(props);
+        // Deserializers are created per consumer; the JSON one is timed as the first pipeline stage
+        return new DefaultKafkaConsumerFactory<>(props, StringDeserializer::new,
+            () -> new ErrorHandlingDeserializer<>(new TimedDeserializer<>(new JsonDeserializer<>(), pipelineMetrics)));
     }
     
     @Bean
@@ -83,38 +101,62 @@ public class KafkaConfig {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // Fair-share workers acknowledge through TenantFairShareService, which passes acknowledgements
+        // on in offset order and pauses single partitions, so the containers keep plain manual acks
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
-        factory.setConcurrency(3); // Configure consumer concurrency
+        factory.getContainerProperties().setObservationEnabled(tracingEnabled);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setConsumerRebalanceListener(rebalanceMetrics);
+        if (isStaticMembership()) {
+            // Unique per container: the default listener and the topic listeners can share a group.
+            // The container appends "-<index>" for each of its consumers
+            factory.setContainerCustomizer(container -> {
+                Properties consumerProperties = new Properties();
+                consumerProperties.putAll(container.getContainerProperties().getKafkaConsumerProperties());
+                consumerProperties.setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG,
+                    membership.getInstanceId() + "-" + container.getListenerId());
+                container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+            });
+            log.info("Static group membership enabled - Instance ID: {}", membership.getInstanceId());
+        }
         return factory;
     }
     
-    private void configureAwsCredentials() {
-        try {
-            // Set up STS client to assume cross-account role
-            StsClient stsClient = StsClient.builder()
-                .region(Region.of(awsRegion))
-                .credentialsProvider(DefaultCredentialsProvider.create())
-                .build();
-            
-            AssumeRoleRequest assumeRoleRequest = AssumeRoleRequest.builder()
-                .roleArn(crossAccountRoleArn)
-                .roleSessionName(roleSessionName)
-                .durationSeconds(roleDurationSeconds)
-                .build();
-            
-            AssumeRoleResponse assumeRoleResponse = stsClient.assumeRole(assumeRoleRequest);
-            Credentials credentials = assumeRoleResponse.credentials();
-            
-            // Set the assumed role credentials as system properties for MSK IAM auth
-            System.setProperty("aws.accessKeyId", credentials.accessKeyId());
-            System.setProperty("aws.secretAccessKey", credentials.secretAccessKey());
-            System.setProperty("aws.sessionToken", credentials.sessionToken());
-            
-            log.info("Successfully assumed cross-account role: {}", crossAccountRoleArn);
+    // Dead-lettered records are TestMessage JSON without type headers, like the records they replace
+    @Bean
+    public ProducerFactory<String, Object> deadLetterProducerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, deadLetter.getSendTimeoutMs());
+        props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        addSecurityProperties(props);
+        return new DefaultKafkaProducerFactory<>(props, new StringSerializer(), new JsonSerializer<>());
+    }
+    
+    @Bean
+    public KafkaTemplate<String, Object> deadLetterKafkaTemplate() {
+        return new KafkaTemplate<>(deadLetterProducerFactory());
+    }
+    
+    private void addSecurityProperties(Map<String, Object> props) {
+        if (iamEnabled) {
+            // MSK IAM Authentication
+            props.put(CommonClientConfigs.SECURITY_PROTOCOL_CONFIG, "SASL_SSL");
+            props.put(SaslConfigs.SASL_MECHANISM, "AWS_MSK_IAM");
+            props.put(SaslConfigs.SASL_JAAS_CONFIG, 
+                "software.amazon.msk.auth.iam.IAMLoginModule required;");
+            props.put(SaslConfigs.SASL_CLIENT_CALLBACK_HANDLER_CLASS, MskCredentialsCallbackHandler.class);
             
-        } catch (Exception e) {
-            log.error("Failed to assume cross-account role", e);
-            throw new RuntimeException("Failed to configure cross-account access", e);
+            // Cross-account credentials come from the shared, auto-refreshing STS provider
+            props.put(MskCredentialsCallbackHandler.CREDENTIALS_PROVIDER_CONFIG, credentialsProvider.getObject());
+        } else {
+            props.put(CommonClientConfigs.SECURITY_PROTOCOL_CONFIG, "PLAINTEXT");
         }
     }
+    
+    private boolean isStaticMembership() {
+        return StringUtils.hasText(membership.getInstanceId());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.msk.consumer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "consumer.live-tail")
+@Data
+public class LiveTailProperties {
+    
+    private boolean enabled = true;
+    
+    // Most recent processed messages kept in memory for replay to new subscribers
+    private int bufferSize = 1000;
+    
+    private int maxSubscribers = 50;
+    
+    // Messages queued per subscriber before its slow-consumer policy applies
+    private int subscriberQueueSize = 1000;
+    
+    private SlowConsumerPolicy defaultPolicy = SlowConsumerPolicy.DROP_OLDEST;
+    
+    // Threads writing events to subscribers; the listener only enqueues
+    private int dispatcherThreads = 2;
+    
+    // Comment lines sent to idle streams so proxies keep them open and dead clients are detected
+    private long heartbeatIntervalMs = 15000;
+    
+    private long maxConnectionMs = 1800000;
+    
+    public enum SlowConsumerPolicy {
+        // Discard the oldest queued message to make room; the stream skips ahead
+        DROP_OLDEST,
+        // Discard the incoming message; the stream falls behind but stays contiguous up to the gap
+        DROP_NEWEST,
+        // Close the stream; the client reconnects and replays from the buffer
+        DISCONNECT
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.example.msk.consumer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "consumer.persistence")
+@Data
+public class PersistencePolicyProperties {
+    
+    // Applies to message types without an entry in messageTypes
+    private Policy defaultPolicy = new Policy();
+    
+    // Keyed by messageType
+    private Map<String, Policy> messageTypes = new HashMap<>();
+    
+    // Aggregated counts are buffered in memory and upserted at this interval; a crash loses at most one interval
+    private long aggregateFlushIntervalMs = 10000;
+    
+    private long aggregateBucketSeconds = 60;
+    
+    public enum Mode {
+        // Deduplicate and store every message with its payload
+        FULL,
+        // Deduplicate and store every message, leaving the payload column empty
+        NO_PAYLOAD,
+        // Deduplicate and store one in sampleRate messages with its payload; the rest are aggregated
+        SAMPLED,
+        // Only aggregate counts and latency per type, accounts and time bucket; no rows, no dedup
+        AGGREGATE
+    }
+    
+    @Data
+    public static class Policy {
+        
+        private Mode mode = Mode.FULL;
+        
+        private int sampleRate = 100;
+    }
+    
+    public Policy policyFor(String messageType) {
+        Policy policy = messageType != null ? messageTypes.get(messageType) : null;
+        return policy != null ? policy : defaultPolicy;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.example.msk.consumer.config;
+
+import com.example.msk.consumer.entity.ConsumedMessage;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "consumer.retention")
+@Data
+public class RetentionProperties {
+    
+    private boolean enabled = false;
+    
+    // Runs on the service's own thread, so a throttled purge never delays other scheduled jobs
+    private long intervalMs = 300000;
+    
+    private long initialDelayMs = 60000;
+    
+    // Rows deleted per transaction
+    private int chunkSize = 1000;
+    
+    // Upper bound on purge throughput across all policies
+    private int rowsPerSecond = 5000;
+    
+    // Pause purging while the listener's recent DB save latency is above this
+    private long backoffLatencyThresholdMs = 50;
+    
+    private long backoffMs = 5000;
+    
+    private int maxBackoffsPerRun = 12;
+    
+    // Copy rows into consumed_messages_archive before deleting them
+    private boolean archiveEnabled = false;
+    
+    // A row belongs to the first policy it matches, so list specific policies before catch-alls
+    private List<Policy> policies = new ArrayList<>();
+    
+    @Data
+    public static class Policy {
+        
+        private String name;
+        
+        // Null matches every message type
+        private String messageType;
+        
+        // Null matches every processing status
+        private ConsumedMessage.ProcessingStatus status;
+        
+        private Duration maxAge;
+        
+        public boolean matches(String rowMessageType, ConsumedMessage.ProcessingStatus rowStatus) {
+            return (messageType == null || messageType.equals(rowMessageType))
+                && (status == null || status == rowStatus);
+        }
+    }
+    
+    /**
+     * The policy that governs a row: the first one whose filters match it, or null if none does.
+     */
+    public Policy policyFor(String messageType, ConsumedMessage.ProcessingStatus status) {
+        for (Policy policy : policies) {
+            if (policy.matches(messageType, status)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.msk.consumer.config;
+
+import com.example.msk.consumer.model.TestMessage;
+import com.example.msk.consumer.service.ConsumerPipelineMetrics;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.Map;
+
+/**
+ * Times the wrapped value deserializer and reports it as the {@code deserialize} stage of the
+ * consumer pipeline. Failures are recorded and rethrown so the surrounding
+ * {@code ErrorHandlingDeserializer} still turns them into deserialization exceptions.
+ */
+public class TimedDeserializer<T> implements Deserializer<T> {
+    
+    private final Deserializer<T> delegate;
+    private final ConsumerPipelineMetrics pipelineMetrics;
+    
+    public TimedDeserializer(Deserializer<T> delegate, ConsumerPipelineMetrics pipelineMetrics) {
+        this.delegate = delegate;
+        this.pipelineMetrics = pipelineMetrics;
+    }
+    
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+    
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+    
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        long start = System.nanoTime();
+        try {
+            T value = headers != null ? delegate.deserialize(topic, headers, data) : delegate.deserialize(topic, data);
+            String messageType = value instanceof TestMessage message ? message.getMessageType() : null;
+            pipelineMetrics.recordDeserialization(messageType, "success", System.nanoTime() - start);
+            return value;
+        } catch (RuntimeException e) {
+            pipelineMetrics.recordDeserialization(null, "failure", System.nanoTime() - start);
+            throw e;
+        }
+    }
+    
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.example.msk.consumer.config;
+
+import org.springframework.kafka.config.KafkaListenerEndpoint;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.TopicPartitionOffset;
+import org.springframework.kafka.support.converter.MessageConverter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Programmatic listener endpoint for one topic, registered with the
+ * {@code KafkaListenerEndpointRegistry} at runtime. The container is built by the shared
+ * {@code kafkaListenerContainerFactory}, so it gets the same consumer factory, deserializers and
+ * manual acknowledgement mode as the annotated default-topic listener.
+ */
+public class TopicListenerEndpoint implements KafkaListenerEndpoint {
+    
+    private final String id;
+    private final String topic;
+    private final String groupId;
+    private final int concurrency;
+    private final MessageListener<String, Object> listener;
+    
+    public TopicListenerEndpoint(String id, String topic, String groupId, int concurrency,
+                                 MessageListener<String, Object> listener) {
+        this.id = id;
+        this.topic = topic;
+        this.groupId = groupId;
+        this.concurrency = concurrency;
+        this.listener = listener;
+    }
+    
+    @Override
+    public String getId() {
+        return id;
+    }
+    
+    @Override
+    public String getGroupId() {
+        return groupId;
+    }
+    
+    @Override
+    public String getGroup() {
+        return null;
+    }
+    
+    @Override
+    public Collection<String> getTopics() {
+        return List.of(topic);
+    }
+    
+    @Override
+    public TopicPartitionOffset[] getTopicPartitionsToAssign() {
+        return new TopicPartitionOffset[0];
+    }
+    
+    @Override
+    public Pattern getTopicPattern() {
+        return null;
+    }
+    
+    @Override
+    public String getClientIdPrefix() {
+        return id;
+    }
+    
+    @Override
+    public Integer getConcurrency() {
+        return concurrency;
+    }
+    
+    @Override
+    public Boolean getAutoStartup() {
+        return true;
+    }
+    
+    @Override
+    public void setupListenerContainer(MessageListenerContainer listenerContainer, MessageConverter messageConverter) {
+        listenerContainer.setupMessageListener(listener);
+    }
+    
+    @Override
+    public boolean isSplitIterables() {
+        return true;
+    }
+}
\ No newline at end of file
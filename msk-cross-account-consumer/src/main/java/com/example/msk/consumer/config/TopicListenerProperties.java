@@ -0,0 +1,42 @@
+package com.example.msk.consumer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "consumer.topic-listeners")
+@Data
+public class TopicListenerProperties {
+    
+    // Upper bound on listener containers registered next to the default topic's listener
+    private int maxListeners = 50;
+    
+    private int maxConcurrency = 10;
+    
+    // Registered at startup; more can be added at runtime through the topics API
+    private List<Topic> topics = new ArrayList<>();
+    
+    public enum Persistence {
+        // Deduplicate and store every message, like the default topic
+        FULL,
+        // Acknowledge and count only; for topics that are just connectivity-checked
+        NONE
+    }
+    
+    @Data
+    public static class Topic {
+        
+        private String topic;
+        
+        private int concurrency = 1;
+        
+        private Persistence persistence = Persistence.FULL;
+        
+        // Null uses spring.kafka.consumer.group-id
+        private String groupId;
+    }
+}
\ No newline at end of file
@@ -1,11 +1,26 @@
 package com.example.msk.consumer.controller;
 
+import com.example.msk.common.tracing.LocalSpanExporter;
+import com.example.msk.consumer.config.LiveTailProperties;
+import com.example.msk.consumer.dto.BatchVerificationResponse;
 import com.example.msk.consumer.dto.ConsumedMessageDTO;
 import com.example.msk.consumer.dto.ConsumerStatusResponse;
 import com.example.msk.consumer.dto.MessageQueryRequest;
 import com.example.msk.consumer.entity.ConsumedMessage;
+import com.example.msk.consumer.entity.MessageAggregate;
+import com.example.msk.consumer.model.ClaimCheck;
 import com.example.msk.consumer.repository.ConsumedMessageRepository;
+import com.example.msk.consumer.service.AdaptiveConcurrencyService;
+import com.example.msk.consumer.service.BatchVerificationService;
+import com.example.msk.consumer.service.CanaryMonitorService;
+import com.example.msk.consumer.service.ClaimCheckService;
+import com.example.msk.consumer.service.ConsumedMessageMapper;
+import com.example.msk.consumer.service.ConsumerRebalanceMetrics;
+import com.example.msk.consumer.service.LiveTailService;
+import com.example.msk.consumer.service.MessageAggregationService;
 import com.example.msk.consumer.service.MessageConsumerService;
+import com.example.msk.consumer.service.MessageExportService;
+import com.example.msk.consumer.service.TenantFairShareService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -16,8 +31,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -35,6 +54,16 @@ public class ConsumerController {
     
     private final MessageConsumerService consumerService;
     private final ConsumedMessageRepository repository;
+    private final MessageExportService exportService;
+    private final BatchVerificationService verificationService;
+    private final ClaimCheckService claimCheckService;
+    private final AdaptiveConcurrencyService adaptiveConcurrencyService;
+    private final LiveTailService liveTailService;
+    private final ConsumerRebalanceMetrics rebalanceMetrics;
+    private final CanaryMonitorService canaryMonitor;
+    private final LocalSpanExporter spanExporter;
+    private final MessageAggregationService aggregationService;
+    private final TenantFairShareService fairShare;
     
     @Value("${spring.kafka.consumer.group-id}")
     private String consumerGroup;
@@ -106,6 +135,12 @@ public class ConsumerController {
             repository.countMessagesConsumedSince(Instant.now().minus(1, ChronoUnit.HOURS)));
         metrics.put("messagesLast24Hours", 
             repository.countMessagesConsumedSince(Instant.now().minus(24, ChronoUnit.HOURS)));
+        metrics.put("adaptiveConcurrency", adaptiveConcurrencyService.getDetails());
+        metrics.put("liveTailSubscribers", liveTailService.getSubscriberCount());
+        metrics.put("rebalances", rebalanceMetrics.getDetails());
+        metrics.put("canary", canaryMonitor.getDetails());
+        metrics.put("persistence", aggregationService.getDetails());
+        metrics.put("fairShare", fairShare.getDetails());
         
         return ResponseEntity.ok(metrics);
     }
@@ -160,7 +195,7 @@ public class ConsumerController {
             messages = repository.findAll(pageRequest);
         }
         
-        Page<ConsumedMessageDTO> dtoPage = messages.map(this::toDTO);
+        Page<ConsumedMessageDTO> dtoPage = messages.map(ConsumedMessageMapper::toDTO);
         return ResponseEntity.ok(dtoPage);
     }
     
@@ -173,11 +208,110 @@ public class ConsumerController {
     public ResponseEntity<List<ConsumedMessageDTO>> getRecentMessages() {
         List<ConsumedMessage> recentMessages = repository.findTop100ByOrderByConsumedTimestampDesc();
         List<ConsumedMessageDTO> dtos = recentMessages.stream()
-            .map(this::toDTO)
+            .map(ConsumedMessageMapper::toDTO)
             .collect(Collectors.toList());
         return ResponseEntity.ok(dtos);
     }
     
+    @GetMapping("/aggregates")
+    @Operation(summary = "Get message aggregates",
+        description = "Returns per-bucket counts and latency for message types whose persistence policy aggregates "
+            + "instead of storing every message; the current bucket appears after the next flush. Counts are "
+            + "not idempotent: messages are acknowledged before their bucket is flushed, so a consumer crash "
+            + "can lose up to one flush interval of counts, and messages redelivered after a rebalance or "
+            + "restart are counted again")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Aggregates retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid time range")
+    })
+    public ResponseEntity<List<MessageAggregate>> getAggregates(
+            @RequestParam(required = false) String messageType,
+            @RequestParam(defaultValue = "1") Integer hours) {
+        if (hours < 1 || hours > 24 * 31) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(aggregationService.findSince(messageType, Instant.now().minus(hours, ChronoUnit.HOURS)));
+    }
+    
+    @GetMapping("/messages/export")
+    @Operation(summary = "Export consumed messages", 
+        description = "Streams all messages consumed in a time range as NDJSON or CSV, optionally gzipped")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export streamed successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid format or time range")
+    })
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @RequestParam Instant startTime,
+            @RequestParam Instant endTime,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        MessageExportService.ExportFormat exportFormat;
+        try {
+            exportFormat = MessageExportService.ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!startTime.isBefore(endTime)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        log.info("Export requested - Range: {} to {}, Format: {}, Gzip: {}", 
+            startTime, endTime, exportFormat, gzip);
+        
+        String fileName = "consumed-messages." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> exportService.export(startTime, endTime, exportFormat, gzip, out);
+        
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+            .contentType(gzip ? MediaType.parseMediaType("application/gzip") 
+                : MediaType.parseMediaType(exportFormat.getContentType()))
+            .body(body);
+    }
+    
+    @GetMapping(value = "/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream consumed messages", 
+        description = "Server-sent events for messages as the listener processes them, served from memory without "
+            + "database reads. Optionally replays the most recent buffered messages first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stream opened"),
+        @ApiResponse(responseCode = "400", description = "Invalid slow-consumer policy"),
+        @ApiResponse(responseCode = "404", description = "Live tail is disabled"),
+        @ApiResponse(responseCode = "503", description = "Subscriber limit reached")
+    })
+    public ResponseEntity<SseEmitter> streamMessages(
+            @RequestParam(required = false) String messageType,
+            @RequestParam(required = false) String batchId,
+            @RequestParam(required = false) String sourceAccount,
+            @RequestParam(defaultValue = "0") int replay,
+            @RequestParam(required = false) String policy) {
+        
+        if (!liveTailService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        LiveTailProperties.SlowConsumerPolicy slowConsumerPolicy = null;
+        if (policy != null) {
+            try {
+                slowConsumerPolicy = LiveTailProperties.SlowConsumerPolicy.valueOf(policy.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        
+        try {
+            SseEmitter emitter = liveTailService.subscribe(
+                new LiveTailService.Filter(messageType, batchId, sourceAccount), slowConsumerPolicy, replay,
+                ConsumedMessageMapper::toDTO);
+            return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+        } catch (IllegalStateException e) {
+            log.warn("Live-tail subscription rejected - {}", e.getMessage());
+            return ResponseEntity.status(503).build();
+        }
+    }
+    
     @GetMapping("/messages/{messageId}")
     @Operation(summary = "Get message by ID", 
         description = "Returns a specific consumed message by its ID")
@@ -187,11 +321,75 @@ public class ConsumerController {
     })
     public ResponseEntity<ConsumedMessageDTO> getMessageById(@PathVariable String messageId) {
         return repository.findByMessageId(messageId)
-            .map(this::toDTO)
+            .map(ConsumedMessageMapper::toDTO)
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
     
+    @GetMapping(value = "/messages/{messageId}/payload", produces = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(summary = "Get message payload", 
+        description = "Returns the payload of a consumed message, fetching it from the blob store if it was offloaded")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Payload returned"),
+        @ApiResponse(responseCode = "404", description = "Message not found"),
+        @ApiResponse(responseCode = "502", description = "Offloaded payload could not be read or failed verification")
+    })
+    public ResponseEntity<String> getMessagePayload(@PathVariable String messageId) {
+        ConsumedMessage message = repository.findByMessageId(messageId).orElse(null);
+        if (message == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Map<String, Object> stored = message.getPayload();
+        ClaimCheck claimCheck = claimCheckService.fromStoredPayload(stored);
+        if (claimCheck == null || stored.get("payload") != null) {
+            return ResponseEntity.ok(stored != null ? (String) stored.get("payload") : null);
+        }
+        
+        try {
+            return ResponseEntity.ok(claimCheckService.resolve(claimCheck));
+        } catch (RuntimeException e) {
+            log.error("Failed to resolve claim check {} for message {}", claimCheck.getUri(), messageId, e);
+            return ResponseEntity.status(502).build();
+        }
+    }
+    
+    @GetMapping("/batches/{batchId}/verify")
+    @Operation(summary = "Verify batch completeness", 
+        description = "Reports missing sequence ranges, duplicates, per-partition ordering and latency spread for a batch")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch verified"),
+        @ApiResponse(responseCode = "400", description = "Invalid expected count"),
+        @ApiResponse(responseCode = "404", description = "No messages found for batch")
+    })
+    public ResponseEntity<BatchVerificationResponse> verifyBatch(
+            @PathVariable String batchId,
+            @RequestParam(required = false) Long expectedCount) {
+        
+        if (expectedCount != null && (expectedCount < 1 || expectedCount > Integer.MAX_VALUE)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        BatchVerificationResponse response = verificationService.verifyBatch(batchId, expectedCount);
+        if ("NOT_FOUND".equals(response.getStatus())) {
+            return ResponseEntity.status(404).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/traces/{traceId}")
+    @Operation(summary = "Get the consumer's spans of a trace",
+        description = "Returns the spans this consumer recorded for a sampled trace, from its in-memory span buffer; "
+            + "the producer serves its side of the same trace")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Spans retrieved successfully"),
+        @ApiResponse(responseCode = "404", description = "Trace not sampled or no longer buffered")
+    })
+    public ResponseEntity<List<Map<String, Object>>> getTrace(@PathVariable String traceId) {
+        List<Map<String, Object>> spans = spanExporter.getTrace(traceId);
+        return spans.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(spans);
+    }
+    
     @GetMapping("/health")
     @Operation(summary = "Health check", 
         description = "Check if the consumer service is healthy")
@@ -201,24 +399,4 @@ public class ConsumerController {
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Consumer service is healthy");
     }
-    
-    private ConsumedMessageDTO toDTO(ConsumedMessage entity) {
-        return ConsumedMessageDTO.builder()
-            .id(entity.getId())
-            .messageId(entity.getMessageId())
-            .originalTimestamp(entity.getOriginalTimestamp())
-            .consumedTimestamp(entity.getConsumedTimestamp())
-            .sourceAccount(entity.getSourceAccount())
-            .targetAccount(entity.getTargetAccount())
-            .messageType(entity.getMessageType())
-            .payload(entity.getPayload())
-            .batchId(entity.getBatchId())
-            .sequenceNumber(entity.getSequenceNumber())
-            .processingDurationMs(entity.getProcessingDurationMs())
-            .kafkaPartition(entity.getKafkaPartition())
-            .kafkaOffset(entity.getKafkaOffset())
-            .processingStatus(entity.getProcessingStatus().toString())
-            .errorMessage(entity.getErrorMessage())
-            .build();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package com.example.msk.consumer.controller;
+
+import com.example.msk.consumer.config.TopicListenerProperties;
+import com.example.msk.consumer.dto.TopicListenerRequest;
+import com.example.msk.consumer.dto.TopicListenerStatus;
+import com.example.msk.consumer.service.TopicListenerService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/consumer/topics")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "MSK Consumer Topics", description = "Endpoints for consuming additional topics at runtime")
+public class TopicListenerController {
+    
+    private final TopicListenerService topicListenerService;
+    
+    @GetMapping
+    @Operation(summary = "List topic listeners", 
+        description = "Returns every listener container with its topic, group, concurrency and assignment")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Listeners retrieved successfully")
+    })
+    public ResponseEntity<List<TopicListenerStatus>> listTopics() {
+        return ResponseEntity.ok(topicListenerService.list());
+    }
+    
+    @PostMapping
+    @Operation(summary = "Consume a topic", 
+        description = "Registers and starts a listener container for an additional topic")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Listener started"),
+        @ApiResponse(responseCode = "400", description = "Invalid topic settings"),
+        @ApiResponse(responseCode = "409", description = "Topic already consumed or listener limit reached")
+    })
+    public ResponseEntity<TopicListenerStatus> registerTopic(@Valid @RequestBody TopicListenerRequest request) {
+        TopicListenerProperties.Topic topic = new TopicListenerProperties.Topic();
+        topic.setTopic(request.getTopic());
+        topic.setConcurrency(request.getConcurrency());
+        topic.setPersistence(request.getPersistence());
+        topic.setGroupId(request.getGroupId());
+        
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(topicListenerService.register(topic));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected listener for topic {}: {}", request.getTopic(), e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Rejected listener for topic {}: {}", request.getTopic(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
+    @DeleteMapping("/{topic}")
+    @Operation(summary = "Stop consuming a topic", 
+        description = "Stops and removes a listener registered through this API or consumer.topic-listeners")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Listener stopped"),
+        @ApiResponse(responseCode = "404", description = "No such listener")
+    })
+    public ResponseEntity<Void> unregisterTopic(@PathVariable String topic) {
+        return topicListenerService.unregister(topic)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+}
\ No newline at end of file
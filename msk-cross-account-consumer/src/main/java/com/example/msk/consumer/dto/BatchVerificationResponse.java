@@ -0,0 +1,84 @@
+package com.example.msk.consumer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Completeness, ordering and latency report for a producer batch")
+public class BatchVerificationResponse {
+    
+    @Schema(description = "Batch ID")
+    private String batchId;
+    
+    @Schema(description = "Verification result (COMPLETE, INCOMPLETE, NOT_FOUND)")
+    private String status;
+    
+    @Schema(description = "Expected number of messages (request parameter or highest sequence seen)")
+    private Long expectedCount;
+    
+    @Schema(description = "Number of stored rows for the batch")
+    private Long receivedCount;
+    
+    @Schema(description = "Number of distinct sequence numbers received")
+    private Long distinctSequences;
+    
+    @Schema(description = "Number of sequence numbers missing from 1..expectedCount")
+    private Long missingCount;
+    
+    @Schema(description = "Missing sequence ranges, e.g. 15-20")
+    private List<String> missingRanges;
+    
+    @Schema(description = "True if more missing ranges exist than were listed")
+    private Boolean missingRangesTruncated;
+    
+    @Schema(description = "Number of rows whose sequence number had already been seen")
+    private Long duplicateCount;
+    
+    @Schema(description = "Number of distinct sequence numbers above expectedCount")
+    private Long unexpectedSequenceCount;
+    
+    @Schema(description = "Rows without a sequence number")
+    private Long unsequencedCount;
+    
+    @Schema(description = "Messages received per partition")
+    private Map<Integer, Long> partitionCounts;
+    
+    @Schema(description = "Out-of-order deliveries per partition (sequence lower than its predecessor in offset order)")
+    private Map<Integer, Long> outOfOrderByPartition;
+    
+    @Schema(description = "Minimum end-to-end latency in milliseconds")
+    private Long latencyMinMs;
+    
+    @Schema(description = "Median end-to-end latency in milliseconds")
+    private Long latencyP50Ms;
+    
+    @Schema(description = "95th percentile end-to-end latency in milliseconds")
+    private Long latencyP95Ms;
+    
+    @Schema(description = "99th percentile end-to-end latency in milliseconds")
+    private Long latencyP99Ms;
+    
+    @Schema(description = "Maximum end-to-end latency in milliseconds")
+    private Long latencyMaxMs;
+    
+    @Schema(description = "Average end-to-end latency in milliseconds")
+    private Double latencyAvgMs;
+    
+    @Schema(description = "Rows whose consumed timestamp precedes the original timestamp (clock skew)")
+    private Long clockSkewCount;
+    
+    @Schema(description = "Serialized size of the sequence bitmap in bytes")
+    private Integer bitmapSizeBytes;
+    
+    @Schema(description = "Time spent verifying in milliseconds")
+    private Long verificationDurationMs;
+}
\ No newline at end of file
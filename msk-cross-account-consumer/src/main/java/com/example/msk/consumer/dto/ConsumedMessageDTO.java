@@ -49,6 +49,9 @@ public class ConsumedMessageDTO {
     @Schema(description = "Processing duration in milliseconds")
     private Long processingDurationMs;
     
+    @Schema(description = "Kafka topic")
+    private String topic;
+    
     @Schema(description = "Kafka partition")
     private Integer kafkaPartition;
     
@@ -0,0 +1,29 @@
+package com.example.msk.consumer.dto;
+
+import com.example.msk.consumer.config.TopicListenerProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+@Data
+@Schema(description = "Request to start consuming an additional topic")
+public class TopicListenerRequest {
+    
+    @Schema(description = "Topic to consume", example = "account-c-connectivity-test")
+    @NotBlank(message = "Topic cannot be blank")
+    @Pattern(regexp = "[a-zA-Z0-9._-]{1,249}", message = "Invalid topic name")
+    private String topic;
+    
+    @Schema(description = "Number of consumer threads for the topic", example = "1")
+    @Min(value = 1, message = "Concurrency must be at least 1")
+    private Integer concurrency = 1;
+    
+    @Schema(description = "FULL stores every message; NONE only acknowledges and counts them", example = "FULL")
+    private TopicListenerProperties.Persistence persistence = TopicListenerProperties.Persistence.FULL;
+    
+    @Schema(description = "Consumer group; defaults to the consumer's configured group")
+    @Pattern(regexp = "[a-zA-Z0-9._-]{1,249}", message = "Invalid group ID")
+    private String groupId;
+}
\ No newline at end of file
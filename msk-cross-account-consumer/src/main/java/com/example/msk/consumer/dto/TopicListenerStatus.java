@@ -0,0 +1,39 @@
+package com.example.msk.consumer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Listener container consuming one topic")
+public class TopicListenerStatus {
+    
+    @Schema(description = "Consumed topic")
+    private String topic;
+    
+    @Schema(description = "Listener container ID")
+    private String listenerId;
+    
+    @Schema(description = "Consumer group")
+    private String groupId;
+    
+    @Schema(description = "Number of consumer threads")
+    private Integer concurrency;
+    
+    @Schema(description = "Persistence mode", allowableValues = {"FULL", "NONE"})
+    private String persistence;
+    
+    @Schema(description = "Where the listener came from", allowableValues = {"DEFAULT", "CONFIGURED", "RUNTIME"})
+    private String source;
+    
+    @Schema(description = "Whether the container is running")
+    private Boolean running;
+    
+    @Schema(description = "Partitions currently assigned to the container")
+    private Integer assignedPartitions;
+}
\ No newline at end of file
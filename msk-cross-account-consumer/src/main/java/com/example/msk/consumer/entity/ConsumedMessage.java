@@ -58,6 +58,9 @@ public class ConsumedMessage {
     @Column(name = "processing_duration_ms")
     private Long processingDurationMs;
     
+    @Column(name = "topic")
+    private String topic;
+    
     @Column(name = "kafka_partition")
     private Integer kafkaPartition;
     
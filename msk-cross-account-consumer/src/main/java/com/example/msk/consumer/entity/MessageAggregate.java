@@ -0,0 +1,55 @@
+package com.example.msk.consumer.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Message count and latency per message type, account pair and time bucket, for message types whose
+ * persistence policy does not store every message as a row.
+ */
+@Entity
+@Table(name = "message_aggregates", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_message_aggregates_bucket",
+        columnNames = {"message_type", "source_account", "target_account", "bucket_start"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageAggregate {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "message_type", length = 100, nullable = false)
+    private String messageType;
+    
+    // Empty rather than null, so the unique constraint also matches messages without accounts
+    @Column(name = "source_account", length = 50, nullable = false)
+    private String sourceAccount;
+    
+    @Column(name = "target_account", length = 50, nullable = false)
+    private String targetAccount;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+    
+    @Column(name = "message_count", nullable = false)
+    private Long messageCount;
+    
+    // End-to-end latency from the producer's timestamp to consumption
+    @Column(name = "latency_sum_ms", nullable = false)
+    private Long latencySumMs;
+    
+    @Column(name = "latency_max_ms", nullable = false)
+    private Long latencyMaxMs;
+    
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
\ No newline at end of file
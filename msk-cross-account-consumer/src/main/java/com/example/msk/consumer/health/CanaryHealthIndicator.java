@@ -0,0 +1,31 @@
+package com.example.msk.consumer.health;
+
+import com.example.msk.consumer.service.CanaryMonitorService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Reports DOWN while any watched partition's canary probes are missing, late or stale, and UNKNOWN
+ * before any partition is watched. Not part of the liveness or readiness groups: a degraded
+ * cross-account path is an alert, not a reason to restart or drain the consumer.
+ */
+@Component("canary")
+@RequiredArgsConstructor
+public class CanaryHealthIndicator implements HealthIndicator {
+    
+    private final CanaryMonitorService canaryMonitor;
+    
+    @Override
+    public Health health() {
+        Map<String, Object> details = canaryMonitor.getDetails();
+        if (!canaryMonitor.isEnabled() || !canaryMonitor.hasPartitions()) {
+            return Health.unknown().withDetails(details).build();
+        }
+        Health.Builder builder = (Integer) details.get("unhealthyPartitions") > 0 ? Health.down() : Health.up();
+        return builder.withDetails(details).build();
+    }
+}
\ No newline at end of file
@@ -11,11 +11,18 @@ import java.time.Instant;
 @NoArgsConstructor
 @AllArgsConstructor
 public class TestMessage {
+    // Synthetic records sent by producers during startup warm-up; acknowledged without being persisted
+    public static final String WARMUP_MESSAGE_TYPE = "warmup";
+    // Round-trip probes sent by producers at a fixed rate; measured by CanaryMonitorService, never persisted
+    public static final String CANARY_MESSAGE_TYPE = "canary";
+    
     private String messageId;
     private Instant timestamp;
     private String sourceAccount;
     private String targetAccount;
+    // Null when the payload was offloaded; see claimCheck
     private String payload;
+    private ClaimCheck claimCheck;
     private String messageType;
     private String batchId;
     private Integer sequenceNumber;
@@ -1,43 +1,107 @@
 package com.example.msk.consumer.repository;
 
 import com.example.msk.consumer.entity.ConsumedMessage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ConsumedMessageRepository extends JpaRepository<ConsumedMessage, Long> {
     
+    String ARCHIVE_COLUMNS = "id, message_id, original_timestamp, consumed_timestamp, source_account, " +
+        "target_account, message_type, payload, batch_id, sequence_number, processing_duration_ms, " +
+        "kafka_partition, kafka_offset, consumer_group, processing_status, error_message, retry_count, topic";
+    
+    // Reporting queries are read-only so they are routed to the read datasource.
+    // existsByMessageId stays on the listener's read-write transaction (primary).
+    @Transactional(readOnly = true)
     Optional<ConsumedMessage> findByMessageId(String messageId);
     
     boolean existsByMessageId(String messageId);
     
+    @Transactional(readOnly = true)
     List<ConsumedMessage> findByBatchId(String batchId);
     
+    @Transactional(readOnly = true)
     Page<ConsumedMessage> findByConsumedTimestampBetween(
         Instant start, Instant end, Pageable pageable);
     
+    @Transactional(readOnly = true)
     Page<ConsumedMessage> findByProcessingStatus(
         ConsumedMessage.ProcessingStatus status, Pageable pageable);
     
+    @Transactional(readOnly = true)
     @Query("SELECT COUNT(c) FROM ConsumedMessage c WHERE c.consumedTimestamp >= :start")
     Long countMessagesConsumedSince(@Param("start") Instant start);
     
+    @Transactional(readOnly = true)
     @Query("SELECT AVG(c.processingDurationMs) FROM ConsumedMessage c WHERE c.consumedTimestamp >= :start")
     Double getAverageProcessingTimeSince(@Param("start") Instant start);
     
+    @Transactional(readOnly = true)
     @Query("SELECT c.messageType, COUNT(c) FROM ConsumedMessage c GROUP BY c.messageType")
     List<Object[]> getMessageTypeDistribution();
     
+    @Transactional(readOnly = true)
     @Query("SELECT c.processingStatus, COUNT(c) FROM ConsumedMessage c GROUP BY c.processingStatus")
     List<Object[]> getProcessingStatusDistribution();
     
+    @Transactional(readOnly = true)
     List<ConsumedMessage> findTop100ByOrderByConsumedTimestampDesc();
+    
+    // Server-side cursor for exports - must be consumed inside a read-only transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT c FROM ConsumedMessage c WHERE c.consumedTimestamp >= :start " +
+           "AND c.consumedTimestamp < :end ORDER BY c.consumedTimestamp, c.id")
+    Stream<ConsumedMessage> streamByConsumedTimestampBetween(
+        @Param("start") Instant start, @Param("end") Instant end);
+    
+    // Scalar projection used by batch verification - no entities are materialized
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c.kafkaPartition, c.sequenceNumber, c.originalTimestamp, c.consumedTimestamp " +
+           "FROM ConsumedMessage c WHERE c.batchId = :batchId ORDER BY c.kafkaPartition, c.kafkaOffset")
+    Stream<Object[]> streamSequenceInfoByBatchId(@Param("batchId") String batchId);
+    
+    // Retention: select the next chunk of expired rows matching a policy's filters, with the
+    // columns needed to tell whether an earlier policy owns them, then archive/delete those ids
+    @Query("SELECT c.id, c.messageType, c.processingStatus FROM ConsumedMessage c " +
+           "WHERE c.id > :afterId AND c.consumedTimestamp < :cutoff " +
+           "AND (:messageType IS NULL OR c.messageType = :messageType) " +
+           "AND (:status IS NULL OR c.processingStatus = :status) ORDER BY c.id")
+    List<Object[]> findExpiredCandidates(@Param("afterId") Long afterId, @Param("cutoff") Instant cutoff,
+                                         @Param("messageType") String messageType,
+                                         @Param("status") ConsumedMessage.ProcessingStatus status,
+                                         Pageable pageable);
+    
+    // Columns are listed on both sides so the copy does not depend on either table's column order
+    @Modifying
+    @Query(value = "INSERT INTO consumed_messages_archive (" + ARCHIVE_COLUMNS + ") " +
+                   "SELECT " + ARCHIVE_COLUMNS + " FROM consumed_messages " +
+                   "WHERE id IN (:ids) AND consumed_timestamp < :cutoff " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int archiveExpired(@Param("ids") List<Long> ids, @Param("cutoff") Instant cutoff);
+    
+    @Modifying
+    @Query("DELETE FROM ConsumedMessage c WHERE c.id IN :ids AND c.consumedTimestamp < :cutoff")
+    int deleteExpired(@Param("ids") List<Long> ids, @Param("cutoff") Instant cutoff);
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.example.msk.consumer.repository;
+
+import com.example.msk.consumer.entity.MessageAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface MessageAggregateRepository extends JpaRepository<MessageAggregate, Long> {
+    
+    // Adds to the bucket's row, so consumers sharing the topic can flush the same bucket
+    @Modifying
+    @Query(value = "INSERT INTO message_aggregates (message_type, source_account, target_account, bucket_start, "
+        + "message_count, latency_sum_ms, latency_max_ms, updated_at) "
+        + "VALUES (:messageType, :sourceAccount, :targetAccount, :bucketStart, :count, :latencySumMs, :latencyMaxMs, :now) "
+        + "ON CONFLICT (message_type, source_account, target_account, bucket_start) DO UPDATE SET "
+        + "message_count = message_aggregates.message_count + EXCLUDED.message_count, "
+        + "latency_sum_ms = message_aggregates.latency_sum_ms + EXCLUDED.latency_sum_ms, "
+        + "latency_max_ms = GREATEST(message_aggregates.latency_max_ms, EXCLUDED.latency_max_ms), "
+        + "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    void upsert(@Param("messageType") String messageType,
+                @Param("sourceAccount") String sourceAccount,
+                @Param("targetAccount") String targetAccount,
+                @Param("bucketStart") Instant bucketStart,
+                @Param("count") long count,
+                @Param("latencySumMs") long latencySumMs,
+                @Param("latencyMaxMs") long latencyMaxMs,
+                @Param("now") Instant now);
+    
+    @Transactional(readOnly = true)
+    List<MessageAggregate> findByBucketStartGreaterThanEqualOrderByBucketStartDesc(Instant since);
+    
+    @Transactional(readOnly = true)
+    List<MessageAggregate> findByMessageTypeAndBucketStartGreaterThanEqualOrderByBucketStartDesc(
+        String messageType, Instant since);
+}
\ No newline at end of file
@@ -0,0 +1,337 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.AdaptiveConcurrencyProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the default-topic listener container at runtime. Every interval it samples the partition
+ * lag of this instance's consumers, the smoothed per-record processing latency and the primary
+ * Hikari pool, then:
+ * <ul>
+ *   <li>pauses fetching while Postgres is saturated, and resumes once nothing waits for a connection;</li>
+ *   <li>sheds a consumer while saves are slow, since more concurrent writers would only queue on the pool;</li>
+ *   <li>adds a consumer while the lag would take longer than {@code target-drain-seconds} to drain;</li>
+ *   <li>removes one after the lag has stayed drainable with one consumer fewer for several samples.</li>
+ * </ul>
+ * The container's concurrency can only change across a restart, so resizes are rate limited. The
+ * restart, the static-member removal and the partition lookups block for seconds, so evaluations run
+ * on the service's own thread rather than the shared scheduler.
+ */
+@Service
+@Slf4j
+public class AdaptiveConcurrencyService {
+    
+    private static final String PRIMARY_POOL = "primary-pool";
+    private static final String FETCH_METRICS_GROUP = "consumer-fetch-manager-metrics";
+    
+    public enum Action {
+        SCALE_UP, SCALE_DOWN, PAUSE, RESUME
+    }
+    
+    public record Decision(Instant at, Action action, int fromConcurrency, int toConcurrency, String reason) {
+    }
+    
+    private record Sample(long lag, long processed, double processingLatencyMs, double saveLatencyMs,
+                          int poolActive, int poolWaiting, int poolSize) {
+    }
+    
+    private final KafkaListenerEndpointRegistry registry;
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final MessageConsumerService messageConsumerService;
+    private final StaticMembershipService staticMembershipService;
+    private final ConsumerPipelineMetrics pipelineMetrics;
+    private final AdaptiveConcurrencyProperties properties;
+    private final List<HikariDataSource> dataSources;
+    private final MeterRegistry meterRegistry;
+    private final Map<Action, Counter> decisionCounters = new ConcurrentHashMap<>();
+    private final Deque<Decision> decisions = new ArrayDeque<>();
+    
+    @Value("${aws.msk.topic-name}")
+    private String topicName;
+    
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+    
+    private volatile Sample lastSample;
+    private volatile boolean paused;
+    private volatile int partitionCount;
+    private volatile Instant partitionsRefreshedAt;
+    private volatile Instant lastResizeAt = Instant.EPOCH;
+    private int scaleDownStreak;
+    private ScheduledExecutorService executor;
+    
+    public AdaptiveConcurrencyService(KafkaListenerEndpointRegistry registry,
+                                      ConsumerFactory<String, Object> consumerFactory,
+                                      MessageConsumerService messageConsumerService,
+                                      StaticMembershipService staticMembershipService,
+                                      ConsumerPipelineMetrics pipelineMetrics,
+                                      AdaptiveConcurrencyProperties properties,
+                                      List<HikariDataSource> dataSources,
+                                      MeterRegistry meterRegistry) {
+        this.registry = registry;
+        this.consumerFactory = consumerFactory;
+        this.messageConsumerService = messageConsumerService;
+        this.staticMembershipService = staticMembershipService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.properties = properties;
+        this.dataSources = dataSources;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("consumer.concurrency.active", this, service -> {
+                ConcurrentMessageListenerContainer<?, ?> container = service.container();
+                return container != null ? container.getConcurrency() : 0;
+            })
+            .description("Consumers in the default-topic listener container")
+            .register(meterRegistry);
+        Gauge.builder("consumer.concurrency.paused", this, service -> service.paused ? 1 : 0)
+            .description("1 while fetching is paused because Postgres is the bottleneck")
+            .register(meterRegistry);
+        Gauge.builder("consumer.lag", this, service -> service.lastSample != null ? service.lastSample.lag() : 0)
+            .description("Records behind the log end across this instance's assigned partitions")
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "adaptive-concurrency");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::evaluate, properties.getInitialDelayMs(), properties.getIntervalMs(),
+            TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    public void evaluate() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        ConcurrentMessageListenerContainer<?, ?> container = container();
+        if (container == null || !container.isRunning()) {
+            return;
+        }
+        try {
+            Sample previous = lastSample;
+            Sample sample = sample(container);
+            lastSample = sample;
+            // The smoothed latencies only move when records are processed; ignore them once stale
+            boolean fresh = previous == null || sample.processed() > previous.processed();
+            decide(container, sample, fresh ? sample.saveLatencyMs() : 0);
+        } catch (Exception e) {
+            log.warn("Adaptive concurrency evaluation failed: {}", e.getMessage());
+        }
+    }
+    
+    private void decide(ConcurrentMessageListenerContainer<?, ?> container, Sample sample, double saveLatencyMs) {
+        int current = container.getConcurrency();
+        boolean poolSaturated = sample.poolWaiting() >= Math.max(1, sample.poolSize() * properties.getPauseWaitingRatio());
+        
+        if (paused) {
+            // The save latency is stale while paused; resume as soon as the pool has drained
+            if (sample.poolWaiting() == 0) {
+                container.resume();
+                paused = false;
+                record(Action.RESUME, current, current, "no threads waiting for a primary-pool connection");
+            }
+            return;
+        }
+        
+        if (saveLatencyMs > properties.getPauseLatencyThresholdMs() || poolSaturated) {
+            container.pause();
+            paused = true;
+            record(Action.PAUSE, current, current, String.format("save latency %.1fms, %d threads waiting for %d connections",
+                saveLatencyMs, sample.poolWaiting(), sample.poolSize()));
+            return;
+        }
+        
+        boolean dbBottleneck = saveLatencyMs > properties.getDbLatencyThresholdMs() || sample.poolWaiting() > 0;
+        if (dbBottleneck) {
+            scaleDownStreak = 0;
+            if (current > properties.getMinConcurrency() && cooledDown()) {
+                resize(container, current - 1, Action.SCALE_DOWN, String.format(
+                    "Postgres is the bottleneck: save latency %.1fms, %d threads waiting",
+                    saveLatencyMs, sample.poolWaiting()));
+            }
+            return;
+        }
+        
+        if (sample.processingLatencyMs() <= 0) {
+            return;
+        }
+        double drainSeconds = drainSeconds(sample, current);
+        int ceiling = ceiling(sample);
+        if (drainSeconds > properties.getTargetDrainSeconds()) {
+            scaleDownStreak = 0;
+            if (current < ceiling && cooledDown()) {
+                resize(container, current + 1, Action.SCALE_UP, String.format(
+                    "lag %d would take %.0fs to drain at %.1fms per record (target %ds)",
+                    sample.lag(), drainSeconds, sample.processingLatencyMs(), properties.getTargetDrainSeconds()));
+            }
+        } else if (current > properties.getMinConcurrency()
+                && drainSeconds(sample, current - 1) < properties.getIdleDrainSeconds()) {
+            if (++scaleDownStreak >= properties.getScaleDownSamples() && cooledDown()) {
+                scaleDownStreak = 0;
+                resize(container, current - 1, Action.SCALE_DOWN, String.format(
+                    "lag %d drains within %ds with %d consumers", sample.lag(), properties.getIdleDrainSeconds(), current - 1));
+            }
+        } else {
+            scaleDownStreak = 0;
+        }
+    }
+    
+    private double drainSeconds(Sample sample, int consumers) {
+        return sample.lag() * sample.processingLatencyMs() / 1000.0 / Math.max(1, consumers);
+    }
+    
+    // More consumers than partitions sit idle, and more than the pool's connections only queue on it
+    private int ceiling(Sample sample) {
+        int ceiling = Math.min(properties.getMaxConcurrency(), sample.poolSize() > 0 ? sample.poolSize() : Integer.MAX_VALUE);
+        return partitionCount > 0 ? Math.min(ceiling, partitionCount) : ceiling;
+    }
+    
+    private boolean cooledDown() {
+        return Duration.between(lastResizeAt, Instant.now()).toMillis() >= properties.getResizeCooldownMs();
+    }
+    
+    // Concurrency only takes effect when the child containers are recreated
+    private void resize(ConcurrentMessageListenerContainer<?, ?> container, int target, Action action, String reason) {
+        int current = container.getConcurrency();
+        container.stop();
+        // Static members of the removed consumers would otherwise keep their partitions until the session times out
+        staticMembershipService.leaveGroup(container, target, current);
+        container.setConcurrency(target);
+        container.start();
+        lastResizeAt = Instant.now();
+        record(action, current, target, reason);
+    }
+    
+    private void record(Action action, int from, int to, String reason) {
+        Decision decision = new Decision(Instant.now(), action, from, to, reason);
+        log.info("Adaptive concurrency {}: {} -> {} consumers - {}", action, from, to, reason);
+        decisionCounters.computeIfAbsent(action, a -> Counter.builder("consumer.concurrency.decisions")
+                .description("Adaptive concurrency decisions")
+                .tag("action", a.name().toLowerCase())
+                .register(meterRegistry))
+            .increment();
+        synchronized (decisions) {
+            decisions.addFirst(decision);
+            while (decisions.size() > properties.getDecisionHistory()) {
+                decisions.removeLast();
+            }
+        }
+    }
+    
+    private Sample sample(ConcurrentMessageListenerContainer<?, ?> container) {
+        refreshPartitionCount();
+        long lag = 0;
+        for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+            for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+                MetricName name = entry.getKey();
+                if (FETCH_METRICS_GROUP.equals(name.group()) && "records-lag".equals(name.name())
+                        && name.tags().containsKey("partition")
+                        && entry.getValue().metricValue() instanceof Number value
+                        && Double.isFinite(value.doubleValue())) {
+                    lag += value.longValue();
+                }
+            }
+        }
+        
+        int active = 0;
+        int waiting = 0;
+        int size = 0;
+        for (HikariDataSource dataSource : dataSources) {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            if (PRIMARY_POOL.equals(dataSource.getPoolName()) && pool != null) {
+                active = pool.getActiveConnections();
+                waiting = pool.getThreadsAwaitingConnection();
+                size = dataSource.getMaximumPoolSize();
+            }
+        }
+        long processed = pipelineMetrics.messageCount("success") + pipelineMetrics.messageCount("failure");
+        return new Sample(lag, processed, messageConsumerService.getRecentProcessingLatencyMs(),
+            messageConsumerService.getRecentSaveLatencyMs(), active, waiting, size);
+    }
+    
+    private void refreshPartitionCount() {
+        if (partitionsRefreshedAt != null
+                && Duration.between(partitionsRefreshedAt, Instant.now()).toMillis() < properties.getPartitionRefreshMs()) {
+            return;
+        }
+        // Short-lived and unsubscribed, like the warm-up's metadata fetch, so the group is not disturbed
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer(groupId, "-concurrency")) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(topicName, Duration.ofSeconds(10));
+            partitionCount = partitions != null ? partitions.size() : 0;
+            partitionsRefreshedAt = Instant.now();
+        } catch (Exception e) {
+            log.warn("Could not fetch partition count for {}: {}", topicName, e.getMessage());
+        }
+    }
+    
+    private ConcurrentMessageListenerContainer<?, ?> container() {
+        MessageListenerContainer container = registry.getListenerContainer(MessageConsumerService.DEFAULT_LISTENER_ID);
+        return container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent ? concurrent : null;
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        ConcurrentMessageListenerContainer<?, ?> container = container();
+        details.put("enabled", properties.isEnabled());
+        details.put("concurrency", container != null ? container.getConcurrency() : null);
+        details.put("paused", paused);
+        details.put("partitionCount", partitionCount);
+        Sample sample = lastSample;
+        if (sample != null) {
+            Map<String, Object> last = new LinkedHashMap<>();
+            last.put("lag", sample.lag());
+            last.put("processingLatencyMs", Math.round(sample.processingLatencyMs() * 100) / 100.0);
+            last.put("saveLatencyMs", Math.round(sample.saveLatencyMs() * 100) / 100.0);
+            last.put("poolActive", sample.poolActive());
+            last.put("poolWaiting", sample.poolWaiting());
+            last.put("poolSize", sample.poolSize());
+            details.put("lastSample", last);
+        }
+        synchronized (decisions) {
+            details.put("decisions", new ArrayList<>(decisions));
+        }
+        return details;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.dto.BatchVerificationResponse;
+import com.example.msk.consumer.repository.ConsumedMessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchVerificationService {
+    
+    // Latencies above one hour are clamped; three significant digits keeps the histogram at a few KB
+    private static final long MAX_TRACKED_LATENCY_MS = 3_600_000L;
+    
+    private final ConsumedMessageRepository repository;
+    
+    @Value("${consumer.verification.max-reported-ranges:100}")
+    private Integer maxReportedRanges;
+    
+    /**
+     * Verifies a batch by streaming its (partition, sequence, timestamps) tuples in offset order.
+     * Sequence numbers are tracked in a compressed bitmap, so memory stays small even for batches
+     * of millions of messages.
+     */
+    @Transactional(readOnly = true)
+    public BatchVerificationResponse verifyBatch(String batchId, Long expectedCount) {
+        Instant verificationStart = Instant.now();
+        
+        RoaringBitmap seen = new RoaringBitmap();
+        Histogram latency = new Histogram(MAX_TRACKED_LATENCY_MS, 3);
+        Map<Integer, Long> partitionCounts = new TreeMap<>();
+        Map<Integer, Long> outOfOrder = new TreeMap<>();
+        
+        long received = 0;
+        long duplicates = 0;
+        long unsequenced = 0;
+        long clockSkew = 0;
+        int currentPartition = Integer.MIN_VALUE;
+        int lastSequence = Integer.MIN_VALUE;
+        
+        try (Stream<Object[]> rows = repository.streamSequenceInfoByBatchId(batchId)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                int partition = row[0] != null ? (Integer) row[0] : -1;
+                Integer sequence = (Integer) row[1];
+                Instant original = (Instant) row[2];
+                Instant consumed = (Instant) row[3];
+                received++;
+                
+                partitionCounts.merge(partition, 1L, Long::sum);
+                if (partition != currentPartition) {
+                    currentPartition = partition;
+                    lastSequence = Integer.MIN_VALUE;
+                }
+                
+                if (sequence == null) {
+                    unsequenced++;
+                } else {
+                    if (!seen.checkedAdd(sequence)) {
+                        duplicates++;
+                    }
+                    if (sequence < lastSequence) {
+                        outOfOrder.merge(partition, 1L, Long::sum);
+                    }
+                    lastSequence = sequence;
+                }
+                
+                if (original != null && consumed != null) {
+                    long latencyMs = consumed.toEpochMilli() - original.toEpochMilli();
+                    if (latencyMs < 0) {
+                        clockSkew++;
+                        latencyMs = 0;
+                    }
+                    latency.recordValue(Math.min(latencyMs, MAX_TRACKED_LATENCY_MS));
+                }
+            }
+        }
+        
+        long expected = expectedCount != null ? expectedCount : (seen.isEmpty() ? 0 : seen.last());
+        List<String> missingRanges = new ArrayList<>();
+        MissingSummary missing = collectMissingRanges(seen, expected, missingRanges);
+        long missingCount = missing.count();
+        long inRange = expected > 0 ? seen.rangeCardinality(1, expected + 1) : 0;
+        
+        String status;
+        if (received == 0) {
+            status = "NOT_FOUND";
+        } else if (missingCount == 0 && duplicates == 0) {
+            status = "COMPLETE";
+        } else {
+            status = "INCOMPLETE";
+        }
+        
+        boolean hasLatency = latency.getTotalCount() > 0;
+        BatchVerificationResponse response = BatchVerificationResponse.builder()
+            .batchId(batchId)
+            .status(status)
+            .expectedCount(expected)
+            .receivedCount(received)
+            .distinctSequences(seen.getLongCardinality())
+            .missingCount(missingCount)
+            .missingRanges(missingRanges)
+            .missingRangesTruncated(missing.rangeCount() > missingRanges.size())
+            .duplicateCount(duplicates)
+            .unexpectedSequenceCount(seen.getLongCardinality() - inRange)
+            .unsequencedCount(unsequenced)
+            .partitionCounts(partitionCounts)
+            .outOfOrderByPartition(outOfOrder)
+            .latencyMinMs(hasLatency ? latency.getMinValue() : null)
+            .latencyP50Ms(hasLatency ? latency.getValueAtPercentile(50) : null)
+            .latencyP95Ms(hasLatency ? latency.getValueAtPercentile(95) : null)
+            .latencyP99Ms(hasLatency ? latency.getValueAtPercentile(99) : null)
+            .latencyMaxMs(hasLatency ? latency.getMaxValue() : null)
+            .latencyAvgMs(hasLatency ? latency.getMean() : null)
+            .clockSkewCount(clockSkew)
+            .bitmapSizeBytes(seen.serializedSizeInBytes())
+            .verificationDurationMs(Instant.now().toEpochMilli() - verificationStart.toEpochMilli())
+            .build();
+        
+        log.info("Batch verification completed - Batch ID: {}, Status: {}, Received: {}, Missing: {}, Duplicates: {}",
+            batchId, status, received, missingCount, duplicates);
+        
+        return response;
+    }
+    
+    // Walks the gaps of the bitmap from 1..expected without materializing the missing values
+    private MissingSummary collectMissingRanges(RoaringBitmap seen, long expected, List<String> ranges) {
+        long missing = 0;
+        long rangeCount = 0;
+        long next = 1;
+        while (next <= expected) {
+            long gapStart = seen.nextAbsentValue((int) next);
+            if (gapStart < 0 || gapStart > expected) {
+                break;
+            }
+            long nextPresent = seen.nextValue((int) gapStart);
+            long gapEnd = nextPresent < 0 || nextPresent > expected ? expected : nextPresent - 1;
+            
+            missing += gapEnd - gapStart + 1;
+            rangeCount++;
+            if (ranges.size() < maxReportedRanges) {
+                ranges.add(gapStart == gapEnd ? String.valueOf(gapStart) : gapStart + "-" + gapEnd);
+            }
+            next = gapEnd + 1;
+        }
+        return new MissingSummary(missing, rangeCount);
+    }
+    
+    private record MissingSummary(long count, long rangeCount) {
+    }
+}
\ No newline at end of file
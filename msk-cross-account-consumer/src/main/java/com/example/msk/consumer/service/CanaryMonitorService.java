@@ -0,0 +1,259 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.CanaryProperties;
+import com.example.msk.consumer.model.TestMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the producer's canary probes per partition. Each probe carries the producer's send time,
+ * a run ID and a per-partition sequence number, so the round-trip latency, gaps in the sequence and
+ * silence are measured here without storing anything. Sequences are followed per run, because every
+ * producer replica sends its own probes to every partition; a run that sends nothing for
+ * {@code run-expiry-ms} is dropped. Partitions of the canary topic are watched from the moment they
+ * are assigned and dropped when they are revoked, so a consumer only judges partitions it owns.
+ */
+@Service
+@Slf4j
+public class CanaryMonitorService {
+    
+    private final CanaryProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<TopicPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+    private final Map<String, Counter> probeCounters = new ConcurrentHashMap<>();
+    private volatile Instant lastProbeAt;
+    
+    public CanaryMonitorService(CanaryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("consumer.canary.unhealthy.partitions", this, CanaryMonitorService::countUnhealthy)
+            .description("Watched partitions whose canary probes are missing, late or stale")
+            .register(meterRegistry);
+    }
+    
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+    
+    public void record(TestMessage probe, String topic, int partition) {
+        record(probe, topic, partition, System.currentTimeMillis());
+    }
+    
+    void record(TestMessage probe, String topic, int partition, long now) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lastProbeAt = Instant.ofEpochMilli(now);
+        partitions.computeIfAbsent(new TopicPartition(topic, partition), tp -> new PartitionState(tp, now))
+            .record(probe, now);
+    }
+    
+    /**
+     * Starts watching newly assigned partitions of the canary topic, so one that never receives a
+     * probe turns stale.
+     */
+    public void track(Collection<TopicPartition> assigned) {
+        if (!properties.isEnabled() || properties.getTopic() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (TopicPartition partition : assigned) {
+            if (partition.topic().equals(properties.getTopic())) {
+                partitions.computeIfAbsent(partition, tp -> new PartitionState(tp, now));
+            }
+        }
+    }
+    
+    public void forget(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            PartitionState state = partitions.remove(partition);
+            if (state != null) {
+                meterRegistry.remove(state.healthyGauge);
+                meterRegistry.remove(state.latencyTimer);
+            }
+            String prefix = partition + "/";
+            probeCounters.entrySet().removeIf(entry -> {
+                if (entry.getKey().startsWith(prefix)) {
+                    meterRegistry.remove(entry.getValue());
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+    
+    public boolean hasPartitions() {
+        return !partitions.isEmpty();
+    }
+    
+    public int countUnhealthy() {
+        long now = System.currentTimeMillis();
+        return (int) partitions.values().stream().filter(state -> !state.problems(now).isEmpty()).count();
+    }
+    
+    private void count(TopicPartition partition, String outcome, long amount) {
+        probeCounters.computeIfAbsent(partition + "/" + outcome, k -> Counter.builder("consumer.canary.probes")
+                .description("Canary probes by outcome: received, late, missing or duplicate")
+                .tag("topic", partition.topic())
+                .tag("partition", String.valueOf(partition.partition()))
+                .tag("outcome", outcome)
+                .register(meterRegistry))
+            .increment(amount);
+    }
+    
+    public Map<String, Object> getDetails() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> perPartition = new LinkedHashMap<>();
+        int unhealthy = 0;
+        List<PartitionState> states = new ArrayList<>(partitions.values());
+        states.sort(Comparator.comparing((PartitionState state) -> state.partition.topic())
+            .thenComparingInt(state -> state.partition.partition()));
+        for (PartitionState state : states) {
+            Map<String, Object> details = state.getDetails(now);
+            if (!(Boolean) details.get("healthy")) {
+                unhealthy++;
+            }
+            perPartition.put(state.partition.toString(), details);
+        }
+        
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("enabled", properties.isEnabled());
+        details.put("lastProbeAt", lastProbeAt != null ? lastProbeAt.toString() : "Never");
+        details.put("watchedPartitions", states.size());
+        details.put("unhealthyPartitions", unhealthy);
+        details.put("partitions", perPartition);
+        return details;
+    }
+    
+    private final class PartitionState {
+        
+        private final TopicPartition partition;
+        private final long watchedSince;
+        private final Timer latencyTimer;
+        private final Gauge healthyGauge;
+        private final Map<String, Run> runs = new LinkedHashMap<>();
+        private long lastProbeMillis;
+        private long lastLatencyMs = -1;
+        private long received;
+        private long missing;
+        private long late;
+        private long lastMissingMillis;
+        private long lastLateMillis;
+        
+        private PartitionState(TopicPartition partition, long now) {
+            this.partition = partition;
+            this.watchedSince = now;
+            this.latencyTimer = Timer.builder("consumer.canary.latency")
+                .description("Time from the producer sending a canary probe to this consumer receiving it")
+                .tag("topic", partition.topic())
+                .tag("partition", String.valueOf(partition.partition()))
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+            this.healthyGauge = Gauge.builder("consumer.canary.partition.healthy", this,
+                    state -> state.problems(System.currentTimeMillis()).isEmpty() ? 1 : 0)
+                .description("1 while the partition's canary probes arrive on time and in sequence, otherwise 0")
+                .tag("topic", partition.topic())
+                .tag("partition", String.valueOf(partition.partition()))
+                .register(meterRegistry);
+        }
+        
+        private synchronized void record(TestMessage probe, long now) {
+            long sequence = probe.getSequenceNumber() != null ? probe.getSequenceNumber() : 0;
+            runs.values().removeIf(run -> now - run.lastProbeMillis > properties.getRunExpiryMs());
+            Run run = probe.getBatchId() != null ? runs.get(probe.getBatchId()) : null;
+            if (run == null) {
+                // First probe from this producer run; the sequence restarts, so there is no gap to measure
+                run = new Run();
+                if (probe.getBatchId() != null) {
+                    runs.put(probe.getBatchId(), run);
+                }
+            } else if (sequence <= run.lastSequence) {
+                count(partition, "duplicate", 1);
+                return;
+            } else if (sequence > run.lastSequence + 1) {
+                long gap = sequence - run.lastSequence - 1;
+                missing += gap;
+                lastMissingMillis = now;
+                count(partition, "missing", gap);
+                log.warn("Canary probes missing on {} - {} between sequence {} and {} of run {}",
+                    partition, gap, run.lastSequence, sequence, probe.getBatchId());
+            }
+            run.lastSequence = sequence;
+            run.lastProbeMillis = now;
+            lastProbeMillis = now;
+            received++;
+            count(partition, "received", 1);
+            
+            if (probe.getTimestamp() != null) {
+                // Negative values only come from clock skew between the two accounts' hosts
+                lastLatencyMs = Math.max(0, now - probe.getTimestamp().toEpochMilli());
+                latencyTimer.record(lastLatencyMs, TimeUnit.MILLISECONDS);
+                if (lastLatencyMs > properties.getLateThresholdMs()) {
+                    late++;
+                    lastLateMillis = now;
+                    count(partition, "late", 1);
+                }
+            }
+        }
+        
+        private synchronized List<String> problems(long now) {
+            List<String> problems = new ArrayList<>();
+            long silentMs = now - Math.max(lastProbeMillis, watchedSince);
+            if (silentMs > properties.getMissingAfterMs()) {
+                problems.add(lastProbeMillis == 0
+                    ? String.format("no probe received in %ds since assignment", silentMs / 1000)
+                    : String.format("no probe received for %ds", silentMs / 1000));
+            }
+            if (lastMissingMillis > 0 && now - lastMissingMillis <= properties.getUnhealthyWindowMs()) {
+                problems.add("probes missing");
+            }
+            if (lastLateMillis > 0 && now - lastLateMillis <= properties.getUnhealthyWindowMs()) {
+                problems.add(String.format("probes later than %dms", properties.getLateThresholdMs()));
+            }
+            return problems;
+        }
+        
+        private synchronized Map<String, Object> getDetails(long now) {
+            List<String> problems = problems(now);
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("healthy", problems.isEmpty());
+            if (!problems.isEmpty()) {
+                details.put("problems", problems);
+            }
+            details.put("runs", runs.size());
+            details.put("received", received);
+            details.put("missing", missing);
+            details.put("late", late);
+            details.put("lastLatencyMs", lastLatencyMs);
+            for (ValueAtPercentile percentile : latencyTimer.takeSnapshot().percentileValues()) {
+                details.put(percentile.percentile() == 0.5 ? "p50LatencyMs" : "p99LatencyMs",
+                    Math.round(percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            details.put("lastProbeAt", lastProbeMillis > 0 ? Instant.ofEpochMilli(lastProbeMillis).toString() : "Never");
+            return details;
+        }
+    }
+    
+    // One producer run's probes to one partition
+    private static final class Run {
+        
+        private long lastSequence;
+        private long lastProbeMillis;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.model.ClaimCheck;
+import com.example.msk.consumer.model.TestMessage;
+import com.example.msk.consumer.storage.BlobStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves payloads the producer offloaded to the blob store. In {@code reference} mode (the
+ * default) only the claim check is persisted and payloads are fetched on demand through the
+ * payload endpoint; in {@code eager} mode the listener fetches and inlines them before saving.
+ * Either way the blob's size and SHA-256 are checked against the claim check.
+ */
+@Service
+@Slf4j
+public class ClaimCheckService {
+    
+    public enum Resolution {
+        REFERENCE, EAGER
+    }
+    
+    private final BlobStore blobStore;
+    private final MeterRegistry meterRegistry;
+    private final Resolution resolution;
+    
+    public ClaimCheckService(BlobStore blobStore, MeterRegistry meterRegistry,
+                             @Value("${consumer.claim-check.resolution:reference}") String resolution) {
+        this.blobStore = blobStore;
+        this.meterRegistry = meterRegistry;
+        this.resolution = Resolution.valueOf(resolution.toUpperCase());
+    }
+    
+    /**
+     * Inlines an offloaded payload when running in eager mode; otherwise leaves the message as is.
+     */
+    public void resolveIfEager(TestMessage message) {
+        if (resolution == Resolution.EAGER && message.getClaimCheck() != null && message.getPayload() == null) {
+            message.setPayload(resolve(message.getClaimCheck()));
+        }
+    }
+    
+    public String resolve(ClaimCheck claimCheck) {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            byte[] bytes = blobStore.get(claimCheck.getUri());
+            if (claimCheck.getSizeBytes() != null && bytes.length != claimCheck.getSizeBytes()) {
+                throw new IllegalStateException(String.format("Blob %s is %d bytes, claim check says %d",
+                    claimCheck.getUri(), bytes.length, claimCheck.getSizeBytes()));
+            }
+            String sha256 = sha256(bytes);
+            if (!sha256.equalsIgnoreCase(claimCheck.getSha256())) {
+                throw new IllegalStateException("Checksum mismatch for blob " + claimCheck.getUri());
+            }
+            outcome = "success";
+            return new String(bytes, StandardCharsets.UTF_8);
+        } finally {
+            Timer.builder("consumer.claimcheck.resolve.duration")
+                .description("Time to fetch and verify an offloaded payload")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Reads the claim check back from a persisted payload map, or {@code null} if it has none.
+     */
+    public ClaimCheck fromStoredPayload(Map<String, Object> payload) {
+        if (payload == null || !(payload.get("claimCheck") instanceof Map<?, ?> stored)) {
+            return null;
+        }
+        Object size = stored.get("sizeBytes");
+        return ClaimCheck.builder()
+            .uri((String) stored.get("uri"))
+            .sizeBytes(size instanceof Number number ? number.longValue() : null)
+            .sha256((String) stored.get("sha256"))
+            .build();
+    }
+    
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
\ No newline at end of file
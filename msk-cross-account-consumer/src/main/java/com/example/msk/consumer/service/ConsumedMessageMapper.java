@@ -0,0 +1,86 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.dto.ConsumedMessageDTO;
+import com.example.msk.consumer.entity.ConsumedMessage;
+import com.example.msk.consumer.model.TestMessage;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversions between the received {@link TestMessage}, the stored {@link ConsumedMessage} and the
+ * {@link ConsumedMessageDTO} returned by the query endpoints. Stateless, so the listener, warm-up,
+ * controller and microbenchmarks share one implementation.
+ */
+public final class ConsumedMessageMapper {
+    
+    private ConsumedMessageMapper() {
+    }
+    
+    public static ConsumedMessage toEntity(TestMessage message, int partition, long offset, String groupId,
+                                           ConsumedMessage.ProcessingStatus status) {
+        return toEntity(message, partition, offset, groupId, status, true);
+    }
+    
+    public static ConsumedMessage toEntity(TestMessage message, int partition, long offset, String groupId,
+                                           ConsumedMessage.ProcessingStatus status, boolean withPayload) {
+        return ConsumedMessage.builder()
+            .messageId(message.getMessageId())
+            .originalTimestamp(message.getTimestamp())
+            .consumedTimestamp(Instant.now())
+            .sourceAccount(message.getSourceAccount())
+            .targetAccount(message.getTargetAccount())
+            .messageType(message.getMessageType())
+            .payload(withPayload ? toPayload(message) : null)
+            .batchId(message.getBatchId())
+            .sequenceNumber(message.getSequenceNumber())
+            .kafkaPartition(partition)
+            .kafkaOffset(offset)
+            .consumerGroup(groupId)
+            .processingStatus(status)
+            .retryCount(0)
+            .build();
+    }
+    
+    public static Map<String, Object> toPayload(TestMessage message) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("messageId", message.getMessageId());
+        map.put("timestamp", message.getTimestamp() != null ? message.getTimestamp().toString() : null);
+        map.put("sourceAccount", message.getSourceAccount());
+        map.put("targetAccount", message.getTargetAccount());
+        map.put("payload", message.getPayload());
+        map.put("messageType", message.getMessageType());
+        map.put("batchId", message.getBatchId());
+        map.put("sequenceNumber", message.getSequenceNumber());
+        if (message.getClaimCheck() != null) {
+            Map<String, Object> claimCheck = new HashMap<>();
+            claimCheck.put("uri", message.getClaimCheck().getUri());
+            claimCheck.put("sizeBytes", message.getClaimCheck().getSizeBytes());
+            claimCheck.put("sha256", message.getClaimCheck().getSha256());
+            map.put("claimCheck", claimCheck);
+        }
+        return map;
+    }
+    
+    public static ConsumedMessageDTO toDTO(ConsumedMessage entity) {
+        return ConsumedMessageDTO.builder()
+            .id(entity.getId())
+            .messageId(entity.getMessageId())
+            .originalTimestamp(entity.getOriginalTimestamp())
+            .consumedTimestamp(entity.getConsumedTimestamp())
+            .sourceAccount(entity.getSourceAccount())
+            .targetAccount(entity.getTargetAccount())
+            .messageType(entity.getMessageType())
+            .payload(entity.getPayload())
+            .batchId(entity.getBatchId())
+            .sequenceNumber(entity.getSequenceNumber())
+            .processingDurationMs(entity.getProcessingDurationMs())
+            .topic(entity.getTopic())
+            .kafkaPartition(entity.getKafkaPartition())
+            .kafkaOffset(entity.getKafkaOffset())
+            .processingStatus(entity.getProcessingStatus().toString())
+            .errorMessage(entity.getErrorMessage())
+            .build();
+    }
+}
\ No newline at end of file
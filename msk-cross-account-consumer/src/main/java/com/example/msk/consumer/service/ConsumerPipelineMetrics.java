@@ -0,0 +1,182 @@
+package com.example.msk.consumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer timers and counters for every stage of the consumer pipeline. Stage timers share one
+ * meter name ({@code consumer.stage.duration}) tagged by stage, message type and outcome, and publish
+ * a bounded percentile histogram for Prometheus; CloudWatch receives count, sum and max. Each
+ * histogram is dozens of bucket series, so the partition is only a tag of the message counters.
+ * Meters are cached per tag combination so the listener does not pay for a registry lookup per record.
+ * When the record's listener span is sampled, each stage is also added to the trace as a child span.
+ */
+@Component
+public class ConsumerPipelineMetrics {
+    
+    public static final String STAGE_TIMER = "consumer.stage.duration";
+    public static final String MESSAGES_COUNTER = "consumer.messages";
+    
+    private static final String UNKNOWN = "unknown";
+    private static final String OTHER = "other";
+    
+    @Getter
+    @RequiredArgsConstructor
+    public enum Stage {
+        DESERIALIZE("deserialize"),
+        // Waiting in the source account's fair-share queue for a worker
+        QUEUE("queue"),
+        DEDUP("dedup"),
+        BUILD("build"),
+        SAVE("save"),
+        ACK("ack");
+        
+        private final String tag;
+    }
+    
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final int maxMessageTypes;
+    
+    private final Set<String> knownMessageTypes = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<StageKey, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MessageKey, Counter> messageCounters = new ConcurrentHashMap<>();
+    
+    public ConsumerPipelineMetrics(MeterRegistry meterRegistry, Tracer tracer,
+                                   @Value("${consumer.metrics.max-message-types:20}") int maxMessageTypes) {
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.maxMessageTypes = maxMessageTypes;
+    }
+    
+    /**
+     * Records the time since {@code startNanos} against the stage and returns the current
+     * {@link System#nanoTime()}, so consecutive stages can be chained without extra clock reads.
+     */
+    public long recordStage(Stage stage, String messageType, String outcome, long startNanos) {
+        long now = System.nanoTime();
+        stageTimer(stage, messageType, outcome).record(now - startNanos, TimeUnit.NANOSECONDS);
+        traceStage(stage, outcome, now - startNanos);
+        return now;
+    }
+    
+    /**
+     * Adds the stage, which has just ended, to the current trace. The span is built afterwards from
+     * the timer's own measurement, so an unsampled record only pays for the current-span lookup.
+     */
+    private void traceStage(Stage stage, String outcome, long durationNanos) {
+        Span parent = tracer.currentSpan();
+        if (parent == null || !Boolean.TRUE.equals(parent.context().sampled())) {
+            return;
+        }
+        Instant end = Instant.now();
+        long endMicros = TimeUnit.SECONDS.toMicros(end.getEpochSecond()) + end.getNano() / 1000;
+        tracer.spanBuilder()
+            .setParent(parent.context())
+            .name("consumer " + stage.getTag())
+            .tag("outcome", outcome)
+            .startTimestamp(endMicros - durationNanos / 1000, TimeUnit.MICROSECONDS)
+            .start()
+            .end(endMicros, TimeUnit.MICROSECONDS);
+    }
+    
+    // Deserialization runs inside the Kafka client's poll, so it is not part of the record's trace
+    public void recordDeserialization(String messageType, String outcome, long nanos) {
+        stageTimer(Stage.DESERIALIZE, messageType, outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void countMessage(int partition, String messageType, String outcome) {
+        MessageKey key = new MessageKey(String.valueOf(partition), normalizeMessageType(messageType), outcome);
+        messageCounters.computeIfAbsent(key, k -> Counter.builder(MESSAGES_COUNTER)
+                .description("Messages handled by the consumer listener")
+                .tag("partition", k.partition())
+                .tag("message.type", k.messageType())
+                .tag("outcome", k.outcome())
+                .register(meterRegistry))
+            .increment();
+    }
+    
+    /**
+     * Total across all partitions and message types for one outcome.
+     */
+    public long messageCount(String outcome) {
+        return (long) meterRegistry.find(MESSAGES_COUNTER).tag("outcome", outcome).counters().stream()
+            .mapToDouble(Counter::count)
+            .sum();
+    }
+    
+    /**
+     * Per-stage count, mean and max in milliseconds, aggregated over all tags.
+     */
+    public Map<String, Object> stageSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            long count = 0;
+            double totalMs = 0;
+            double maxMs = 0;
+            for (Timer timer : meterRegistry.find(STAGE_TIMER).tag("stage", stage.getTag()).timers()) {
+                count += timer.count();
+                totalMs += timer.totalTime(TimeUnit.MILLISECONDS);
+                maxMs = Math.max(maxMs, timer.max(TimeUnit.MILLISECONDS));
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", count);
+            stats.put("meanMs", count > 0 ? totalMs / count : 0.0);
+            stats.put("maxMs", maxMs);
+            summary.put(stage.getTag(), stats);
+        }
+        return summary;
+    }
+    
+    private Timer stageTimer(Stage stage, String messageType, String outcome) {
+        StageKey key = new StageKey(stage, normalizeMessageType(messageType), outcome);
+        return stageTimers.computeIfAbsent(key, k -> Timer.builder(STAGE_TIMER)
+            .description("Time spent in each stage of the consumer pipeline")
+            .tag("stage", k.stage().getTag())
+            .tag("message.type", k.messageType())
+            .tag("outcome", k.outcome())
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(10_000))
+            .maximumExpectedValue(Duration.ofSeconds(10))
+            .register(meterRegistry));
+    }
+    
+    // Message types come from producers; cap the distinct tag values to bound meter cardinality
+    private String normalizeMessageType(String messageType) {
+        if (messageType == null) {
+            return UNKNOWN;
+        }
+        if (knownMessageTypes.contains(messageType)) {
+            return messageType;
+        }
+        synchronized (knownMessageTypes) {
+            if (knownMessageTypes.size() < maxMessageTypes) {
+                knownMessageTypes.add(messageType);
+                return messageType;
+            }
+        }
+        return knownMessageTypes.contains(messageType) ? messageType : OTHER;
+    }
+    
+    private record StageKey(Stage stage, String messageType, String outcome) {
+    }
+    
+    private record MessageKey(String partition, String messageType, String outcome) {
+    }
+}
\ No newline at end of file
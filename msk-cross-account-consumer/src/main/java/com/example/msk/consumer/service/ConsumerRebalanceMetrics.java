@@ -0,0 +1,149 @@
+package com.example.msk.consumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebalance listener shared by every listener container. It measures how long each consumer holds
+ * no partitions it gave up - from revocation until the new assignment arrives - and how many
+ * partitions move. Pending manual acknowledgements are committed by the container between
+ * {@link #onPartitionsRevokedBeforeCommit} and {@link #onPartitionsRevokedAfterCommit}, so the
+ * next owner resumes right after the last processed record; that commit is timed as well. Partition
+ * ownership changes are also passed to {@link CanaryMonitorService}, which only watches owned partitions,
+ * and records of revoked partitions still queued in {@link TenantFairShareService} are dropped before
+ * that commit.
+ */
+@Component
+@Slf4j
+public class ConsumerRebalanceMetrics implements ConsumerAwareRebalanceListener {
+    
+    private final Timer pauseTimer;
+    private final Timer commitTimer;
+    private final Counter rebalanceCounter;
+    private final Map<String, Counter> partitionCounters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final CanaryMonitorService canaryMonitor;
+    private final TenantFairShareService fairShare;
+    
+    // Keyed by consumer; every callback of one consumer runs on its own thread
+    private final Map<Consumer<?, ?>, Long> revokedAtNanos = new ConcurrentHashMap<>();
+    private final Map<Consumer<?, ?>, Long> commitStartNanos = new ConcurrentHashMap<>();
+    
+    private final AtomicLong partitionsRevoked = new AtomicLong();
+    private final AtomicLong partitionsAssigned = new AtomicLong();
+    private final AtomicLong partitionsLost = new AtomicLong();
+    private volatile Instant lastRebalanceAt;
+    private volatile double lastPauseMs;
+    
+    public ConsumerRebalanceMetrics(MeterRegistry meterRegistry, CanaryMonitorService canaryMonitor,
+                                    TenantFairShareService fairShare) {
+        this.meterRegistry = meterRegistry;
+        this.canaryMonitor = canaryMonitor;
+        this.fairShare = fairShare;
+        this.pauseTimer = Timer.builder("consumer.rebalance.pause")
+            .description("Time a consumer spends between giving up partitions and receiving its new assignment")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.commitTimer = Timer.builder("consumer.rebalance.commit")
+            .description("Time spent committing pending offsets for revoked partitions")
+            .register(meterRegistry);
+        this.rebalanceCounter = Counter.builder("consumer.rebalances")
+            .description("Completed rebalances, counted per consumer")
+            .register(meterRegistry);
+    }
+    
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        revokedAtNanos.putIfAbsent(consumer, now);
+        commitStartNanos.put(consumer, now);
+        fairShare.forget(partitions);
+        count("revoked", partitions.size());
+        partitionsRevoked.addAndGet(partitions.size());
+    }
+    
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Long started = commitStartNanos.remove(consumer);
+        if (started != null) {
+            commitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        if (!partitions.isEmpty()) {
+            canaryMonitor.forget(partitions);
+            log.info("Partitions revoked - Group: {}, Partitions: {}", consumer.groupMetadata().groupId(), partitions);
+        }
+    }
+    
+    // Lost partitions were already reassigned, so there is nothing left to commit
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        revokedAtNanos.putIfAbsent(consumer, System.nanoTime());
+        count("lost", partitions.size());
+        partitionsLost.addAndGet(partitions.size());
+        canaryMonitor.forget(partitions);
+        fairShare.forget(partitions);
+        log.warn("Partitions lost - Group: {}, Partitions: {}", consumer.groupMetadata().groupId(), partitions);
+    }
+    
+    /**
+     * Called at the end of every rebalance the consumer takes part in; with cooperative rebalancing
+     * {@code partitions} holds only the newly added ones.
+     */
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        rebalanceCounter.increment();
+        lastRebalanceAt = Instant.now();
+        Long revokedAt = revokedAtNanos.remove(consumer);
+        if (revokedAt != null) {
+            long pauseNanos = System.nanoTime() - revokedAt;
+            pauseTimer.record(pauseNanos, TimeUnit.NANOSECONDS);
+            lastPauseMs = pauseNanos / 1_000_000.0;
+        }
+        if (!partitions.isEmpty()) {
+            count("assigned", partitions.size());
+            partitionsAssigned.addAndGet(partitions.size());
+            canaryMonitor.track(partitions);
+            log.info("Partitions assigned - Group: {}, Partitions: {}", consumer.groupMetadata().groupId(), partitions);
+        }
+    }
+    
+    private void count(String change, int partitions) {
+        partitionCounters.computeIfAbsent(change, c -> Counter.builder("consumer.rebalance.partitions")
+                .description("Partitions moved by rebalances")
+                .tag("change", c)
+                .register(meterRegistry))
+            .increment(partitions);
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("rebalances", (long) rebalanceCounter.count());
+        details.put("partitionsAssigned", partitionsAssigned.get());
+        details.put("partitionsRevoked", partitionsRevoked.get());
+        details.put("partitionsLost", partitionsLost.get());
+        details.put("lastRebalanceAt", lastRebalanceAt != null ? lastRebalanceAt.toString() : "Never");
+        details.put("lastPauseMs", Math.round(lastPauseMs * 100) / 100.0);
+        details.put("maxPauseMs", Math.round(pauseTimer.max(TimeUnit.MILLISECONDS) * 100) / 100.0);
+        return details;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.DeadLetterProperties;
+import com.example.msk.consumer.model.TestMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes records that could neither be stored nor recorded as failed to
+ * {@code consumer.dead-letter.topic}, keyed by message ID. The original topic, partition, offset and
+ * error travel in Spring Kafka's standard DLT headers, so the records can be replayed once the cause
+ * is fixed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterService {
+    
+    private final DeadLetterProperties properties;
+    private final KafkaTemplate<String, Object> deadLetterKafkaTemplate;
+    
+    /**
+     * Returns true once the broker has the record; false when dead-lettering is disabled or the
+     * send failed, in which case the caller still owns the record.
+     */
+    public boolean publish(TestMessage message, String topic, int partition, long offset, String error) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        ProducerRecord<String, Object> record = new ProducerRecord<>(properties.getTopic(), message.getMessageId(), message);
+        Headers headers = record.headers();
+        headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, topic.getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(partition).array());
+        headers.add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(offset).array());
+        if (error != null) {
+            headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, error.getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            deadLetterKafkaTemplate.send(record).get(properties.getSendTimeoutMs(), TimeUnit.MILLISECONDS);
+            log.warn("Message dead-lettered - ID: {}, Topic: {}, Partition: {}, Offset: {}, DLQ: {}",
+                message.getMessageId(), topic, partition, offset, properties.getTopic());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException | KafkaException e) {
+            log.error("Failed to dead-letter message - ID: {}, DLQ: {}", message.getMessageId(), properties.getTopic(), e);
+            return false;
+        }
+    }
+}
\ No newline at end of file
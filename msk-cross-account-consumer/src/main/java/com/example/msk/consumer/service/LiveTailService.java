@@ -0,0 +1,315 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.LiveTailProperties;
+import com.example.msk.consumer.entity.ConsumedMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Streams processed messages to server-sent-event subscribers straight from the listener, so
+ * watching traffic costs the database nothing. The listener only appends to a bounded in-memory
+ * ring and to each matching subscriber's bounded queue; dispatcher threads write the events. A
+ * subscriber that cannot keep up is handled by its slow-consumer policy instead of slowing the
+ * listener or growing memory.
+ */
+@Service
+@Slf4j
+public class LiveTailService {
+    
+    private final LiveTailProperties properties;
+    private final ConsumedMessage[] ring;
+    private long published;
+    private final Object ringLock = new Object();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService heartbeat;
+    private final MeterRegistry meterRegistry;
+    private final Counter sentCounter;
+    private final Map<String, Counter> droppedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> disconnectCounters = new ConcurrentHashMap<>();
+    
+    /**
+     * Server-side filter; null fields match everything.
+     */
+    public record Filter(String messageType, String batchId, String sourceAccount) {
+        
+        boolean matches(ConsumedMessage message) {
+            return (messageType == null || messageType.equals(message.getMessageType()))
+                && (batchId == null || batchId.equals(message.getBatchId()))
+                && (sourceAccount == null || sourceAccount.equals(message.getSourceAccount()));
+        }
+    }
+    
+    public LiveTailService(LiveTailProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.ring = new ConsumedMessage[Math.max(1, properties.getBufferSize())];
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, properties.getDispatcherThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "live-tail-dispatcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-tail-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, properties.getHeartbeatIntervalMs(),
+            properties.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+        
+        Gauge.builder("consumer.livetail.subscribers", subscribers, Set::size)
+            .description("Open live-tail streams")
+            .register(meterRegistry);
+        this.sentCounter = Counter.builder("consumer.livetail.events")
+            .description("Messages written to live-tail streams")
+            .tag("outcome", "sent")
+            .tag("policy", "none")
+            .register(meterRegistry);
+    }
+    
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+    
+    public boolean hasSubscribers() {
+        return properties.isEnabled() && !subscribers.isEmpty();
+    }
+    
+    /**
+     * Publishes the message once the surrounding transaction commits, so streams never show a row
+     * that was rolled back.
+     */
+    public void publishAfterCommit(ConsumedMessage message) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(message);
+                }
+            });
+        } else {
+            publish(message);
+        }
+    }
+    
+    public void publish(ConsumedMessage message) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        synchronized (ringLock) {
+            ring[(int) (published++ % ring.length)] = message;
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.filter.matches(message)) {
+                    subscriber.offer(message);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Opens a stream, first replaying up to {@code replay} buffered messages that match the filter.
+     *
+     * @throws IllegalStateException if live tail is disabled or the subscriber limit is reached
+     */
+    public SseEmitter subscribe(Filter filter, LiveTailProperties.SlowConsumerPolicy policy, int replay,
+                                Function<ConsumedMessage, Object> view) {
+        if (!properties.isEnabled()) {
+            throw new IllegalStateException("Live tail is disabled");
+        }
+        if (subscribers.size() >= properties.getMaxSubscribers()) {
+            throw new IllegalStateException(String.format("Subscriber limit of %d reached", properties.getMaxSubscribers()));
+        }
+        
+        SseEmitter emitter = new SseEmitter(properties.getMaxConnectionMs());
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), emitter, filter,
+            policy != null ? policy : properties.getDefaultPolicy(), view);
+        emitter.onCompletion(() -> subscriber.close(null));
+        emitter.onTimeout(() -> subscriber.close("timeout"));
+        emitter.onError(e -> subscriber.close("error"));
+        
+        // Under the ring lock, so no message is missed or repeated between the replay and the live feed
+        synchronized (ringLock) {
+            int replayLimit = Math.min(Math.max(0, replay), Math.min(ring.length, properties.getSubscriberQueueSize()));
+            long first = Math.max(0, published - replayLimit);
+            for (long i = first; i < published; i++) {
+                ConsumedMessage message = ring[(int) (i % ring.length)];
+                if (filter.matches(message)) {
+                    subscriber.offer(message);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        log.info("Live-tail subscriber {} connected - Filter: {}, Policy: {}, Replay: {}",
+            subscriber.id, filter, subscriber.policy, replay);
+        return emitter;
+    }
+    
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                subscriber.close("disconnected");
+            }
+        }
+    }
+    
+    private void countDropped(LiveTailProperties.SlowConsumerPolicy policy) {
+        droppedCounters.computeIfAbsent(policy.name().toLowerCase(), p -> Counter.builder("consumer.livetail.events")
+                .description("Messages written to live-tail streams")
+                .tag("outcome", "dropped")
+                .tag("policy", p)
+                .register(meterRegistry))
+            .increment();
+    }
+    
+    private void countDisconnect(String reason) {
+        disconnectCounters.computeIfAbsent(reason, r -> Counter.builder("consumer.livetail.disconnects")
+                .description("Live-tail streams closed by the server or lost")
+                .tag("reason", r)
+                .register(meterRegistry))
+            .increment();
+    }
+    
+    @PreDestroy
+    public void close() {
+        heartbeat.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        dispatcher.shutdownNow();
+    }
+    
+    private final class Subscriber {
+        
+        private final long id;
+        private final SseEmitter emitter;
+        private final Filter filter;
+        private final LiveTailProperties.SlowConsumerPolicy policy;
+        private final Function<ConsumedMessage, Object> view;
+        private final ArrayDeque<ConsumedMessage> queue = new ArrayDeque<>();
+        private boolean draining;
+        private long dropped;
+        private long droppedReported;
+        private volatile boolean closed;
+        
+        private Subscriber(long id, SseEmitter emitter, Filter filter, LiveTailProperties.SlowConsumerPolicy policy,
+                           Function<ConsumedMessage, Object> view) {
+            this.id = id;
+            this.emitter = emitter;
+            this.filter = filter;
+            this.policy = policy;
+            this.view = view;
+        }
+        
+        // Called by listener threads: never blocks on the client
+        private synchronized void offer(ConsumedMessage message) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= properties.getSubscriberQueueSize()) {
+                switch (policy) {
+                    case DROP_OLDEST -> {
+                        queue.poll();
+                        queue.add(message);
+                    }
+                    case DROP_NEWEST -> {
+                    }
+                    case DISCONNECT -> {
+                        dispatcher.execute(() -> close("slow-consumer"));
+                        closed = true;
+                        return;
+                    }
+                }
+                dropped++;
+                countDropped(policy);
+            } else {
+                queue.add(message);
+            }
+            if (!draining) {
+                draining = true;
+                dispatcher.execute(this::drain);
+            }
+        }
+        
+        private void drain() {
+            while (true) {
+                List<ConsumedMessage> batch;
+                long droppedSinceReport;
+                synchronized (this) {
+                    if (queue.isEmpty() || closed) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(queue);
+                    queue.clear();
+                    droppedSinceReport = dropped - droppedReported;
+                    droppedReported = dropped;
+                }
+                try {
+                    if (droppedSinceReport > 0) {
+                        emitter.send(SseEmitter.event().name("dropped").data(Map.of("count", droppedSinceReport),
+                            MediaType.APPLICATION_JSON));
+                    }
+                    for (ConsumedMessage message : batch) {
+                        emitter.send(SseEmitter.event()
+                            .id(message.getMessageId())
+                            .name("message")
+                            .data(view.apply(message), MediaType.APPLICATION_JSON));
+                    }
+                    sentCounter.increment(batch.size());
+                } catch (IOException | IllegalStateException e) {
+                    close("disconnected");
+                    return;
+                }
+            }
+        }
+        
+        private void close(String reason) {
+            if (!subscribers.remove(this)) {
+                return;
+            }
+            closed = true;
+            synchronized (this) {
+                queue.clear();
+            }
+            if (reason != null) {
+                countDisconnect(reason);
+                if ("slow-consumer".equals(reason)) {
+                    emitter.complete();
+                }
+            }
+            log.info("Live-tail subscriber {} closed{}", id, reason != null ? " - " + reason : "");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.PersistencePolicyProperties;
+import com.example.msk.consumer.entity.MessageAggregate;
+import com.example.msk.consumer.model.TestMessage;
+import com.example.msk.consumer.repository.MessageAggregateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts messages whose persistence policy does not store them as rows, per message type, account
+ * pair and time bucket, and periodically upserts the counts into {@code message_aggregates}. The
+ * listener only updates an in-memory bucket, so aggregated traffic costs one statement per bucket
+ * and flush instead of one insert and one dedup query per message.
+ * <p>
+ * The counts are not idempotent. A message is acknowledged once it is counted in memory, so a crash
+ * loses the counts of at most one flush interval, and a redelivered message is counted again. Flushes
+ * run on the service's own thread, so a slow upsert never delays other scheduled jobs.
+ */
+@Service
+@Slf4j
+public class MessageAggregationService {
+    
+    private record Key(String messageType, String sourceAccount, String targetAccount, Instant bucketStart) {
+    }
+    
+    // Only mutated inside ConcurrentHashMap.compute/remove, which serialise access per key
+    private static final class Bucket {
+        
+        private long count;
+        private long latencySumMs;
+        private long latencyMaxMs;
+        
+        private Bucket add(long latencyMs) {
+            count++;
+            latencySumMs += latencyMs;
+            latencyMaxMs = Math.max(latencyMaxMs, latencyMs);
+            return this;
+        }
+        
+        private Bucket merge(Bucket other) {
+            count += other.count;
+            latencySumMs += other.latencySumMs;
+            latencyMaxMs = Math.max(latencyMaxMs, other.latencyMaxMs);
+            return this;
+        }
+    }
+    
+    private final MessageAggregateRepository repository;
+    private final PersistencePolicyProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<Key, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Counter> aggregatedCounters = new ConcurrentHashMap<>();
+    private final Counter flushedCounter;
+    private final Counter flushFailureCounter;
+    private volatile Instant lastFlushAt;
+    private ScheduledExecutorService executor;
+    
+    public MessageAggregationService(MessageAggregateRepository repository, PersistencePolicyProperties properties,
+                                     TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.flushedCounter = Counter.builder("consumer.persistence.aggregate.rows")
+            .description("Aggregate buckets upserted into message_aggregates")
+            .register(meterRegistry);
+        this.flushFailureCounter = Counter.builder("consumer.persistence.aggregate.flush.failures")
+            .description("Aggregate flushes that failed and were kept for the next flush")
+            .register(meterRegistry);
+        Gauge.builder("consumer.persistence.aggregate.pending", buckets, Map::size)
+            .description("Aggregate buckets waiting for the next flush")
+            .register(meterRegistry);
+    }
+    
+    public void record(TestMessage message, PersistencePolicyProperties.Mode mode) {
+        Instant now = Instant.now();
+        long bucketSeconds = Math.max(1, properties.getAggregateBucketSeconds());
+        Key key = new Key(message.getMessageType() != null ? message.getMessageType() : "",
+            message.getSourceAccount() != null ? message.getSourceAccount() : "",
+            message.getTargetAccount() != null ? message.getTargetAccount() : "",
+            Instant.ofEpochSecond(now.getEpochSecond() / bucketSeconds * bucketSeconds));
+        long latencyMs = message.getTimestamp() != null
+            ? Math.max(0, now.toEpochMilli() - message.getTimestamp().toEpochMilli()) : 0;
+        buckets.compute(key, (k, bucket) -> (bucket != null ? bucket : new Bucket()).add(latencyMs));
+        aggregatedCounters.computeIfAbsent(mode.name().toLowerCase(), m -> Counter.builder("consumer.persistence.aggregated")
+                .description("Messages counted in aggregates instead of being stored as rows, by persistence mode")
+                .tag("mode", m)
+                .register(meterRegistry))
+            .increment();
+    }
+    
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aggregate-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = properties.getAggregateFlushIntervalMs();
+        executor.scheduleWithFixedDelay(this::flush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    public void flush() {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        Map<Key, Bucket> pending = new LinkedHashMap<>();
+        for (Key key : new ArrayList<>(buckets.keySet())) {
+            Bucket bucket = buckets.remove(key);
+            if (bucket != null) {
+                pending.put(key, bucket);
+            }
+        }
+        
+        Instant now = Instant.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> pending.forEach((key, bucket) ->
+                repository.upsert(key.messageType(), key.sourceAccount(), key.targetAccount(), key.bucketStart(),
+                    bucket.count, bucket.latencySumMs, bucket.latencyMaxMs, now)));
+            flushedCounter.increment(pending.size());
+            lastFlushAt = now;
+            log.debug("Flushed {} aggregate buckets", pending.size());
+        } catch (RuntimeException e) {
+            // Counts were acknowledged already, so keep them for the next attempt rather than drop them
+            pending.forEach((key, bucket) -> buckets.merge(key, bucket, Bucket::merge));
+            flushFailureCounter.increment();
+            log.error("Aggregate flush of {} buckets failed - retrying next interval", pending.size(), e);
+        }
+    }
+    
+    @PreDestroy
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+    
+    public List<MessageAggregate> findSince(String messageType, Instant since) {
+        return messageType != null
+            ? repository.findByMessageTypeAndBucketStartGreaterThanEqualOrderByBucketStartDesc(messageType, since)
+            : repository.findByBucketStartGreaterThanEqualOrderByBucketStartDesc(since);
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> policies = new LinkedHashMap<>();
+        properties.getMessageTypes().forEach((type, policy) -> policies.put(type,
+            policy.getMode() == PersistencePolicyProperties.Mode.SAMPLED
+                ? "SAMPLED 1/" + policy.getSampleRate() : policy.getMode().name()));
+        
+        Map<String, Object> aggregated = new LinkedHashMap<>();
+        aggregatedCounters.forEach((mode, counter) -> aggregated.put(mode, (long) counter.count()));
+        
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("defaultMode", properties.getDefaultPolicy().getMode());
+        details.put("messageTypes", policies);
+        details.put("aggregatedMessages", aggregated);
+        details.put("pendingBuckets", buckets.size());
+        details.put("flushedBuckets", (long) flushedCounter.count());
+        details.put("flushFailures", (long) flushFailureCounter.count());
+        details.put("lastFlushAt", lastFlushAt != null ? lastFlushAt.toString() : "Never");
+        return details;
+    }
+}
\ No newline at end of file
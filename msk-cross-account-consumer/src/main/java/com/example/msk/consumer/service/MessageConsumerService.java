@@ -1,11 +1,15 @@
 package com.example.msk.consumer.service;
 
+import com.example.msk.consumer.config.FairShareProperties;
+import com.example.msk.consumer.config.PersistencePolicyProperties;
+import com.example.msk.consumer.config.TopicListenerProperties;
 import com.example.msk.consumer.entity.ConsumedMessage;
 import com.example.msk.consumer.model.TestMessage;
 import com.example.msk.consumer.repository.ConsumedMessageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
@@ -13,107 +17,259 @@ import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MessageConsumerService {
     
+    // Listener container of the default topic, resized at runtime by AdaptiveConcurrencyService
+    public static final String DEFAULT_LISTENER_ID = "default-topic-listener";
+    
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+    private static final String DEAD_LETTERED = "dead_lettered";
+    private static final long LATENCY_HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(5);
+    
     private final ConsumedMessageRepository repository;
+    private final ConsumerPipelineMetrics pipelineMetrics;
+    private final ClaimCheckService claimCheckService;
+    private final LiveTailService liveTailService;
+    private final CanaryMonitorService canaryMonitor;
+    private final PersistencePolicyProperties persistencePolicy;
+    private final MessageAggregationService aggregationService;
+    private final TenantFairShareService fairShare;
+    private final FairShareProperties fairShareProperties;
+    private final DeadLetterService deadLetterService;
+    private final TransactionTemplate transactionTemplate;
     
-    // Metrics tracking
-    private final AtomicLong totalMessagesConsumed = new AtomicLong(0);
-    private final AtomicLong totalSuccessfulMessages = new AtomicLong(0);
-    private final AtomicLong totalFailedMessages = new AtomicLong(0);
     private volatile Instant lastConsumptionTime;
+    // Exponentially weighted save latency, used by background jobs to back off under load
+    private volatile double recentSaveLatencyMs;
+    private volatile long lastSaveNanos = System.nanoTime();
+    // ...and the weighted time from handing a record to the listener until it is acknowledged
+    private volatile double recentProcessingLatencyMs;
     
-    @KafkaListener(topics = "${aws.msk.topic-name}", groupId = "${spring.kafka.consumer.group-id}")
-    @Transactional
+    @KafkaListener(id = DEFAULT_LISTENER_ID, topics = "${aws.msk.topic-name}", groupId = "${spring.kafka.consumer.group-id}")
     public void consumeMessage(
             @Payload TestMessage message,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
             @Header(KafkaHeaders.OFFSET) long offset,
             @Header(KafkaHeaders.GROUP_ID) String groupId,
             @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timestamp,
             Acknowledgment acknowledgment) {
-        
+        dispatch(message, topic, partition, offset, groupId, acknowledgment,
+            TopicListenerProperties.Persistence.FULL);
+    }
+    
+    /**
+     * Shared by the annotated default-topic listener and the listener containers registered at
+     * runtime by {@link TopicListenerService}, which apply their topic's persistence setting.
+     * With fair share, records that become rows are queued per source account by
+     * {@link TenantFairShareService} and written by its workers, so one account's burst cannot hold up
+     * the others. Everything else is processed on the listener thread. Either way the acknowledgement
+     * reaches the container in offset order.
+     */
+    public void dispatch(TestMessage message, String topic, int partition, long offset, String groupId,
+                         Acknowledgment acknowledgment, TopicListenerProperties.Persistence persistence) {
+        if (!fairShare.isEnabled()) {
+            transactionTemplate.executeWithoutResult(status ->
+                processMessage(message, topic, partition, offset, groupId, acknowledgment, persistence));
+            return;
+        }
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        TenantFairShareService.TrackedAcknowledgment tracked = fairShare.track(topicPartition, offset, acknowledgment);
+        if (!writesRow(message, persistence)) {
+            transactionTemplate.executeWithoutResult(status ->
+                processMessage(message, topic, partition, offset, groupId, tracked, persistence));
+            return;
+        }
+        long queuedAt = System.nanoTime();
+        fairShare.submit(message.getSourceAccount(), topicPartition, () -> {
+            pipelineMetrics.recordStage(ConsumerPipelineMetrics.Stage.QUEUE, message.getMessageType(),
+                SUCCESS, queuedAt);
+            processQueued(message, topic, partition, offset, groupId, tracked, persistence);
+        });
+    }
+    
+    /**
+     * Runs on a fair-share worker, where a failure no longer reaches the container's error handler.
+     * A record that was neither stored nor recorded as failed is retried here, and after
+     * {@code max-attempts} published to the dead-letter topic. It is acknowledged only once it is in
+     * one place or the other; until then it holds back its own partition's commits, not the others'.
+     */
+    private void processQueued(TestMessage message, String topic, int partition, long offset, String groupId,
+                               TenantFairShareService.TrackedAcknowledgment acknowledgment,
+                               TopicListenerProperties.Persistence persistence) {
+        AtomicBoolean acknowledged = new AtomicBoolean();
+        Acknowledgment tracking = () -> {
+            acknowledged.set(true);
+            acknowledgment.acknowledge();
+        };
+        for (int attempt = 1; ; attempt++) {
+            String error = "Neither stored nor recorded as failed";
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                    processMessage(message, topic, partition, offset, groupId, tracking, persistence));
+            } catch (RuntimeException e) {
+                error = e.getMessage();
+                log.error("Transaction failed for message - ID: {}, Attempt: {}", message.getMessageId(), attempt, e);
+            }
+            if (acknowledged.get()) {
+                return;
+            }
+            if (attempt >= fairShareProperties.getMaxAttempts()
+                    && deadLetterService.publish(message, topic, partition, offset, error)) {
+                pipelineMetrics.countMessage(partition, message.getMessageType(), DEAD_LETTERED);
+                acknowledgment.acknowledge();
+                return;
+            }
+            if (acknowledgment.isRevoked()) {
+                log.warn("Partition revoked, leaving message to its next owner - ID: {}, Partition: {}, Offset: {}",
+                    message.getMessageId(), partition, offset);
+                return;
+            }
+            try {
+                Thread.sleep(fairShareProperties.getRetryBackoffMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private boolean writesRow(TestMessage message, TopicListenerProperties.Persistence persistence) {
+        String messageType = message.getMessageType();
+        return persistence != TopicListenerProperties.Persistence.NONE
+            && !TestMessage.WARMUP_MESSAGE_TYPE.equals(messageType)
+            && !TestMessage.CANARY_MESSAGE_TYPE.equals(messageType)
+            && storesRow(persistencePolicy.policyFor(messageType), message);
+    }
+    
+    /**
+     * Processes one record in the caller's transaction. On topics that store messages, the message
+     * type's persistence policy decides whether the message becomes a row, with or without its
+     * payload, or is only aggregated.
+     */
+    @Transactional
+    public void processMessage(TestMessage message, String topic, int partition, long offset, String groupId,
+                               Acknowledgment acknowledgment, TopicListenerProperties.Persistence persistence) {
         Instant startTime = Instant.now();
-        log.info("Consuming message - ID: {}, Partition: {}, Offset: {}", 
-            message.getMessageId(), partition, offset);
+        String messageType = message.getMessageType();
+        log.info("Consuming message - ID: {}, Topic: {}, Partition: {}, Offset: {}", 
+            message.getMessageId(), topic, partition, offset);
         
+        ConsumerPipelineMetrics.Stage stage = ConsumerPipelineMetrics.Stage.DEDUP;
+        long receivedNanos = System.nanoTime();
+        long stageStart = receivedNanos;
         try {
+            if (TestMessage.WARMUP_MESSAGE_TYPE.equals(messageType)) {
+                log.debug("Skipping warm-up record - ID: {}", message.getMessageId());
+                acknowledgment.acknowledge();
+                pipelineMetrics.countMessage(partition, messageType, "skipped");
+                return;
+            }
+            
+            if (TestMessage.CANARY_MESSAGE_TYPE.equals(messageType)) {
+                canaryMonitor.record(message, topic, partition);
+                acknowledgment.acknowledge();
+                pipelineMetrics.countMessage(partition, messageType, "skipped");
+                return;
+            }
+            
+            if (persistence == TopicListenerProperties.Persistence.NONE) {
+                stage = ConsumerPipelineMetrics.Stage.ACK;
+                acknowledgment.acknowledge();
+                pipelineMetrics.recordStage(stage, messageType, SUCCESS, stageStart);
+                pipelineMetrics.countMessage(partition, messageType, SUCCESS);
+                lastConsumptionTime = Instant.now();
+                publishUnstored(message, topic, partition, offset, groupId);
+                return;
+            }
+            
+            PersistencePolicyProperties.Policy policy = persistencePolicy.policyFor(messageType);
+            if (!storesRow(policy, message)) {
+                stage = ConsumerPipelineMetrics.Stage.ACK;
+                aggregationService.record(message, policy.getMode());
+                acknowledgment.acknowledge();
+                pipelineMetrics.recordStage(stage, messageType, SUCCESS, stageStart);
+                pipelineMetrics.countMessage(partition, messageType, SUCCESS);
+                lastConsumptionTime = Instant.now();
+                publishUnstored(message, topic, partition, offset, groupId);
+                return;
+            }
+            
             // Check for duplicate message
-            if (repository.existsByMessageId(message.getMessageId())) {
+            boolean duplicate = repository.existsByMessageId(message.getMessageId());
+            stageStart = pipelineMetrics.recordStage(stage, messageType,
+                duplicate ? "duplicate" : "unique", stageStart);
+            if (duplicate) {
                 log.warn("Duplicate message detected - ID: {}", message.getMessageId());
+                stage = ConsumerPipelineMetrics.Stage.ACK;
                 acknowledgment.acknowledge();
+                pipelineMetrics.recordStage(stage, messageType, SUCCESS, stageStart);
+                pipelineMetrics.countMessage(partition, messageType, "duplicate");
                 return;
             }
             
             // Process and save message
-            ConsumedMessage consumedMessage = ConsumedMessage.builder()
-                .messageId(message.getMessageId())
-                .originalTimestamp(message.getTimestamp())
-                .consumedTimestamp(Instant.now())
-                .sourceAccount(message.getSourceAccount())
-                .targetAccount(message.getTargetAccount())
-                .messageType(message.getMessageType())
-                .payload(convertToMap(message))
-                .batchId(message.getBatchId())
-                .sequenceNumber(message.getSequenceNumber())
-                .kafkaPartition(partition)
-                .kafkaOffset(offset)
-                .consumerGroup(groupId)
-                .processingStatus(ConsumedMessage.ProcessingStatus.SUCCESS)
-                .retryCount(0)
-                .build();
+            stage = ConsumerPipelineMetrics.Stage.BUILD;
+            boolean withPayload = policy.getMode() != PersistencePolicyProperties.Mode.NO_PAYLOAD;
+            if (withPayload) {
+                claimCheckService.resolveIfEager(message);
+            }
+            ConsumedMessage consumedMessage = ConsumedMessageMapper.toEntity(message, partition, offset, groupId,
+                ConsumedMessage.ProcessingStatus.SUCCESS, withPayload);
+            consumedMessage.setTopic(topic);
             
             // Calculate processing duration
             long processingDuration = Instant.now().toEpochMilli() - startTime.toEpochMilli();
             consumedMessage.setProcessingDurationMs(processingDuration);
+            stageStart = pipelineMetrics.recordStage(stage, messageType, SUCCESS, stageStart);
             
+            stage = ConsumerPipelineMetrics.Stage.SAVE;
+            long saveStart = stageStart;
             repository.save(consumedMessage);
+            stageStart = pipelineMetrics.recordStage(stage, messageType, SUCCESS, stageStart);
+            recordSaveLatency(stageStart - saveStart);
             
-            totalMessagesConsumed.incrementAndGet();
-            totalSuccessfulMessages.incrementAndGet();
-            lastConsumptionTime = Instant.now();
-            
+            stage = ConsumerPipelineMetrics.Stage.ACK;
             acknowledgment.acknowledge();
+            recordProcessingLatency(pipelineMetrics.recordStage(stage, messageType, SUCCESS, stageStart)
+                - receivedNanos);
+            
+            pipelineMetrics.countMessage(partition, messageType, SUCCESS);
+            lastConsumptionTime = Instant.now();
+            liveTailService.publishAfterCommit(consumedMessage);
             
             log.debug("Message processed successfully - ID: {}, Duration: {}ms", 
                 message.getMessageId(), processingDuration);
             
         } catch (Exception e) {
             log.error("Error processing message - ID: {}", message.getMessageId(), e);
-            totalFailedMessages.incrementAndGet();
+            pipelineMetrics.recordStage(stage, messageType, FAILURE, stageStart);
+            pipelineMetrics.countMessage(partition, messageType, FAILURE);
             
             // Save failed message with error details
             try {
-                ConsumedMessage failedMessage = ConsumedMessage.builder()
-                    .messageId(message.getMessageId())
-                    .originalTimestamp(message.getTimestamp())
-                    .consumedTimestamp(Instant.now())
-                    .sourceAccount(message.getSourceAccount())
-                    .targetAccount(message.getTargetAccount())
-                    .messageType(message.getMessageType())
-                    .payload(convertToMap(message))
-                    .batchId(message.getBatchId())
-                    .sequenceNumber(message.getSequenceNumber())
-                    .kafkaPartition(partition)
-                    .kafkaOffset(offset)
-                    .consumerGroup(groupId)
-                    .processingStatus(ConsumedMessage.ProcessingStatus.FAILED)
-                    .errorMessage(e.getMessage())
-                    .retryCount(0)
-                    .processingDurationMs(Instant.now().toEpochMilli() - startTime.toEpochMilli())
-                    .build();
+                ConsumedMessage failedMessage = ConsumedMessageMapper.toEntity(message, partition, offset, groupId,
+                    ConsumedMessage.ProcessingStatus.FAILED);
+                failedMessage.setTopic(topic);
+                failedMessage.setErrorMessage(e.getMessage());
+                failedMessage.setProcessingDurationMs(Instant.now().toEpochMilli() - startTime.toEpochMilli());
                 
                 repository.save(failedMessage);
                 acknowledgment.acknowledge(); // Acknowledge even on failure to avoid reprocessing
+                liveTailService.publishAfterCommit(failedMessage);
                 
             } catch (Exception saveException) {
                 log.error("Failed to save error record", saveException);
@@ -122,29 +278,65 @@ public class MessageConsumerService {
         }
     }
     
-    private Map<String, Object> convertToMap(TestMessage message) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("messageId", message.getMessageId());
-        map.put("timestamp", message.getTimestamp() != null ? message.getTimestamp().toString() : null);
-        map.put("sourceAccount", message.getSourceAccount());
-        map.put("targetAccount", message.getTargetAccount());
-        map.put("payload", message.getPayload());
-        map.put("messageType", message.getMessageType());
-        map.put("batchId", message.getBatchId());
-        map.put("sequenceNumber", message.getSequenceNumber());
-        return map;
+    private static boolean storesRow(PersistencePolicyProperties.Policy policy, TestMessage message) {
+        return switch (policy.getMode()) {
+            case FULL, NO_PAYLOAD -> true;
+            // Decided by message ID, so a redelivered message is sampled the same way and still deduplicated
+            case SAMPLED -> policy.getSampleRate() <= 1
+                || Math.floorMod(Objects.hashCode(message.getMessageId()), policy.getSampleRate()) == 0;
+            case AGGREGATE -> false;
+        };
+    }
+    
+    // Nothing is stored for these messages, so the entity is only built while someone is watching
+    private void publishUnstored(TestMessage message, String topic, int partition, long offset, String groupId) {
+        if (liveTailService.hasSubscribers()) {
+            ConsumedMessage tailed = ConsumedMessageMapper.toEntity(message, partition, offset, groupId,
+                ConsumedMessage.ProcessingStatus.SUCCESS);
+            tailed.setTopic(topic);
+            liveTailService.publish(tailed);
+        }
+    }
+    
+    private void recordSaveLatency(long nanos) {
+        double latencyMs = nanos / 1_000_000.0;
+        recentSaveLatencyMs = getRecentSaveLatencyMs() * 0.9 + latencyMs * 0.1;
+        lastSaveNanos = System.nanoTime();
+    }
+    
+    /**
+     * The weighted save latency, halved for every {@link #LATENCY_HALF_LIFE_NANOS} without a save,
+     * so a reading taken just before ingestion stopped does not keep background jobs backed off.
+     */
+    public double getRecentSaveLatencyMs() {
+        long idleNanos = System.nanoTime() - lastSaveNanos;
+        return recentSaveLatencyMs * Math.pow(0.5, (double) idleNanos / LATENCY_HALF_LIFE_NANOS);
+    }
+    
+    private void recordProcessingLatency(long nanos) {
+        double latencyMs = nanos / 1_000_000.0;
+        recentProcessingLatencyMs = recentProcessingLatencyMs * 0.9 + latencyMs * 0.1;
+    }
+    
+    public double getRecentProcessingLatencyMs() {
+        return recentProcessingLatencyMs;
     }
     
     public Map<String, Object> getConsumerMetrics() {
+        long successful = pipelineMetrics.messageCount(SUCCESS);
+        long failed = pipelineMetrics.messageCount(FAILURE);
+        long consumed = successful + failed;
+        
         Map<String, Object> metrics = new HashMap<>();
-        metrics.put("totalMessagesConsumed", totalMessagesConsumed.get());
-        metrics.put("totalSuccessfulMessages", totalSuccessfulMessages.get());
-        metrics.put("totalFailedMessages", totalFailedMessages.get());
+        metrics.put("totalMessagesConsumed", consumed);
+        metrics.put("totalSuccessfulMessages", successful);
+        metrics.put("totalFailedMessages", failed);
+        metrics.put("totalDuplicateMessages", pipelineMetrics.messageCount("duplicate"));
         metrics.put("lastConsumptionTime", lastConsumptionTime != null ? lastConsumptionTime.toString() : "Never");
         
-        double successRate = totalMessagesConsumed.get() > 0 ? 
-            (double) totalSuccessfulMessages.get() / totalMessagesConsumed.get() * 100 : 0;
+        double successRate = consumed > 0 ? (double) successful / consumed * 100 : 0;
         metrics.put("successRate", successRate);
+        metrics.put("stages", pipelineMetrics.stageSummary());
         
         return metrics;
     }
@@ -0,0 +1,173 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.entity.ConsumedMessage;
+import com.example.msk.consumer.repository.ConsumedMessageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageExportService {
+    
+    private static final String CSV_HEADER = "id,messageId,originalTimestamp,consumedTimestamp,sourceAccount," +
+        "targetAccount,messageType,batchId,sequenceNumber,processingDurationMs,kafkaPartition,kafkaOffset," +
+        "processingStatus,errorMessage,payload";
+    
+    private final ConsumedMessageRepository repository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${consumer.export.flush-every-rows:1000}")
+    private Integer flushEveryRows;
+    
+    @Getter
+    @RequiredArgsConstructor
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+        
+        private final String contentType;
+        private final String extension;
+    }
+    
+    /**
+     * Streams every message consumed in [start, end) to the given output, one row at a time.
+     * Rows are read through a server-side cursor and detached after being written, so heap
+     * usage does not grow with the size of the export.
+     */
+    @Transactional(readOnly = true)
+    public long export(Instant start, Instant end, ExportFormat format, boolean gzip, OutputStream out)
+            throws IOException {
+        Instant exportStart = Instant.now();
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        long rows;
+        
+        try (Stream<ConsumedMessage> messages = repository.streamByConsumedTimestampBetween(start, end)) {
+            Iterator<ConsumedMessage> iterator = messages.iterator();
+            rows = format == ExportFormat.CSV ? writeCsv(iterator, target) : writeNdjson(iterator, target);
+        }
+        
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        out.flush();
+        
+        log.info("Exported {} messages as {} (gzip: {}) in {}ms", rows, format, gzip,
+            Instant.now().toEpochMilli() - exportStart.toEpochMilli());
+        return rows;
+    }
+    
+    private long writeNdjson(Iterator<ConsumedMessage> messages, OutputStream out) throws IOException {
+        long rows = 0;
+        JsonGenerator generator = objectMapper.createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        
+        while (messages.hasNext()) {
+            ConsumedMessage message = messages.next();
+            generator.writeStartObject();
+            generator.writeNumberField("id", message.getId());
+            generator.writeStringField("messageId", message.getMessageId());
+            writeInstant(generator, "originalTimestamp", message.getOriginalTimestamp());
+            writeInstant(generator, "consumedTimestamp", message.getConsumedTimestamp());
+            generator.writeStringField("sourceAccount", message.getSourceAccount());
+            generator.writeStringField("targetAccount", message.getTargetAccount());
+            generator.writeStringField("messageType", message.getMessageType());
+            generator.writeStringField("batchId", message.getBatchId());
+            generator.writeObjectField("sequenceNumber", message.getSequenceNumber());
+            generator.writeObjectField("processingDurationMs", message.getProcessingDurationMs());
+            generator.writeObjectField("kafkaPartition", message.getKafkaPartition());
+            generator.writeObjectField("kafkaOffset", message.getKafkaOffset());
+            generator.writeStringField("processingStatus",
+                message.getProcessingStatus() != null ? message.getProcessingStatus().toString() : null);
+            generator.writeStringField("errorMessage", message.getErrorMessage());
+            generator.writeObjectField("payload", message.getPayload());
+            generator.writeEndObject();
+            
+            entityManager.detach(message);
+            if (++rows % flushEveryRows == 0) {
+                generator.flush();
+            }
+        }
+        
+        if (rows > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+        return rows;
+    }
+    
+    private long writeCsv(Iterator<ConsumedMessage> messages, OutputStream out) throws IOException {
+        long rows = 0;
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.newLine();
+        
+        while (messages.hasNext()) {
+            ConsumedMessage message = messages.next();
+            writer.write(String.valueOf(message.getId()));
+            writeCsvField(writer, message.getMessageId());
+            writeCsvField(writer, message.getOriginalTimestamp());
+            writeCsvField(writer, message.getConsumedTimestamp());
+            writeCsvField(writer, message.getSourceAccount());
+            writeCsvField(writer, message.getTargetAccount());
+            writeCsvField(writer, message.getMessageType());
+            writeCsvField(writer, message.getBatchId());
+            writeCsvField(writer, message.getSequenceNumber());
+            writeCsvField(writer, message.getProcessingDurationMs());
+            writeCsvField(writer, message.getKafkaPartition());
+            writeCsvField(writer, message.getKafkaOffset());
+            writeCsvField(writer, message.getProcessingStatus());
+            writeCsvField(writer, message.getErrorMessage());
+            writeCsvField(writer, message.getPayload() != null ?
+                objectMapper.writeValueAsString(message.getPayload()) : null);
+            writer.newLine();
+            
+            entityManager.detach(message);
+            if (++rows % flushEveryRows == 0) {
+                writer.flush();
+            }
+        }
+        
+        writer.flush();
+        return rows;
+    }
+    
+    private void writeInstant(JsonGenerator generator, String field, Instant value) throws IOException {
+        generator.writeStringField(field, value != null ? value.toString() : null);
+    }
+    
+    private void writeCsvField(BufferedWriter writer, Object value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+    }
+}
\ No newline at end of file
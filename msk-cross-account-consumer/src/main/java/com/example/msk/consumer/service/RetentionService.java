@@ -0,0 +1,166 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.RetentionProperties;
+import com.example.msk.consumer.entity.ConsumedMessage;
+import com.example.msk.consumer.repository.ConsumedMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purges expired rows from consumed_messages in small primary-key ranges, one short transaction
+ * per chunk, so the table is never locked by a single large DELETE. Throughput is capped by a
+ * rows-per-second budget and purging pauses while the listener's save latency is elevated.
+ * Policies are exclusive: a row is only purged by the first policy whose filters match it, so a
+ * catch-all listed last never deletes rows that a more specific policy keeps for longer. Runs
+ * sleep while throttled or backed off, so they get their own thread instead of Spring's shared
+ * scheduler.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "consumer.retention.enabled", havingValue = "true")
+@Slf4j
+public class RetentionService {
+    
+    private final ConsumedMessageRepository repository;
+    private final RetentionProperties properties;
+    private final MessageConsumerService consumerService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private ScheduledExecutorService executor;
+    
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::purgeExpiredMessages, properties.getInitialDelayMs(),
+            properties.getIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+    
+    public void purgeExpiredMessages() {
+        Timer.Sample runSample = Timer.start(meterRegistry);
+        long totalPurged = 0;
+        
+        for (RetentionProperties.Policy policy : properties.getPolicies()) {
+            if (policy.getMaxAge() == null) {
+                log.warn("Skipping retention policy '{}' without max-age", policy.getName());
+                continue;
+            }
+            try {
+                totalPurged += applyPolicy(policy);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Retention run interrupted");
+                break;
+            } catch (Exception e) {
+                log.error("Retention policy '{}' failed", policy.getName(), e);
+            }
+        }
+        
+        runSample.stop(meterRegistry.timer("consumer.retention.run.duration"));
+        if (totalPurged > 0) {
+            log.info("Retention run completed - Rows purged: {}", totalPurged);
+        }
+    }
+    
+    private long applyPolicy(RetentionProperties.Policy policy) throws InterruptedException {
+        Instant cutoff = Instant.now().minus(policy.getMaxAge());
+        
+        Counter purgedCounter = meterRegistry.counter("consumer.retention.rows.purged", "policy", policy.getName());
+        Counter archivedCounter = meterRegistry.counter("consumer.retention.rows.archived", "policy", policy.getName());
+        Counter backoffCounter = meterRegistry.counter("consumer.retention.backoffs", "policy", policy.getName());
+        Timer chunkTimer = meterRegistry.timer("consumer.retention.chunk.duration", "policy", policy.getName());
+        
+        long purged = 0;
+        long afterId = 0;
+        int backoffs = 0;
+        long windowStart = System.nanoTime();
+        long windowRows = 0;
+        
+        while (true) {
+            // Yield to ingestion while the listener is struggling to write
+            if (consumerService.getRecentSaveLatencyMs() > properties.getBackoffLatencyThresholdMs()) {
+                if (++backoffs > properties.getMaxBackoffsPerRun()) {
+                    log.info("Retention policy '{}' deferred to next run - ingestion latency {}ms", 
+                        policy.getName(), String.format("%.1f", consumerService.getRecentSaveLatencyMs()));
+                    break;
+                }
+                backoffCounter.increment();
+                Thread.sleep(properties.getBackoffMs());
+                windowStart = System.nanoTime();
+                windowRows = 0;
+                continue;
+            }
+            
+            List<Object[]> candidates = repository.findExpiredCandidates(afterId, cutoff, policy.getMessageType(),
+                policy.getStatus(), PageRequest.of(0, properties.getChunkSize()));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            afterId = (Long) candidates.get(candidates.size() - 1)[0];
+            
+            // Rows an earlier policy also matches are left to that policy's max-age
+            List<Long> ids = new ArrayList<>(candidates.size());
+            for (Object[] row : candidates) {
+                if (properties.policyFor((String) row[1], (ConsumedMessage.ProcessingStatus) row[2]) == policy) {
+                    ids.add((Long) row[0]);
+                }
+            }
+            if (ids.isEmpty()) {
+                continue;
+            }
+            long chunkStart = System.nanoTime();
+            
+            int[] result = transactionTemplate.execute(tx -> {
+                int archived = properties.isArchiveEnabled() ? repository.archiveExpired(ids, cutoff) : 0;
+                int deleted = repository.deleteExpired(ids, cutoff);
+                return new int[] {archived, deleted};
+            });
+            
+            chunkTimer.record(System.nanoTime() - chunkStart, TimeUnit.NANOSECONDS);
+            archivedCounter.increment(result[0]);
+            purgedCounter.increment(result[1]);
+            purged += result[1];
+            windowRows += result[1];
+            
+            throttle(windowStart, windowRows);
+        }
+        
+        if (purged > 0) {
+            log.info("Retention policy '{}' purged {} rows older than {}", policy.getName(), purged, cutoff);
+        }
+        return purged;
+    }
+    
+    // Sleeps just long enough to keep the purge rate at or below the configured budget
+    private void throttle(long windowStartNanos, long windowRows) throws InterruptedException {
+        long expectedNanos = windowRows * 1_000_000_000L / Math.max(1, properties.getRowsPerSecond());
+        long elapsedNanos = System.nanoTime() - windowStartNanos;
+        if (expectedNanos > elapsedNanos) {
+            Thread.sleep((expectedNanos - elapsedNanos) / 1_000_000L);
+        }
+    }
+}
\ No newline at end of file
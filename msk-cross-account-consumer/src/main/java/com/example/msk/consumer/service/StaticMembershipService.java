@@ -0,0 +1,65 @@
+package com.example.msk.consumer.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.MemberToRemove;
+import org.apache.kafka.clients.admin.RemoveMembersFromConsumerGroupOptions;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+/**
+ * A static member (one with a {@code group.instance.id}) does not leave its group when its
+ * consumer closes, so a restart within the session timeout gets the same partitions back without a
+ * rebalance. Consumers that are removed for good - a container shrunk by adaptive concurrency or a
+ * topic listener that was unregistered - would hold their partitions until the session times out,
+ * so they are removed from the group explicitly.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StaticMembershipService {
+    
+    private static final long REMOVE_TIMEOUT_SECONDS = 10;
+    
+    private final ConsumerFactory<String, Object> consumerFactory;
+    
+    /**
+     * Removes the container's consumers with index {@code fromIndex} (inclusive) to
+     * {@code toIndex} (exclusive) from its group; does nothing for dynamic members. The consumers
+     * must already be stopped.
+     */
+    public void leaveGroup(MessageListenerContainer container, int fromIndex, int toIndex) {
+        String instanceId = container.getContainerProperties().getKafkaConsumerProperties()
+            .getProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG);
+        if (!StringUtils.hasText(instanceId) || fromIndex >= toIndex) {
+            return;
+        }
+        // Each child consumer of a concurrent container appends "-<index>" to the instance ID
+        List<MemberToRemove> members = IntStream.range(fromIndex, toIndex)
+            .mapToObj(index -> new MemberToRemove(instanceId + "-" + index))
+            .toList();
+        try (Admin admin = Admin.create(consumerFactory.getConfigurationProperties())) {
+            admin.removeMembersFromConsumerGroup(container.getGroupId(), new RemoveMembersFromConsumerGroupOptions(members))
+                .all()
+                .get(REMOVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            log.info("Removed static members from group {} - Instances: {}-[{}..{}]",
+                container.getGroupId(), instanceId, fromIndex, toIndex - 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Their partitions are reassigned once the session times out
+            log.warn("Could not remove static members {}-[{}..{}] from group {}: {}",
+                instanceId, fromIndex, toIndex - 1, container.getGroupId(), e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,597 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.FairShareProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Schedules database writes fairly across source accounts (tenants). Listener threads only append
+ * a record to its tenant's queue, so a tenant with a backlog never blocks the records of other
+ * tenants behind it on the same partition. Worker threads pick the next record with two rules:
+ * <ul>
+ *   <li>tenants with a token in their bucket, refilled at {@code rate-per-second} times their
+ *       weight, go before tenants that have used up their share;</li>
+ *   <li>within each group, start-time fair queuing in weight order: a tenant of weight 2 is served
+ *       twice as often as one of weight 1, and a tenant that was idle starts level with the rest.</li>
+ * </ul>
+ * Tenants over their share get idle capacity when {@code work-conserving} is set and otherwise wait
+ * for their next token. At most one record per partition is written at a time, and a tenant's records
+ * of a partition are written in offset order, so redeliveries of a message never race each other's
+ * duplicate check.
+ * <p>
+ * Acknowledgements go through {@link #track}, which hands them to the container in offset order, so
+ * a partition's commit never passes a record that is still queued. A partition with
+ * {@code max-pending-per-partition} unacknowledged records is paused on its own; the consumer keeps
+ * fetching its other partitions.
+ */
+@Service
+@Slf4j
+public class TenantFairShareService {
+    
+    public static final String OTHER_TENANT = "other";
+    private static final String UNKNOWN_TENANT = "unknown";
+    
+    private final FairShareProperties properties;
+    private final Tracer tracer;
+    private final MeterRegistry meterRegistry;
+    private final KafkaListenerEndpointRegistry registry;
+    private final int workerCount;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    // Guarded by lock, as are the tenants' queues, tokens and virtual times and the partitions' state
+    private final Map<String, Tenant> tenants = new LinkedHashMap<>();
+    private final Map<TopicPartition, Partition> partitions = new HashMap<>();
+    private final Set<TopicPartition> busyPartitions = new HashSet<>();
+    private double virtualTime;
+    private int queued;
+    private int busyWorkers;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Counter discardedCounter;
+    private final Counter pausedCounter;
+    private volatile boolean running = true;
+    
+    record Task(TopicPartition partition, Runnable runnable, Span span, long queuedAtNanos) {
+    }
+    
+    public TenantFairShareService(FairShareProperties properties, Tracer tracer, MeterRegistry meterRegistry,
+                                  KafkaListenerEndpointRegistry registry,
+                                  @Value("${spring.datasource.hikari.maximum-pool-size:10}") int primaryPoolSize) {
+        this.properties = properties;
+        this.tracer = tracer;
+        this.meterRegistry = meterRegistry;
+        this.registry = registry;
+        // Every busy worker holds a primary-pool connection
+        int available = Math.max(1, primaryPoolSize - properties.getReservedConnections());
+        this.workerCount = Math.min(Math.max(1, properties.getWorkers()), available);
+        this.discardedCounter = Counter.builder("consumer.fairshare.discarded")
+            .description("Queued records dropped because their partition was revoked")
+            .register(meterRegistry);
+        this.pausedCounter = Counter.builder("consumer.fairshare.partition.pauses")
+            .description("Times a partition was paused because too many of its records were unacknowledged")
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (workerCount < properties.getWorkers()) {
+            log.warn("Fair-share workers capped at {} of {} - the primary pool keeps {} connections for other work",
+                workerCount, properties.getWorkers(), properties.getReservedConnections());
+        }
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(this::work, "fair-share-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("Fair-share scheduling enabled - Workers: {}, Rate: {}/s per unit weight, Work-conserving: {}",
+            workers.size(), properties.getRatePerSecond(), properties.isWorkConserving());
+    }
+    
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+    
+    /**
+     * Registers a record the listener received; called on the listener thread in offset order. The
+     * returned acknowledgement may be used from any thread, and the container sees it once every
+     * earlier record of the partition is acknowledged as well.
+     */
+    public TrackedAcknowledgment track(TopicPartition topicPartition, long offset, Acknowledgment acknowledgment) {
+        lock.lock();
+        try {
+            Partition partition = partitions.computeIfAbsent(topicPartition, Partition::new);
+            // After a seek the container redelivers from the failed record on
+            while (!partition.unacknowledged.isEmpty() && partition.unacknowledged.peekLast().offset >= offset) {
+                partition.unacknowledged.pollLast();
+            }
+            TrackedAcknowledgment tracked = new TrackedAcknowledgment(partition, offset, acknowledgment);
+            partition.unacknowledged.add(tracked);
+            if (!partition.paused && partition.unacknowledged.size() >= properties.getMaxPendingPerPartition()) {
+                pause(partition);
+            }
+            return tracked;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Queues the task for the tenant and returns at once. The task runs on a worker thread inside
+     * the caller's current span, so its work stays part of the record's trace.
+     */
+    public void submit(String sourceAccount, TopicPartition partition, Runnable runnable) {
+        Task task = new Task(partition, runnable, tracer.currentSpan(), System.nanoTime());
+        lock.lock();
+        try {
+            Tenant tenant = tenant(sourceAccount);
+            if (tenant.queues.isEmpty()) {
+                // An idle tenant neither saves up service nor falls behind the others
+                tenant.virtualTime = Math.max(tenant.virtualTime, virtualTime);
+            }
+            tenant.add(task);
+            queued++;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Drops queued records and acknowledgement state of partitions this instance no longer owns;
+     * their next owner resumes from the last committed offset and processes them instead.
+     */
+    public void forget(Collection<TopicPartition> revoked) {
+        int discarded = 0;
+        lock.lock();
+        try {
+            for (TopicPartition topicPartition : revoked) {
+                Partition partition = partitions.remove(topicPartition);
+                if (partition != null && partition.paused) {
+                    resume(partition);
+                }
+            }
+            for (Tenant tenant : tenants.values()) {
+                discarded += tenant.drop(revoked);
+            }
+            queued -= discarded;
+        } finally {
+            lock.unlock();
+        }
+        if (discarded > 0) {
+            discardedCounter.increment(discarded);
+            log.info("Discarded {} queued records of revoked partitions {}", discarded, revoked);
+        }
+    }
+    
+    private void work() {
+        while (running) {
+            Task task;
+            lock.lock();
+            try {
+                task = next();
+                if (task == null) {
+                    return;
+                }
+                busyWorkers++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                run(task);
+            } catch (RuntimeException e) {
+                log.error("Fair-share task failed - Partition: {}", task.partition(), e);
+            } finally {
+                lock.lock();
+                try {
+                    busyWorkers--;
+                    complete(task);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+    
+    private void run(Task task) {
+        if (task.span() == null) {
+            task.runnable().run();
+            return;
+        }
+        try (Tracer.SpanInScope scope = tracer.withSpan(task.span())) {
+            task.runnable().run();
+        }
+    }
+    
+    // Called with the lock held; waits until a task may run, or returns null on shutdown
+    private Task next() throws InterruptedException {
+        while (running) {
+            long now = System.nanoTime();
+            Task task = pollLocked(now);
+            if (task != null) {
+                return task;
+            }
+            long waitNanos = nanosUntilToken(now);
+            if (waitNanos < 0) {
+                workAvailable.await();
+            } else {
+                workAvailable.awaitNanos(waitNanos);
+            }
+        }
+        return null;
+    }
+    
+    // Takes the next task that may start now and marks its partition busy
+    Task poll(long now) {
+        lock.lock();
+        try {
+            return pollLocked(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private Task pollLocked(long now) {
+        Tenant withinShare = null;
+        Tenant overShare = null;
+        for (Tenant tenant : tenants.values()) {
+            if (!tenant.hasRunnable()) {
+                continue;
+            }
+            tenant.refill(now);
+            if (tenant.tokens >= 1) {
+                if (withinShare == null || tenant.virtualTime < withinShare.virtualTime) {
+                    withinShare = tenant;
+                }
+            } else if (overShare == null || tenant.virtualTime < overShare.virtualTime) {
+                overShare = tenant;
+            }
+        }
+        
+        Tenant tenant = withinShare;
+        if (tenant == null && properties.isWorkConserving()) {
+            tenant = overShare;
+        }
+        if (tenant == null) {
+            return null;
+        }
+        
+        boolean throttled = tenant.tokens < 1;
+        if (!throttled) {
+            tenant.tokens -= 1;
+        }
+        virtualTime = tenant.virtualTime;
+        tenant.virtualTime += 1.0 / tenant.weight;
+        Task task = tenant.take();
+        busyPartitions.add(task.partition());
+        queued--;
+        
+        tenant.messageCounter.increment();
+        if (throttled) {
+            tenant.throttledCounter.increment();
+        }
+        tenant.waitTimer.record(now - task.queuedAtNanos(), TimeUnit.NANOSECONDS);
+        return task;
+    }
+    
+    void complete(Task task) {
+        lock.lock();
+        try {
+            busyPartitions.remove(task.partition());
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Called with the lock held: how long until a waiting tenant earns a token, or -1 if none waits
+    private long nanosUntilToken(long now) {
+        long wait = -1;
+        for (Tenant tenant : tenants.values()) {
+            if (tenant.hasRunnable()) {
+                tenant.refill(now);
+                long tenantWait = tenant.nanosUntilToken();
+                wait = wait < 0 ? tenantWait : Math.min(wait, tenantWait);
+            }
+        }
+        return wait;
+    }
+    
+    // Called with the lock held
+    private Tenant tenant(String sourceAccount) {
+        String name = sourceAccount == null || sourceAccount.isBlank() ? UNKNOWN_TENANT : sourceAccount;
+        Tenant tenant = tenants.get(name);
+        if (tenant == null && tenants.size() >= properties.getMaxTenants()) {
+            name = OTHER_TENANT;
+            tenant = tenants.get(name);
+        }
+        if (tenant == null) {
+            tenant = new Tenant(name);
+            tenants.put(name, tenant);
+            if (OTHER_TENANT.equals(name)) {
+                log.warn("Fair-share tenant limit of {} reached - further source accounts share the '{}' tenant",
+                    properties.getMaxTenants(), OTHER_TENANT);
+            }
+        }
+        return tenant;
+    }
+    
+    // Called with the lock held, so a pause and the resume after it reach the container in that order.
+    // The pause goes to the consumer that owns the partition, which keeps fetching its other partitions
+    private void pause(Partition partition) {
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            List<? extends MessageListenerContainer> consumers =
+                container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent
+                    ? concurrent.getContainers() : List.of(container);
+            for (MessageListenerContainer consumer : consumers) {
+                Collection<TopicPartition> assigned = consumer.getAssignedPartitions();
+                if (assigned != null && assigned.contains(partition.topicPartition)) {
+                    consumer.pausePartition(partition.topicPartition);
+                    partition.pausedIn = consumer;
+                    partition.paused = true;
+                    pausedCounter.increment();
+                    log.debug("Paused partition {} - Unacknowledged: {}", partition.topicPartition,
+                        partition.unacknowledged.size());
+                    return;
+                }
+            }
+        }
+    }
+    
+    // Called with the lock held
+    private void resume(Partition partition) {
+        if (partition.pausedIn != null) {
+            partition.pausedIn.resumePartition(partition.topicPartition);
+            partition.pausedIn = null;
+        }
+        partition.paused = false;
+        log.debug("Resumed partition {}", partition.topicPartition);
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("enabled", properties.isEnabled());
+        details.put("workers", workers.size());
+        details.put("workConserving", properties.isWorkConserving());
+        details.put("ratePerSecond", properties.getRatePerSecond());
+        Map<String, Object> tenantDetails = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            details.put("busyWorkers", busyWorkers);
+            details.put("queued", queued);
+            details.put("unacknowledged", partitions.values().stream().mapToInt(p -> p.unacknowledged.size()).sum());
+            details.put("pausedPartitions", partitions.values().stream().filter(p -> p.paused)
+                .map(p -> p.topicPartition.toString()).sorted().toList());
+            long now = System.nanoTime();
+            for (Tenant tenant : tenants.values()) {
+                tenant.refill(now);
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("weight", tenant.weight);
+                stats.put("tokens", Math.round(tenant.tokens * 10) / 10.0);
+                stats.put("queued", tenant.queuedCount.get());
+                stats.put("messages", (long) tenant.messageCounter.count());
+                stats.put("throttled", (long) tenant.throttledCounter.count());
+                stats.put("waitMeanMs", Math.round(tenant.waitTimer.mean(TimeUnit.MILLISECONDS) * 100) / 100.0);
+                stats.put("waitMaxMs", Math.round(tenant.waitTimer.max(TimeUnit.MILLISECONDS) * 100) / 100.0);
+                tenantDetails.put(tenant.name, stats);
+            }
+        } finally {
+            lock.unlock();
+        }
+        details.put("tenants", tenantDetails);
+        return details;
+    }
+    
+    @PreDestroy
+    public void close() {
+        running = false;
+        lock.lock();
+        try {
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * A record's acknowledgement. It is passed on to the container once all earlier records of the
+     * partition are acknowledged, and dropped if the partition was revoked in the meantime.
+     */
+    public final class TrackedAcknowledgment implements Acknowledgment {
+        
+        private final Partition partition;
+        private final long offset;
+        private final Acknowledgment delegate;
+        // Guarded by lock
+        private boolean done;
+        
+        private TrackedAcknowledgment(Partition partition, long offset, Acknowledgment delegate) {
+            this.partition = partition;
+            this.offset = offset;
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public void acknowledge() {
+            TrackedAcknowledgment last = null;
+            lock.lock();
+            try {
+                if (done || isRevoked()) {
+                    return;
+                }
+                done = true;
+                while (!partition.unacknowledged.isEmpty() && partition.unacknowledged.peek().done) {
+                    last = partition.unacknowledged.poll();
+                }
+                if (partition.paused && partition.unacknowledged.size() <= properties.getMaxPendingPerPartition() / 2) {
+                    resume(partition);
+                }
+            } finally {
+                lock.unlock();
+            }
+            // The container commits the highest acknowledged offset, which covers the rest of the run
+            if (last != null) {
+                last.delegate.acknowledge();
+            }
+        }
+        
+        /**
+         * True once this instance lost the partition; the record's next owner processes it again.
+         */
+        public boolean isRevoked() {
+            lock.lock();
+            try {
+                return partitions.get(partition.topicPartition) != partition;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    // Acknowledgement state of an assigned partition; replaced when the partition comes back
+    private static final class Partition {
+        
+        private final TopicPartition topicPartition;
+        private final ArrayDeque<TrackedAcknowledgment> unacknowledged = new ArrayDeque<>();
+        private boolean paused;
+        private MessageListenerContainer pausedIn;
+        
+        private Partition(TopicPartition topicPartition) {
+            this.topicPartition = topicPartition;
+        }
+    }
+    
+    private final class Tenant {
+        
+        private final String name;
+        private final double weight;
+        private final double tokensPerNano;
+        private final double capacity;
+        // Non-empty queues only, in the order the tenant's partitions take turns
+        private final LinkedHashMap<TopicPartition, ArrayDeque<Task>> queues = new LinkedHashMap<>();
+        private final AtomicInteger queuedCount = new AtomicInteger();
+        private final Counter messageCounter;
+        private final Counter throttledCounter;
+        private final Timer waitTimer;
+        private double tokens;
+        private long refilledAtNanos = System.nanoTime();
+        private double virtualTime;
+        
+        private Tenant(String name) {
+            this.name = name;
+            this.weight = properties.weightOf(name);
+            double rate = properties.getRatePerSecond() * weight;
+            this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = Math.max(1, rate * properties.getBurstSeconds());
+            this.tokens = capacity;
+            this.messageCounter = Counter.builder("consumer.fairshare.messages")
+                .description("Records written through the fair-share scheduler, per source account")
+                .tag("tenant", name)
+                .register(meterRegistry);
+            this.throttledCounter = Counter.builder("consumer.fairshare.throttled")
+                .description("Records of a source account that had used up its share when they were written")
+                .tag("tenant", name)
+                .register(meterRegistry);
+            this.waitTimer = Timer.builder("consumer.fairshare.wait")
+                .description("Time records wait in their source account's queue")
+                .tag("tenant", name)
+                .register(meterRegistry);
+            Gauge.builder("consumer.fairshare.queued", queuedCount, AtomicInteger::get)
+                .description("Records waiting in the source account's queue")
+                .tag("tenant", name)
+                .register(meterRegistry);
+        }
+        
+        private void add(Task task) {
+            queues.computeIfAbsent(task.partition(), partition -> new ArrayDeque<>()).add(task);
+            queuedCount.incrementAndGet();
+        }
+        
+        private boolean hasRunnable() {
+            for (TopicPartition partition : queues.keySet()) {
+                if (!busyPartitions.contains(partition)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        // The oldest task of the first partition no worker is writing; that partition then goes last
+        private Task take() {
+            Iterator<Map.Entry<TopicPartition, ArrayDeque<Task>>> iterator = queues.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<TopicPartition, ArrayDeque<Task>> entry = iterator.next();
+                if (busyPartitions.contains(entry.getKey())) {
+                    continue;
+                }
+                ArrayDeque<Task> queue = entry.getValue();
+                Task task = queue.poll();
+                iterator.remove();
+                if (!queue.isEmpty()) {
+                    queues.put(entry.getKey(), queue);
+                }
+                queuedCount.decrementAndGet();
+                return task;
+            }
+            return null;
+        }
+        
+        private int drop(Collection<TopicPartition> revoked) {
+            int dropped = 0;
+            for (TopicPartition partition : revoked) {
+                ArrayDeque<Task> queue = queues.remove(partition);
+                if (queue != null) {
+                    dropped += queue.size();
+                }
+            }
+            queuedCount.addAndGet(-dropped);
+            return dropped;
+        }
+        
+        private void refill(long now) {
+            if (now > refilledAtNanos) {
+                tokens = Math.min(capacity, tokens + (now - refilledAtNanos) * tokensPerNano);
+                refilledAtNanos = now;
+            }
+        }
+        
+        private long nanosUntilToken() {
+            return tokensPerNano > 0 ? Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano))
+                : TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+}
\ No newline at end of file
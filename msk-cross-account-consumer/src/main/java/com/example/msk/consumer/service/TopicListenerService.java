@@ -0,0 +1,167 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.TopicListenerEndpoint;
+import com.example.msk.consumer.config.TopicListenerProperties;
+import com.example.msk.consumer.dto.TopicListenerStatus;
+import com.example.msk.consumer.model.TestMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Consumes additional topics next to the default {@code aws.msk.topic-name} listener, from one
+ * deployment. Each topic gets its own listener container, registered with the
+ * {@link KafkaListenerEndpointRegistry} with its own concurrency, consumer group and persistence
+ * mode. Topics listed under {@code consumer.topic-listeners.topics} are registered once the
+ * application is ready; more can be added and removed at runtime through the topics API.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TopicListenerService {
+    
+    private static final String ID_PREFIX = "topic-listener-";
+    
+    private final KafkaListenerEndpointRegistry registry;
+    private final ConcurrentKafkaListenerContainerFactory<String, Object> containerFactory;
+    private final MessageConsumerService messageConsumerService;
+    private final StaticMembershipService staticMembershipService;
+    private final TopicListenerProperties properties;
+    
+    @Value("${aws.msk.topic-name}")
+    private String defaultTopic;
+    
+    @Value("${spring.kafka.consumer.group-id}")
+    private String defaultGroupId;
+    
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    
+    private record Registration(TopicListenerProperties.Topic settings, String groupId, boolean configured) {
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerConfiguredTopics() {
+        for (TopicListenerProperties.Topic topic : properties.getTopics()) {
+            try {
+                register(topic, true);
+            } catch (RuntimeException e) {
+                log.error("Failed to register configured listener for topic {}: {}", topic.getTopic(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Starts a listener container for the topic.
+     *
+     * @throws IllegalArgumentException if the settings are out of bounds
+     * @throws IllegalStateException    if the topic is already consumed or the listener limit is reached
+     */
+    public TopicListenerStatus register(TopicListenerProperties.Topic topic) {
+        return register(topic, false);
+    }
+    
+    private synchronized TopicListenerStatus register(TopicListenerProperties.Topic topic, boolean configured) {
+        String name = topic.getTopic();
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Topic is required");
+        }
+        if (topic.getConcurrency() < 1 || topic.getConcurrency() > properties.getMaxConcurrency()) {
+            throw new IllegalArgumentException(String.format("Concurrency must be between 1 and %d",
+                properties.getMaxConcurrency()));
+        }
+        if (name.equals(defaultTopic) || registrations.containsKey(name)) {
+            throw new IllegalStateException("Topic " + name + " is already being consumed");
+        }
+        if (registrations.size() >= properties.getMaxListeners()) {
+            throw new IllegalStateException(String.format("Listener limit of %d reached", properties.getMaxListeners()));
+        }
+        
+        String groupId = topic.getGroupId() != null ? topic.getGroupId() : defaultGroupId;
+        TopicListenerProperties.Persistence persistence = topic.getPersistence();
+        AcknowledgingMessageListener<String, Object> listener = (record, acknowledgment) ->
+            messageConsumerService.dispatch((TestMessage) record.value(), record.topic(), record.partition(),
+                record.offset(), groupId, acknowledgment, persistence);
+        
+        registry.registerListenerContainer(
+            new TopicListenerEndpoint(ID_PREFIX + name, name, groupId, topic.getConcurrency(), listener),
+            containerFactory, true);
+        registrations.put(name, new Registration(topic, groupId, configured));
+        log.info("Registered listener for topic {} - Group: {}, Concurrency: {}, Persistence: {}",
+            name, groupId, topic.getConcurrency(), persistence);
+        return status(name);
+    }
+    
+    /**
+     * Stops and removes the topic's listener container; returns false if the topic was not
+     * registered through this service.
+     */
+    public synchronized boolean unregister(String topic) {
+        if (registrations.remove(topic) == null) {
+            return false;
+        }
+        MessageListenerContainer container = registry.unregisterListenerContainer(ID_PREFIX + topic);
+        if (container != null) {
+            container.stop();
+            staticMembershipService.leaveGroup(container, 0, concurrencyOf(container));
+        }
+        log.info("Unregistered listener for topic {}", topic);
+        return true;
+    }
+    
+    public List<TopicListenerStatus> list() {
+        List<TopicListenerStatus> statuses = new ArrayList<>();
+        // Containers not registered here belong to the annotated default-topic listener
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (!container.getListenerId().startsWith(ID_PREFIX)) {
+                statuses.add(TopicListenerStatus.builder()
+                    .topic(defaultTopic)
+                    .listenerId(container.getListenerId())
+                    .groupId(container.getGroupId())
+                    .concurrency(concurrencyOf(container))
+                    .persistence(TopicListenerProperties.Persistence.FULL.name())
+                    .source("DEFAULT")
+                    .running(container.isRunning())
+                    .assignedPartitions(assignedPartitions(container))
+                    .build());
+            }
+        }
+        registrations.keySet().stream().sorted().forEach(topic -> statuses.add(status(topic)));
+        return statuses;
+    }
+    
+    private TopicListenerStatus status(String topic) {
+        Registration registration = registrations.get(topic);
+        MessageListenerContainer container = registry.getListenerContainer(ID_PREFIX + topic);
+        return TopicListenerStatus.builder()
+            .topic(topic)
+            .listenerId(ID_PREFIX + topic)
+            .groupId(registration.groupId())
+            .concurrency(registration.settings().getConcurrency())
+            .persistence(registration.settings().getPersistence().name())
+            .source(registration.configured() ? "CONFIGURED" : "RUNTIME")
+            .running(container != null && container.isRunning())
+            .assignedPartitions(container != null ? assignedPartitions(container) : 0)
+            .build();
+    }
+    
+    private Integer concurrencyOf(MessageListenerContainer container) {
+        return container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent ? concurrent.getConcurrency() : 1;
+    }
+    
+    private int assignedPartitions(MessageListenerContainer container) {
+        return container.getAssignedPartitions() != null ? container.getAssignedPartitions().size() : 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,242 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.entity.ConsumedMessage;
+import com.example.msk.consumer.model.TestMessage;
+import com.example.msk.consumer.repository.ConsumedMessageRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pays the one-off costs of the first consumed record before the pod is marked ready: opening
+ * the Hikari pools, authenticating against the cluster and fetching topic metadata, and the JIT
+ * warm-up of the JSON deserializer and the JPA insert path. The persistence step runs inside a
+ * transaction that is always rolled back, so no synthetic rows are left behind.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WarmupService {
+    
+    private final List<HikariDataSource> dataSources;
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final ConsumedMessageRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${aws.msk.topic-name}")
+    private String topicName;
+    
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+    
+    @Value("${consumer.warmup.enabled:true}")
+    private Boolean enabled;
+    
+    @Value("${consumer.warmup.deserialization-iterations:2000}")
+    private Integer deserializationIterations;
+    
+    @Value("${consumer.warmup.persistence-iterations:50}")
+    private Integer persistenceIterations;
+    
+    @Value("${consumer.warmup.max-attempts:5}")
+    private Integer maxAttempts;
+    
+    @Value("${consumer.warmup.retry-delay-ms:5000}")
+    private Long retryDelayMs;
+    
+    @Value("${consumer.warmup.step-timeout-ms:30000}")
+    private Long stepTimeoutMs;
+    
+    // Report ready after the last failed attempt instead of keeping the pod out of rotation forever
+    @Value("${consumer.warmup.fail-open:true}")
+    private Boolean failOpen;
+    
+    public enum State {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+    
+    private volatile State state = State.PENDING;
+    private volatile Instant startedAt;
+    private volatile Instant completedAt;
+    private volatile String lastError;
+    private volatile int attempts;
+    private final Map<String, Long> stepDurationsMs = Collections.synchronizedMap(new LinkedHashMap<>());
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmup() {
+        if (!enabled) {
+            log.info("Warm-up disabled - reporting ready immediately");
+            state = State.COMPLETED;
+            return;
+        }
+        Thread thread = new Thread(this::runWarmup, "consumer-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void runWarmup() {
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        
+        while (attempts < maxAttempts) {
+            attempts++;
+            try {
+                timeStep("connectionPools", this::primeConnectionPools);
+                timeStep("metadata", this::fetchMetadata);
+                timeStep("deserialization", this::exerciseDeserialization);
+                timeStep("persistence", this::exercisePersistence);
+                
+                completedAt = Instant.now();
+                lastError = null;
+                state = State.COMPLETED;
+                log.info("Warm-up completed in {}ms after {} attempt(s): {}",
+                    Duration.between(startedAt, completedAt).toMillis(), attempts, stepDurationsMs);
+                return;
+            
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                log.warn("Warm-up attempt {}/{} failed: {}", attempts, maxAttempts, e.getMessage());
+                if (attempts < maxAttempts) {
+                    sleep(retryDelayMs);
+                }
+            }
+        }
+        
+        completedAt = Instant.now();
+        state = State.FAILED;
+        log.error("Warm-up gave up after {} attempts - pod will report {}", attempts,
+            failOpen ? "ready without warm-up" : "not ready");
+    }
+    
+    /**
+     * Checks out minimum-idle connections from every pool at once, so the first listener batch
+     * and the first reporting query do not wait on TCP, TLS and authentication to Postgres.
+     */
+    private void primeConnectionPools() throws Exception {
+        for (HikariDataSource dataSource : dataSources) {
+            int target = Math.max(1, Math.min(dataSource.getMinimumIdle(), dataSource.getMaximumPoolSize()));
+            List<Connection> connections = new ArrayList<>(target);
+            try {
+                for (int i = 0; i < target; i++) {
+                    Connection connection = dataSource.getConnection();
+                    connections.add(connection);
+                    if (!connection.isValid((int) TimeUnit.MILLISECONDS.toSeconds(stepTimeoutMs))) {
+                        throw new IllegalStateException("Invalid connection from pool " + dataSource.getPoolName());
+                    }
+                }
+            } finally {
+                for (Connection connection : connections) {
+                    connection.close();
+                }
+            }
+            log.info("Primed {} connections in pool {}", target, dataSource.getPoolName());
+        }
+    }
+    
+    private void fetchMetadata() {
+        // A short-lived, unsubscribed client: authenticates and loads metadata without joining the group
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer(groupId, "-warmup")) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(topicName, Duration.ofMillis(stepTimeoutMs));
+            if (partitions == null || partitions.isEmpty()) {
+                throw new IllegalStateException("No partition metadata returned for topic " + topicName);
+            }
+            log.info("Fetched metadata for topic {} - {} partitions", topicName, partitions.size());
+        }
+    }
+    
+    private void exerciseDeserialization() {
+        try (JsonSerializer<TestMessage> serializer = new JsonSerializer<>();
+             JsonDeserializer<TestMessage> deserializer = new JsonDeserializer<>(TestMessage.class, false)) {
+            serializer.setAddTypeInfo(false);
+            byte[] bytes = serializer.serialize(topicName, syntheticMessage(0));
+            for (int i = 0; i < deserializationIterations; i++) {
+                deserializer.deserialize(topicName, bytes);
+            }
+        }
+    }
+    
+    private void exercisePersistence() {
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            for (int i = 0; i < persistenceIterations; i++) {
+                TestMessage message = syntheticMessage(i);
+                repository.existsByMessageId(message.getMessageId());
+                ConsumedMessage entity = ConsumedMessageMapper.toEntity(message, 0, i, groupId,
+                    ConsumedMessage.ProcessingStatus.SUCCESS);
+                repository.saveAndFlush(entity);
+            }
+        });
+    }
+    
+    private TestMessage syntheticMessage(int sequence) {
+        return TestMessage.builder()
+            .messageId("warmup-" + UUID.randomUUID())
+            .timestamp(Instant.now())
+            .sourceAccount("warmup")
+            .targetAccount("warmup")
+            .payload("warmup")
+            .messageType(TestMessage.WARMUP_MESSAGE_TYPE)
+            .batchId("warmup")
+            .sequenceNumber(sequence)
+            .build();
+    }
+    
+    private void timeStep(String name, WarmupStep step) throws Exception {
+        long start = System.nanoTime();
+        step.run();
+        stepDurationsMs.put(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public boolean isReady() {
+        return state == State.COMPLETED || (state == State.FAILED && failOpen);
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("state", state);
+        details.put("attempts", attempts);
+        if (startedAt != null) {
+            Instant end = completedAt != null ? completedAt : Instant.now();
+            details.put("durationMs", Duration.between(startedAt, end).toMillis());
+        }
+        details.put("steps", new LinkedHashMap<>(stepDurationsMs));
+        if (lastError != null) {
+            details.put("lastError", lastError);
+        }
+        return details;
+    }
+    
+    @FunctionalInterface
+    private interface WarmupStep {
+        void run() throws Exception;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.msk.consumer.storage;
+
+/**
+ * Read side of the blob store the producer offloads claim-check payloads to. Implementations are
+ * selected with {@code consumer.claim-check.store} and must match the producer's store.
+ */
+public interface BlobStore {
+    
+    /**
+     * Reads the blob a claim check points to.
+     *
+     * @throws IllegalArgumentException if the URI does not belong to this store
+     */
+    byte[] get(String uri);
+}
\ No newline at end of file
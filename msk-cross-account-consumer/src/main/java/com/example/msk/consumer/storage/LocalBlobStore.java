@@ -0,0 +1,46 @@
+package com.example.msk.consumer.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Filesystem blob store for local runs and tests, reading the directory the producer writes to.
+ */
+@Component
+@ConditionalOnProperty(name = "consumer.claim-check.store", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalBlobStore implements BlobStore {
+    
+    private final Path directory;
+    
+    public LocalBlobStore(@Value("${consumer.claim-check.local.directory}") String directory) {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        log.info("Claim-check payloads are read from {}", this.directory);
+    }
+    
+    @Override
+    public byte[] get(String uri) {
+        URI parsed = URI.create(uri);
+        if (!"file".equals(parsed.getScheme())) {
+            throw new IllegalArgumentException("Not a local blob URI: " + uri);
+        }
+        // References arrive over Kafka; never follow one outside the configured directory
+        Path path = Path.of(parsed).normalize();
+        if (!path.startsWith(directory)) {
+            throw new IllegalArgumentException("Blob URI outside the store directory: " + uri);
+        }
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read blob " + uri, e);
+        }
+    }
+}
\ No newline at end of file
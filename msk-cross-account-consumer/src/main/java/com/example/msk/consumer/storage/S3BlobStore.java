@@ -0,0 +1,48 @@
+package com.example.msk.consumer.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.net.URI;
+
+/**
+ * S3 blob store for deployed environments. The consumer's credentials need {@code s3:GetObject}
+ * on the producer's claim-check bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "consumer.claim-check.store", havingValue = "s3")
+@Slf4j
+public class S3BlobStore implements BlobStore {
+    
+    private final S3Client s3Client;
+    private final String bucket;
+    
+    public S3BlobStore(@Value("${aws.region}") String region,
+                       @Value("${consumer.claim-check.s3.bucket}") String bucket) {
+        this.s3Client = S3Client.builder().region(Region.of(region)).build();
+        this.bucket = bucket;
+        log.info("Claim-check payloads are read from s3://{}", bucket);
+    }
+    
+    @Override
+    public byte[] get(String uri) {
+        URI parsed = URI.create(uri);
+        // References arrive over Kafka; only read from the configured bucket
+        if (!"s3".equals(parsed.getScheme()) || !bucket.equals(parsed.getHost())) {
+            throw new IllegalArgumentException("Blob URI outside the claim-check bucket: " + uri);
+        }
+        String key = parsed.getPath().substring(1);
+        return s3Client.getObjectAsBytes(GetObjectRequest.builder().bucket(bucket).key(key).build()).asByteArray();
+    }
+    
+    @PreDestroy
+    public void close() {
+        s3Client.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.example.msk.consumer.config;
+
+import com.example.msk.consumer.entity.ConsumedMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetentionPropertiesTest {
+    
+    private final RetentionProperties properties = new RetentionProperties();
+    private RetentionProperties.Policy loadTest;
+    private RetentionProperties.Policy failed;
+    private RetentionProperties.Policy catchAll;
+    
+    @BeforeEach
+    void setUp() {
+        loadTest = policy("load-test", "batch-test", null, Duration.ofDays(1));
+        failed = policy("failed", null, ConsumedMessage.ProcessingStatus.FAILED, Duration.ofDays(30));
+        catchAll = policy("default", null, null, Duration.ofDays(7));
+        properties.setPolicies(List.of(loadTest, failed, catchAll));
+    }
+    
+    @Test
+    void failedRowsBelongToTheFailedPolicyNotTheCatchAll() {
+        assertThat(properties.policyFor("connectivity-test", ConsumedMessage.ProcessingStatus.FAILED))
+            .isSameAs(failed);
+    }
+    
+    @Test
+    void firstMatchingPolicyWins() {
+        assertThat(properties.policyFor("batch-test", ConsumedMessage.ProcessingStatus.FAILED)).isSameAs(loadTest);
+        assertThat(properties.policyFor("batch-test", ConsumedMessage.ProcessingStatus.SUCCESS)).isSameAs(loadTest);
+    }
+    
+    @Test
+    void catchAllTakesEverythingElse() {
+        assertThat(properties.policyFor("connectivity-test", ConsumedMessage.ProcessingStatus.SUCCESS))
+            .isSameAs(catchAll);
+        assertThat(properties.policyFor(null, null)).isSameAs(catchAll);
+    }
+    
+    @Test
+    void rowsMatchingNoPolicyAreKept() {
+        properties.setPolicies(List.of(loadTest));
+        
+        assertThat(properties.policyFor("connectivity-test", ConsumedMessage.ProcessingStatus.SUCCESS)).isNull();
+    }
+    
+    private static RetentionProperties.Policy policy(String name, String messageType,
+                                                     ConsumedMessage.ProcessingStatus status, Duration maxAge) {
+        RetentionProperties.Policy policy = new RetentionProperties.Policy();
+        policy.setName(name);
+        policy.setMessageType(messageType);
+        policy.setStatus(status);
+        policy.setMaxAge(maxAge);
+        return policy;
+    }
+}
\ No newline at end of file
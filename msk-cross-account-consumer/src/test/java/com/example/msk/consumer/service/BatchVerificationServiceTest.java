@@ -0,0 +1,115 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.dto.BatchVerificationResponse;
+import com.example.msk.consumer.repository.ConsumedMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchVerificationServiceTest {
+    
+    private static final String BATCH = "batch-1";
+    private static final Instant SENT = Instant.parse("2026-01-01T00:00:00Z");
+    
+    private final ConsumedMessageRepository repository = mock(ConsumedMessageRepository.class);
+    private final BatchVerificationService service = new BatchVerificationService(repository);
+    private final List<Object[]> rows = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxReportedRanges", 100);
+        when(repository.streamSequenceInfoByBatchId(BATCH)).thenAnswer(invocation -> rows.stream());
+    }
+    
+    @Test
+    void completeBatchSpreadOverPartitions() {
+        IntStream.rangeClosed(1, 10).forEach(sequence -> row(sequence % 2, sequence));
+        
+        BatchVerificationResponse response = service.verifyBatch(BATCH, 10L);
+        
+        assertThat(response.getStatus()).isEqualTo("COMPLETE");
+        assertThat(response.getMissingCount()).isZero();
+        assertThat(response.getMissingRanges()).isEmpty();
+        assertThat(response.getPartitionCounts()).containsEntry(0, 5L).containsEntry(1, 5L);
+    }
+    
+    @Test
+    void gapsAreReportedAsRanges() {
+        List.of(1, 2, 5, 6, 7, 10).forEach(sequence -> row(0, sequence));
+        
+        BatchVerificationResponse response = service.verifyBatch(BATCH, 12L);
+        
+        assertThat(response.getStatus()).isEqualTo("INCOMPLETE");
+        assertThat(response.getMissingRanges()).containsExactly("3-4", "8-9", "11-12");
+        assertThat(response.getMissingCount()).isEqualTo(6);
+        assertThat(response.getMissingRangesTruncated()).isFalse();
+    }
+    
+    @Test
+    void singleMissingSequencesAndTheFirstOneAreReported() {
+        List.of(2, 3, 5).forEach(sequence -> row(0, sequence));
+        
+        BatchVerificationResponse response = service.verifyBatch(BATCH, 5L);
+        
+        assertThat(response.getMissingRanges()).containsExactly("1", "4");
+    }
+    
+    @Test
+    void rangesBeyondTheLimitAreCountedButNotListed() {
+        ReflectionTestUtils.setField(service, "maxReportedRanges", 2);
+        List.of(2, 4, 6, 8).forEach(sequence -> row(0, sequence));
+        
+        BatchVerificationResponse response = service.verifyBatch(BATCH, 8L);
+        
+        assertThat(response.getMissingRanges()).containsExactly("1", "3");
+        assertThat(response.getMissingRangesTruncated()).isTrue();
+        assertThat(response.getMissingCount()).isEqualTo(4);
+    }
+    
+    @Test
+    void duplicatesReorderingAndUnexpectedSequencesAreCounted() {
+        row(0, 1);
+        row(0, 3);
+        row(0, 2);
+        row(1, 3);
+        row(1, 4);
+        row(1, 9);
+        
+        BatchVerificationResponse response = service.verifyBatch(BATCH, 4L);
+        
+        assertThat(response.getDuplicateCount()).isEqualTo(1);
+        assertThat(response.getOutOfOrderByPartition()).containsExactly(Map.entry(0, 1L));
+        assertThat(response.getUnexpectedSequenceCount()).isEqualTo(1);
+        assertThat(response.getMissingCount()).isZero();
+        assertThat(response.getStatus()).isEqualTo("INCOMPLETE");
+    }
+    
+    @Test
+    void withoutAnExpectedCountTheHighestSequenceIsUsed() {
+        List.of(1, 2, 4).forEach(sequence -> row(0, sequence));
+        
+        BatchVerificationResponse response = service.verifyBatch(BATCH, null);
+        
+        assertThat(response.getExpectedCount()).isEqualTo(4);
+        assertThat(response.getMissingRanges()).containsExactly("3");
+    }
+    
+    @Test
+    void unknownBatchIsNotFound() {
+        assertThat(service.verifyBatch(BATCH, 10L).getStatus()).isEqualTo("NOT_FOUND");
+    }
+    
+    private void row(int partition, int sequence) {
+        rows.add(new Object[] {partition, sequence, SENT, SENT.plusMillis(sequence)});
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.CanaryProperties;
+import com.example.msk.consumer.model.TestMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CanaryMonitorServiceTest {
+    
+    private static final String TOPIC = "canary-test";
+    
+    private final CanaryProperties properties = new CanaryProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CanaryMonitorService service;
+    private long now;
+    
+    @BeforeEach
+    void setUp() {
+        properties.setTopic(TOPIC);
+        service = new CanaryMonitorService(properties, meterRegistry);
+        now = System.currentTimeMillis();
+    }
+    
+    @Test
+    void interleavedProducersDoNotLookLikeGaps() {
+        for (int sequence = 1; sequence <= 5; sequence++) {
+            probe("replica-a", sequence);
+            probe("replica-b", sequence);
+        }
+        
+        assertThat(partition()).containsEntry("runs", 2).containsEntry("received", 10L).containsEntry("missing", 0L);
+        assertThat(probes("duplicate")).isZero();
+    }
+    
+    @Test
+    void gapsAndDuplicatesAreDetectedPerRun() {
+        for (int sequence = 1; sequence <= 3; sequence++) {
+            probe("replica-a", sequence);
+            probe("replica-b", sequence);
+        }
+        // replica-a loses 4 and 5, replica-b redelivers 3
+        probe("replica-a", 6);
+        probe("replica-b", 3);
+        probe("replica-b", 4);
+        
+        assertThat(partition()).containsEntry("missing", 2L).containsEntry("healthy", false);
+        assertThat(probes("missing")).isEqualTo(2);
+        assertThat(probes("duplicate")).isEqualTo(1);
+    }
+    
+    @Test
+    void silentRunsExpire() {
+        probe("replica-a", 1);
+        probe("replica-b", 1);
+        now += properties.getRunExpiryMs() + 1;
+        // replica-b restarted as replica-c; replica-a is still probing
+        probe("replica-c", 1);
+        assertThat(partition()).containsEntry("runs", 1);
+        
+        // An expired run that comes back starts over instead of reporting a gap
+        probe("replica-a", 2);
+        assertThat(partition()).containsEntry("runs", 2).containsEntry("missing", 0L);
+    }
+    
+    @Test
+    void forgetRemovesThePartitionsMeters() {
+        probe("replica-a", 1);
+        assertThat(meterRegistry.find("consumer.canary.latency").timers()).hasSize(1);
+        
+        service.forget(List.of(new TopicPartition(TOPIC, 0)));
+        
+        assertThat(meterRegistry.find("consumer.canary.latency").timers()).isEmpty();
+        assertThat(meterRegistry.find("consumer.canary.partition.healthy").gauges()).isEmpty();
+        assertThat(meterRegistry.find("consumer.canary.probes").counters()).isEmpty();
+        assertThat(service.hasPartitions()).isFalse();
+    }
+    
+    private void probe(String runId, int sequence) {
+        TestMessage probe = TestMessage.builder()
+            .messageId(runId + "-" + sequence)
+            .messageType(TestMessage.CANARY_MESSAGE_TYPE)
+            .batchId(runId)
+            .sequenceNumber(sequence)
+            .timestamp(Instant.ofEpochMilli(now))
+            .build();
+        service.record(probe, TOPIC, 0, now);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> partition() {
+        Map<String, Object> partitions = (Map<String, Object>) service.getDetails().get("partitions");
+        return (Map<String, Object>) partitions.get(TOPIC + "-0");
+    }
+    
+    private double probes(String outcome) {
+        return meterRegistry.find("consumer.canary.probes").tag("outcome", outcome).counters().stream()
+            .mapToDouble(counter -> counter.count()).sum();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.dto.ConsumedMessageDTO;
+import com.example.msk.consumer.entity.ConsumedMessage;
+import com.example.msk.consumer.model.ClaimCheck;
+import com.example.msk.consumer.model.TestMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsumedMessageMapperTest {
+    
+    private static final Instant SENT = Instant.parse("2026-01-01T00:00:00Z");
+    
+    @Test
+    void entityCarriesRecordCoordinatesAndPayload() {
+        ConsumedMessage entity = ConsumedMessageMapper.toEntity(message(), 3, 42L, "group",
+            ConsumedMessage.ProcessingStatus.SUCCESS);
+        
+        assertThat(entity.getMessageId()).isEqualTo("message-1");
+        assertThat(entity.getOriginalTimestamp()).isEqualTo(SENT);
+        assertThat(entity.getConsumedTimestamp()).isNotNull();
+        assertThat(entity.getBatchId()).isEqualTo("batch-1");
+        assertThat(entity.getSequenceNumber()).isEqualTo(7);
+        assertThat(entity.getKafkaPartition()).isEqualTo(3);
+        assertThat(entity.getKafkaOffset()).isEqualTo(42L);
+        assertThat(entity.getConsumerGroup()).isEqualTo("group");
+        assertThat(entity.getProcessingStatus()).isEqualTo(ConsumedMessage.ProcessingStatus.SUCCESS);
+        assertThat(entity.getRetryCount()).isZero();
+        assertThat(entity.getPayload()).containsEntry("payload", "hello");
+    }
+    
+    @Test
+    void entityWithoutPayloadLeavesTheColumnEmpty() {
+        ConsumedMessage entity = ConsumedMessageMapper.toEntity(message(), 0, 0L, "group",
+            ConsumedMessage.ProcessingStatus.SUCCESS, false);
+        
+        assertThat(entity.getPayload()).isNull();
+    }
+    
+    @Test
+    void payloadIncludesTheClaimCheckWhenPresent() {
+        TestMessage message = message();
+        message.setPayload(null);
+        message.setClaimCheck(ClaimCheck.builder().uri("s3://bucket/key").sizeBytes(5L).sha256("abc").build());
+        
+        Map<String, Object> payload = ConsumedMessageMapper.toPayload(message);
+        
+        assertThat(payload).containsEntry("timestamp", SENT.toString()).containsEntry("payload", null);
+        assertThat(payload.get("claimCheck"))
+            .isEqualTo(Map.of("uri", "s3://bucket/key", "sizeBytes", 5L, "sha256", "abc"));
+    }
+    
+    @Test
+    void dtoExposesTheStatusAsText() {
+        ConsumedMessage entity = ConsumedMessageMapper.toEntity(message(), 3, 42L, "group",
+            ConsumedMessage.ProcessingStatus.FAILED);
+        entity.setId(9L);
+        entity.setTopic("connectivity-test");
+        
+        ConsumedMessageDTO dto = ConsumedMessageMapper.toDTO(entity);
+        
+        assertThat(dto.getId()).isEqualTo(9L);
+        assertThat(dto.getMessageId()).isEqualTo("message-1");
+        assertThat(dto.getTopic()).isEqualTo("connectivity-test");
+        assertThat(dto.getKafkaOffset()).isEqualTo(42L);
+        assertThat(dto.getProcessingStatus()).isEqualTo("FAILED");
+        assertThat(dto.getPayload()).isEqualTo(entity.getPayload());
+    }
+    
+    private static TestMessage message() {
+        return TestMessage.builder()
+            .messageId("message-1")
+            .timestamp(SENT)
+            .sourceAccount("123456789012")
+            .targetAccount("987654321098")
+            .payload("hello")
+            .messageType("connectivity-test")
+            .batchId("batch-1")
+            .sequenceNumber(7)
+            .build();
+    }
+}
\ No newline at end of file
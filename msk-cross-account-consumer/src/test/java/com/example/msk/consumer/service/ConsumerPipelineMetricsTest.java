@@ -0,0 +1,26 @@
+package com.example.msk.consumer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsumerPipelineMetricsTest {
+    
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsumerPipelineMetrics metrics = new ConsumerPipelineMetrics(meterRegistry, Tracer.NOOP, 20);
+    
+    @Test
+    void stageTimersDoNotMultiplyByPartition() {
+        for (int partition = 0; partition < 12; partition++) {
+            metrics.recordStage(ConsumerPipelineMetrics.Stage.SAVE, "connectivity-test", "success", System.nanoTime());
+            metrics.countMessage(partition, "connectivity-test", "success");
+        }
+        
+        assertThat(meterRegistry.find(ConsumerPipelineMetrics.STAGE_TIMER).timers()).hasSize(1)
+            .allSatisfy(timer -> assertThat(timer.getId().getTag("partition")).isNull());
+        assertThat(meterRegistry.find(ConsumerPipelineMetrics.MESSAGES_COUNTER).counters()).hasSize(12);
+    }
+}
\ No newline at end of file
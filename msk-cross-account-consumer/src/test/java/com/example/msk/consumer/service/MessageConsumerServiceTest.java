@@ -0,0 +1,92 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.FairShareProperties;
+import com.example.msk.consumer.config.PersistencePolicyProperties;
+import com.example.msk.consumer.config.TopicListenerProperties;
+import com.example.msk.consumer.model.TestMessage;
+import com.example.msk.consumer.repository.ConsumedMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageConsumerServiceTest {
+    
+    private static final String TOPIC = "test";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+    
+    private final FairShareProperties fairShareProperties = new FairShareProperties();
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final DeadLetterService deadLetterService = mock(DeadLetterService.class);
+    private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
+    private TenantFairShareService fairShare;
+    private MessageConsumerService service;
+    
+    @BeforeEach
+    void setUp() {
+        fairShareProperties.setEnabled(true);
+        fairShareProperties.setMaxAttempts(2);
+        fairShareProperties.setRetryBackoffMs(0);
+        fairShare = new TenantFairShareService(fairShareProperties, Tracer.NOOP, new SimpleMeterRegistry(),
+            mock(KafkaListenerEndpointRegistry.class), 10);
+        service = new MessageConsumerService(mock(ConsumedMessageRepository.class), mock(ConsumerPipelineMetrics.class),
+            null, null, null, new PersistencePolicyProperties(), null, fairShare, fairShareProperties,
+            deadLetterService, transactionTemplate);
+        // Postgres is down: neither the row nor the FAILED record can be written
+        doThrow(new IllegalStateException("database unavailable")).when(transactionTemplate).executeWithoutResult(any());
+    }
+    
+    @Test
+    void recordThatCannotBeStoredIsDeadLetteredBeforeItIsAcknowledged() {
+        when(deadLetterService.publish(any(), anyString(), anyInt(), anyLong(), anyString())).thenReturn(true);
+        
+        dispatchAndRun();
+        
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        verify(deadLetterService).publish(any(), eq(TOPIC), eq(0), eq(42L), eq("database unavailable"));
+        verify(acknowledgment).acknowledge();
+    }
+    
+    @Test
+    void recordIsNeverAcknowledgedWhileItIsNeitherStoredNorDeadLettered() {
+        // The dead-letter topic is unreachable too, until the partition moves to another consumer
+        when(deadLetterService.publish(any(), anyString(), anyInt(), anyLong(), anyString())).thenAnswer(invocation -> {
+            fairShare.forget(Set.of(PARTITION));
+            return false;
+        });
+        
+        dispatchAndRun();
+        
+        verify(acknowledgment, never()).acknowledge();
+    }
+    
+    private void dispatchAndRun() {
+        TestMessage message = TestMessage.builder()
+            .messageId("message-1")
+            .sourceAccount("account-b")
+            .messageType("connectivity-test")
+            .build();
+        service.dispatch(message, TOPIC, 0, 42, "group", acknowledgment, TopicListenerProperties.Persistence.FULL);
+        TenantFairShareService.Task task = fairShare.poll(System.nanoTime());
+        task.runnable().run();
+        fairShare.complete(task);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+package com.example.msk.consumer.service;
+
+import com.example.msk.consumer.config.FairShareProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TenantFairShareServiceTest {
+    
+    private static final TopicPartition P0 = new TopicPartition("test", 0);
+    private static final TopicPartition P1 = new TopicPartition("test", 1);
+    
+    private final FairShareProperties properties = new FairShareProperties();
+    private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+    private TenantFairShareService service;
+    
+    @BeforeEach
+    void setUp() {
+        properties.setRatePerSecond(1);
+        properties.setBurstSeconds(1);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+    }
+    
+    @Test
+    void tenantsWithinTheirShareGoFirst() {
+        properties.setWorkConserving(false);
+        service = service(10);
+        service.submit("noisy", P0, noop());
+        service.submit("noisy", P0, noop());
+        service.submit("quiet", P1, noop());
+        long now = System.nanoTime();
+        
+        assertThat(pollAndComplete(now)).isEqualTo(P0);
+        // The noisy tenant spent its only token, so the quiet one goes next
+        assertThat(pollAndComplete(now)).isEqualTo(P1);
+        assertThat(service.poll(now)).isNull();
+        // One second later the bucket holds a token again
+        assertThat(pollAndComplete(now + TimeUnit.SECONDS.toNanos(1))).isEqualTo(P0);
+    }
+    
+    @Test
+    void workConservingTenantsUseIdleCapacityBeyondTheirShare() {
+        service = service(10);
+        service.submit("noisy", P0, noop());
+        service.submit("noisy", P0, noop());
+        long now = System.nanoTime();
+        
+        assertThat(pollAndComplete(now)).isEqualTo(P0);
+        assertThat(pollAndComplete(now)).isEqualTo(P0);
+    }
+    
+    @Test
+    void tenantsAreServedInProportionToTheirWeight() {
+        properties.setRatePerSecond(1_000_000);
+        properties.setWeights(Map.of("heavy", 2.0));
+        service = service(10);
+        for (int i = 0; i < 30; i++) {
+            service.submit("heavy", new TopicPartition("heavy", i), noop());
+            service.submit("light", new TopicPartition("light", i), noop());
+        }
+        
+        Map<String, Integer> served = new HashMap<>();
+        long now = System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            served.merge(pollAndComplete(now).topic(), 1, Integer::sum);
+        }
+        assertThat(served).containsEntry("heavy", 20).containsEntry("light", 10);
+    }
+    
+    @Test
+    void onlyOneRecordPerPartitionRunsAtATime() {
+        service = service(10);
+        service.submit("a", P0, noop());
+        service.submit("b", P0, noop());
+        service.submit("b", P1, noop());
+        long now = System.nanoTime();
+        
+        TenantFairShareService.Task first = service.poll(now);
+        assertThat(first.partition()).isEqualTo(P0);
+        // Tenant b's P0 record waits for the running one, its P1 record does not
+        TenantFairShareService.Task second = service.poll(now);
+        assertThat(second.partition()).isEqualTo(P1);
+        assertThat(service.poll(now)).isNull();
+        
+        service.complete(first);
+        assertThat(service.poll(now).partition()).isEqualTo(P0);
+    }
+    
+    @Test
+    void acknowledgementsReachTheContainerInOffsetOrder() {
+        service = service(10);
+        List<Long> acknowledged = new ArrayList<>();
+        List<TenantFairShareService.TrackedAcknowledgment> tracked = new ArrayList<>();
+        for (long offset = 0; offset < 4; offset++) {
+            long recorded = offset;
+            tracked.add(service.track(P0, offset, () -> acknowledged.add(recorded)));
+        }
+        
+        tracked.get(2).acknowledge();
+        assertThat(acknowledged).isEmpty();
+        tracked.get(0).acknowledge();
+        assertThat(acknowledged).containsExactly(0L);
+        // Offset 2 covers 1 as well, so only the last of the finished run is passed on
+        tracked.get(1).acknowledge();
+        assertThat(acknowledged).containsExactly(0L, 2L);
+        tracked.get(3).acknowledge();
+        assertThat(acknowledged).containsExactly(0L, 2L, 3L);
+    }
+    
+    @Test
+    void revokedPartitionsDropTheirQueueAndAcknowledgements() {
+        service = service(10);
+        List<Long> acknowledged = new ArrayList<>();
+        TenantFairShareService.TrackedAcknowledgment tracked = service.track(P0, 7, () -> acknowledged.add(7L));
+        service.submit("a", P0, noop());
+        
+        service.forget(Set.of(P0));
+        
+        assertThat(tracked.isRevoked()).isTrue();
+        tracked.acknowledge();
+        assertThat(acknowledged).isEmpty();
+        assertThat(service.poll(System.nanoTime())).isNull();
+        assertThat(service.getDetails()).containsEntry("queued", 0);
+    }
+    
+    @Test
+    void partitionIsPausedAtTheLimitAndResumedAtHalf() {
+        properties.setMaxPendingPerPartition(4);
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.getAssignedPartitions()).thenReturn(List.of(P0, P1));
+        when(registry.getListenerContainers()).thenReturn(List.of(container));
+        service = service(10);
+        
+        List<TenantFairShareService.TrackedAcknowledgment> tracked = new ArrayList<>();
+        for (long offset = 0; offset < 3; offset++) {
+            tracked.add(service.track(P0, offset, () -> { }));
+        }
+        verify(container, never()).pausePartition(P0);
+        tracked.add(service.track(P0, 3, () -> { }));
+        verify(container).pausePartition(P0);
+        
+        tracked.get(0).acknowledge();
+        verify(container, never()).resumePartition(P0);
+        tracked.get(1).acknowledge();
+        verify(container).resumePartition(P0);
+        verify(container, never()).pausePartition(P1);
+    }
+    
+    @Test
+    void workersAreCappedByThePrimaryPool() throws InterruptedException {
+        properties.setEnabled(true);
+        properties.setWorkers(20);
+        properties.setReservedConnections(2);
+        service = service(10);
+        service.start();
+        assertThat(service.getDetails()).containsEntry("workers", 8);
+        
+        CountDownLatch written = new CountDownLatch(1);
+        service.submit("a", P0, written::countDown);
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+    
+    private TenantFairShareService service(int primaryPoolSize) {
+        return new TenantFairShareService(properties, Tracer.NOOP, new SimpleMeterRegistry(), registry, primaryPoolSize);
+    }
+    
+    private TopicPartition pollAndComplete(long now) {
+        TenantFairShareService.Task task = service.poll(now);
+        assertThat(task).isNotNull();
+        service.complete(task);
+        return task.partition();
+    }
+    
+    private static Runnable noop() {
+        return () -> { };
+    }
+}
\ No newline at end of file
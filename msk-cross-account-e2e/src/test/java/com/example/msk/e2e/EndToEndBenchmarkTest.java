@@ -0,0 +1,354 @@
+package com.example.msk.e2e;
+
+import com.example.msk.consumer.MskConsumerApplication;
+import com.example.msk.consumer.dto.BatchVerificationResponse;
+import com.example.msk.producer.MskProducerApplication;
+import com.example.msk.producer.dto.ProduceMessageRequest;
+import com.example.msk.producer.dto.ProduceMessageResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.web.client.RestTemplate;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Throughput and latency of the whole produce-to-persist path without MSK, IAM or Postgres. Both
+ * applications run in this JVM with their plaintext {@code local} profile against an embedded broker,
+ * and the consumer writes to H2 in PostgreSQL mode. Fixed workloads go through POST /api/v1/produce;
+ * each run waits until the consumer has stored every message, then records produce throughput,
+ * end-to-end latency percentiles, database rows per second and the batch verification status.
+ *
+ * <p>The workload and optional regression thresholds are {@code e2e.*} system properties (see
+ * {@link Workload}), e.g. {@code -De2e.messages=20000 -De2e.min-db-rate=500}. Results are written as
+ * JSON to {@code target/e2e-benchmark/}. Absolute numbers only compare between runs on the same machine.
+ */
+@EmbeddedKafka(partitions = 3, topics = {EndToEndBenchmarkTest.TOPIC, EndToEndBenchmarkTest.DLQ_TOPIC})
+class EndToEndBenchmarkTest {
+    
+    static final String TOPIC = "connectivity-test";
+    static final String DLQ_TOPIC = "connectivity-test-dlq";
+    
+    private static final Logger log = LoggerFactory.getLogger(EndToEndBenchmarkTest.class);
+    private static final String MESSAGE_TYPE = "e2e-benchmark";
+    private static final String H2_URL = "jdbc:h2:mem:e2e;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+        + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1;INIT=CREATE DOMAIN IF NOT EXISTS JSONB AS JSON";
+    
+    private static ConfigurableApplicationContext consumer;
+    private static ConfigurableApplicationContext producer;
+    private static String consumerUrl;
+    private static String producerUrl;
+    private static NamedParameterJdbcTemplate jdbc;
+    
+    private final RestTemplate rest = new RestTemplate();
+    private final Workload workload = Workload.fromSystemProperties();
+    
+    /**
+     * Workload and thresholds, each overridable with the system property named in its comment.
+     */
+    record Workload(int messages, int batchSize, int concurrency, int runs, int warmupMessages,
+                    int payloadBytes, int timeoutSeconds, Double minProduceRate, Double minDbRate,
+                    Double maxP99Ms) {
+        
+        static Workload fromSystemProperties() {
+            return new Workload(
+                // e2e.messages: messages per measured run
+                Integer.getInteger("e2e.messages", 2000),
+                // e2e.batch-size: messages per /produce call, at most 1000
+                Integer.getInteger("e2e.batch-size", 500),
+                // e2e.concurrency: parallel /produce calls
+                Integer.getInteger("e2e.concurrency", 4),
+                // e2e.runs: measured runs, summarized by their median
+                Integer.getInteger("e2e.runs", 2),
+                // e2e.warmup-messages: unmeasured messages sent first
+                Integer.getInteger("e2e.warmup-messages", 1000),
+                // e2e.payload-bytes: payload size per message
+                Integer.getInteger("e2e.payload-bytes", 256),
+                // e2e.timeout-seconds: wait for persistence per run
+                Integer.getInteger("e2e.timeout-seconds", 120),
+                // e2e.min-produce-rate, e2e.min-db-rate, e2e.max-p99-ms: fail on a median past the limit
+                doubleProperty("e2e.min-produce-rate"),
+                doubleProperty("e2e.min-db-rate"),
+                doubleProperty("e2e.max-p99-ms"));
+        }
+        
+        private static Double doubleProperty(String name) {
+            String value = System.getProperty(name);
+            return value == null || value.isBlank() ? null : Double.valueOf(value);
+        }
+    }
+    
+    @BeforeAll
+    static void startApplications(EmbeddedKafkaBroker broker) {
+        consumer = start(MskConsumerApplication.class, broker,
+            "--spring.datasource.url=" + H2_URL,
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+            "--logging.level.org.hibernate.SQL=INFO",
+            "--logging.level.org.hibernate.type=INFO");
+        // H2 and JPA are on the shared classpath, but the producer has no database
+        producer = start(MskProducerApplication.class, broker,
+            "--spring.autoconfigure.exclude="
+                + "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+                + "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration");
+        consumerUrl = baseUrl(consumer);
+        producerUrl = baseUrl(producer);
+        jdbc = new NamedParameterJdbcTemplate(consumer.getBean(DataSource.class));
+        
+        RestTemplate rest = new RestTemplate();
+        // Readiness includes the warm-up of both applications
+        await().atMost(Duration.ofMinutes(2)).ignoreExceptions()
+            .until(() -> isReady(rest, consumerUrl) && isReady(rest, producerUrl));
+    }
+    
+    @AfterAll
+    static void stopApplications() {
+        if (producer != null) {
+            producer.close();
+        }
+        if (consumer != null) {
+            consumer.close();
+        }
+    }
+    
+    @Test
+    void producedMessagesArePersistedWithinThresholds() throws Exception {
+        String payload = "x".repeat(workload.payloadBytes());
+        if (workload.warmupMessages() > 0) {
+            runWorkload(workload.warmupMessages(), payload);
+        }
+        
+        List<Map<String, Object>> runs = new ArrayList<>();
+        for (int run = 1; run <= workload.runs(); run++) {
+            Map<String, Object> result = runWorkload(workload.messages(), payload);
+            result.put("run", run);
+            runs.add(result);
+            log.info("[run {}] produce {} msgs/s, DB {} rows/s, end-to-end {}, batches {}", run,
+                result.get("produceMessagesPerSecond"), result.get("dbRowsPerSecond"),
+                result.get("endToEndLatencyMs"), result.get("batchVerification"));
+        }
+        
+        Map<String, Object> summary = summarize(runs);
+        List<String> failures = thresholdFailures(summary);
+        File output = writeReport(runs, summary, failures);
+        log.info("Summary: {} - results written to {}", summary, output);
+        
+        assertThat(runs).allSatisfy(run -> {
+            assertThat(run.get("produceFailures")).isEqualTo(0);
+            assertThat(run.get("batchVerification")).isEqualTo(Map.of("COMPLETE", run.get("batches")));
+        });
+        assertThat(failures).isEmpty();
+    }
+    
+    private Map<String, Object> runWorkload(int messages, String payload) throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        for (int remaining = messages; remaining > 0; remaining -= workload.batchSize()) {
+            batchSizes.add(Math.min(remaining, workload.batchSize()));
+        }
+        
+        List<ProduceCall> calls = new ArrayList<>();
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(workload.concurrency());
+        try {
+            List<Future<ProduceCall>> futures = new ArrayList<>();
+            for (int size : batchSizes) {
+                futures.add(pool.submit(() -> produce(size, payload)));
+            }
+            for (Future<ProduceCall> future : futures) {
+                calls.add(future.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        double produceSeconds = (System.nanoTime() - started) / 1e9;
+        
+        Map<String, Object> batchIds = Map.of("batchIds", calls.stream().map(ProduceCall::batchId).toList());
+        await().atMost(Duration.ofSeconds(workload.timeoutSeconds()))
+            .pollInterval(Duration.ofMillis(100))
+            .until(() -> jdbc.queryForObject("SELECT COUNT(*) FROM consumed_messages WHERE batch_id IN (:batchIds)",
+                batchIds, Long.class) >= messages);
+        double persistSeconds = (System.nanoTime() - started) / 1e9;
+        
+        Map<String, Integer> statuses = new TreeMap<>();
+        for (ProduceCall call : calls) {
+            BatchVerificationResponse verification = rest.getForObject(
+                consumerUrl + "/api/v1/consumer/batches/{batchId}/verify?expectedCount={expected}",
+                BatchVerificationResponse.class, call.batchId(), call.size());
+            statuses.merge(verification.getStatus(), 1, Integer::sum);
+        }
+        
+        Histogram endToEnd = new Histogram(3);
+        jdbc.query("SELECT original_timestamp, consumed_timestamp FROM consumed_messages WHERE batch_id IN (:batchIds)",
+            batchIds, row -> {
+                long micros = Duration.between(row.getTimestamp(1).toInstant(), row.getTimestamp(2).toInstant())
+                    .toNanos() / 1000;
+                endToEnd.recordValue(Math.max(0, micros));
+            });
+        Histogram requests = new Histogram(3);
+        calls.forEach(call -> requests.recordValue(call.micros()));
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("messages", messages);
+        result.put("batches", batchSizes.size());
+        result.put("produceFailures", calls.stream().mapToInt(ProduceCall::failures).sum());
+        result.put("produceSeconds", round(produceSeconds));
+        result.put("produceMessagesPerSecond", round(messages / produceSeconds));
+        result.put("produceRequestP50Ms", millis(requests, 50));
+        result.put("produceRequestP99Ms", millis(requests, 99));
+        result.put("persistSeconds", round(persistSeconds));
+        result.put("dbRowsPerSecond", round(messages / persistSeconds));
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("samples", endToEnd.getTotalCount());
+        latency.put("p50", millis(endToEnd, 50));
+        latency.put("p95", millis(endToEnd, 95));
+        latency.put("p99", millis(endToEnd, 99));
+        latency.put("max", round(endToEnd.getMaxValue() / 1000.0));
+        result.put("endToEndLatencyMs", latency);
+        result.put("batchVerification", statuses);
+        return result;
+    }
+    
+    private record ProduceCall(String batchId, int size, int failures, long micros) {
+    }
+    
+    private ProduceCall produce(int size, String payload) {
+        ProduceMessageRequest request = new ProduceMessageRequest();
+        request.setPayload(payload);
+        request.setMessageType(MESSAGE_TYPE);
+        request.setBatchSize(size);
+        request.setSourceAccount("benchmark");
+        request.setTargetAccount("benchmark");
+        
+        long started = System.nanoTime();
+        ProduceMessageResponse response = rest.postForObject(producerUrl + "/api/v1/produce", request,
+            ProduceMessageResponse.class);
+        long micros = (System.nanoTime() - started) / 1000;
+        return new ProduceCall(response.getBatchId(), size,
+            response.getFailureCount() == null ? 0 : response.getFailureCount(), micros);
+    }
+    
+    private static Map<String, Object> summarize(List<Map<String, Object>> runs) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("produceMessagesPerSecond", median(runs, run -> run.get("produceMessagesPerSecond")));
+        summary.put("dbRowsPerSecond", median(runs, run -> run.get("dbRowsPerSecond")));
+        summary.put("endToEndP50Ms", median(runs, run -> latency(run).get("p50")));
+        summary.put("endToEndP95Ms", median(runs, run -> latency(run).get("p95")));
+        summary.put("endToEndP99Ms", median(runs, run -> latency(run).get("p99")));
+        return summary;
+    }
+    
+    private List<String> thresholdFailures(Map<String, Object> summary) {
+        List<String> failures = new ArrayList<>();
+        double produceRate = (double) summary.get("produceMessagesPerSecond");
+        double dbRate = (double) summary.get("dbRowsPerSecond");
+        double p99 = (double) summary.get("endToEndP99Ms");
+        if (workload.minProduceRate() != null && produceRate < workload.minProduceRate()) {
+            failures.add("produce rate " + produceRate + " < " + workload.minProduceRate() + " msgs/s");
+        }
+        if (workload.minDbRate() != null && dbRate < workload.minDbRate()) {
+            failures.add("DB rate " + dbRate + " < " + workload.minDbRate() + " rows/s");
+        }
+        if (workload.maxP99Ms() != null && p99 > workload.maxP99Ms()) {
+            failures.add("end-to-end p99 " + p99 + "ms > " + workload.maxP99Ms() + "ms");
+        }
+        return failures;
+    }
+    
+    private File writeReport(List<Map<String, Object>> runs, Map<String, Object> summary, List<String> failures)
+            throws IOException {
+        String stamp = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC)
+            .format(Instant.now());
+        File output = new File(System.getProperty("e2e.output", "target/e2e-benchmark/e2e-" + stamp + ".json"));
+        output.getAbsoluteFile().getParentFile().mkdirs();
+        
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", stamp);
+        report.put("config", workload);
+        report.put("runs", runs);
+        report.put("summary", summary);
+        report.put("thresholdFailures", failures);
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output, report);
+        return output;
+    }
+    
+    private static ConfigurableApplicationContext start(Class<?> application, EmbeddedKafkaBroker broker,
+                                                        String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+            // Both applications ship an application.yml; read each one from its own jar
+            "--spring.config.location=" + configLocation(application),
+            "--spring.profiles.active=local",
+            "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+            "--server.port=0"));
+        arguments.addAll(List.of(args));
+        return new SpringApplicationBuilder(application).run(arguments.toArray(String[]::new));
+    }
+    
+    private static String configLocation(Class<?> application) {
+        URL codeSource = application.getProtectionDomain().getCodeSource().getLocation();
+        String location = codeSource.toString();
+        // A packaged module is a jar, a module resolved from the reactor before packaging a directory
+        return location.endsWith(".jar") ? "jar:" + location + "!/" : location;
+    }
+    
+    private static boolean isReady(RestTemplate rest, String baseUrl) {
+        return rest.getForEntity(baseUrl + "/actuator/health/readiness", String.class).getStatusCode()
+            .is2xxSuccessful();
+    }
+    
+    private static String baseUrl(ConfigurableApplicationContext context) {
+        return "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> latency(Map<String, Object> run) {
+        return (Map<String, Object>) run.get("endToEndLatencyMs");
+    }
+    
+    private static double median(Collection<Map<String, Object>> runs, Function<Map<String, Object>, Object> metric) {
+        double[] values = runs.stream().mapToDouble(run -> ((Number) metric.apply(run)).doubleValue())
+            .sorted()
+            .toArray();
+        int middle = values.length / 2;
+        return round(values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2);
+    }
+    
+    private static double millis(Histogram histogram, double percentile) {
+        return round(histogram.getValueAtPercentile(percentile) / 1000.0);
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.example.msk.producer.id;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one message ID, from a single thread and from eight threads at once as when several
+ * produce requests run concurrently. Random UUIDs share one {@code SecureRandom}; time-ordered ones
+ * only touch thread-local state. Their effect on the consumer's index is measured by the consumer's
+ * {@code MessageIdIndexBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@State(Scope.Benchmark)
+public class MessageIdGeneratorBenchmark {
+    
+    private final MessageIdGenerator random = new RandomUuidGenerator();
+    private final MessageIdGenerator timeOrdered = new TimeOrderedUuidGenerator();
+    
+    @Benchmark
+    @Threads(1)
+    public String random() {
+        return random.nextId();
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public String timeOrdered() {
+        return timeOrdered.nextId();
+    }
+    
+    @Benchmark
+    @Threads(8)
+    public String randomContended() {
+        return random.nextId();
+    }
+    
+    @Benchmark
+    @Threads(8)
+    public String timeOrderedContended() {
+        return timeOrdered.nextId();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.example.msk.producer.id;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert cost and index growth of the consumer's {@code message_id} unique index for each ID
+ * generator. Each operation inserts one batch into a scratch table with the same column and unique
+ * index as {@code consumed_messages}, on top of {@code prefillRows} existing rows. Random keys split
+ * leaf pages across the whole index and leave them about half full; time-ordered keys fill the
+ * rightmost page. The index size per row and the share of index block accesses served from
+ * Postgres' buffer cache are printed at the end of each trial.
+ *
+ * Needs a running Postgres; connection settings default to the local compose database and can be
+ * overridden with -Djdbc.url, -Djdbc.user and -Djdbc.password (in the JMH jvmArgs).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@State(Scope.Thread)
+public class MessageIdIndexBenchmark {
+    
+    private static final String TABLE = "message_id_index_benchmark";
+    private static final String INDEX = TABLE + "_message_id_key";
+    
+    @Param({"random", "time-ordered"})
+    private String generator;
+    
+    @Param({"500"})
+    private int batchSize;
+    
+    @Param({"200000"})
+    private int prefillRows;
+    
+    private MessageIdGenerator idGenerator;
+    private Connection connection;
+    private PreparedStatement insert;
+    private long rows;
+    
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        idGenerator = "random".equals(generator) ? new RandomUuidGenerator() : new TimeOrderedUuidGenerator();
+        connection = DriverManager.getConnection(
+            System.getProperty("jdbc.url", "jdbc:postgresql://localhost:5432/msk_consumer"),
+            System.getProperty("jdbc.user", "postgres"),
+            System.getProperty("jdbc.password", "password"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (id BIGSERIAL PRIMARY KEY, "
+                + "message_id VARCHAR(255) NOT NULL UNIQUE)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("INSERT INTO " + TABLE + " (message_id) VALUES (?)");
+        for (int inserted = 0; inserted < prefillRows; inserted += batchSize) {
+            insertBatch();
+        }
+        rows = 0;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT (SELECT count(*) FROM " + TABLE + "), "
+                 + "pg_relation_size('" + INDEX + "'), idx_blks_hit, idx_blks_read "
+                 + "FROM pg_statio_user_indexes WHERE indexrelname = '" + INDEX + "'")) {
+            result.next();
+            long total = result.getLong(1);
+            long indexBytes = result.getLong(2);
+            long hits = result.getLong(3);
+            long reads = result.getLong(4);
+            System.out.printf("%n%s: %d rows (%d inserted while measuring), message_id index %.1f MB, "
+                    + "%.1f bytes/row, %.2f%% of index block accesses from cache%n",
+                generator, total, rows, indexBytes / 1048576.0, (double) indexBytes / total,
+                hits + reads > 0 ? 100.0 * hits / (hits + reads) : 100.0);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE " + TABLE);
+        }
+        connection.commit();
+        connection.close();
+    }
+    
+    @Benchmark
+    public long insertBatch() throws SQLException {
+        for (int i = 0; i < batchSize; i++) {
+            insert.setString(1, idGenerator.nextId());
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+        return rows += batchSize;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.producer.dto.ProduceMessageRequest;
+import com.example.msk.producer.id.MessageIdGenerator;
+import com.example.msk.producer.id.TimeOrderedUuidGenerator;
+import com.example.msk.producer.model.TestMessage;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message work on the produce path: building the {@link TestMessage} and serializing it with
+ * the same {@link JsonSerializer} defaults Kafka instantiates from {@code KafkaConfig}, including
+ * the type header it adds to every record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@State(Scope.Thread)
+public class ProducerHotPathBenchmark {
+    
+    private static final String TOPIC = "connectivity-test";
+    
+    // Payload characters per message: a short probe, a typical event and a large document
+    @Param({"64", "1024", "16384"})
+    private int payloadSize;
+    
+    private MessageIdGenerator idGenerator;
+    private ProduceMessageRequest request;
+    private JsonSerializer<Object> serializer;
+    private String batchId;
+    private TestMessage message;
+    
+    @Setup
+    public void setup() {
+        idGenerator = new TimeOrderedUuidGenerator();
+        
+        request = new ProduceMessageRequest();
+        request.setPayload(randomText(payloadSize));
+        request.setMessageType("connectivity-test");
+        request.setBatchSize(1000);
+        request.setSourceAccount("123456789012");
+        request.setTargetAccount("987654321098");
+        
+        serializer = new JsonSerializer<>();
+        batchId = idGenerator.nextId();
+        message = TestMessageFactory.create(idGenerator.nextId(), request, batchId, 1, null);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+    }
+    
+    @Benchmark
+    public TestMessage create() {
+        return TestMessageFactory.create(idGenerator.nextId(), request, batchId, 42, null);
+    }
+    
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, new RecordHeaders(), message);
+    }
+    
+    @Benchmark
+    public byte[] buildAndSerialize() {
+        TestMessage built = TestMessageFactory.create(idGenerator.nextId(), request, batchId, 42, null);
+        return serializer.serialize(TOPIC, new RecordHeaders(), built);
+    }
+    
+    static String randomText(int length) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ,.-\"";
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.example.msk.producer.config;
+
+import com.example.msk.producer.service.CompressionSampler;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Offers the output of the wrapped value serializer to the {@link CompressionSampler}, which keeps
+ * a small window of recent payloads for the adaptive compression evaluation.
+ */
+public class SamplingSerializer<T> implements Serializer<T> {
+    
+    private final Serializer<T> delegate;
+    private final CompressionSampler sampler;
+    
+    public SamplingSerializer(Serializer<T> delegate, CompressionSampler sampler) {
+        this.delegate = delegate;
+        this.sampler = sampler;
+    }
+    
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+    
+    @Override
+    public byte[] serialize(String topic, T data) {
+        return sampler.offer(delegate.serialize(topic, data));
+    }
+    
+    @Override
+    public byte[] serialize(String topic, Headers headers, T data) {
+        return sampler.offer(delegate.serialize(topic, headers, data));
+    }
+    
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
\ No newline at end of file
@@ -1,9 +1,15 @@
 package com.example.msk.producer.controller;
 
+import com.example.msk.common.tracing.LocalSpanExporter;
 import com.example.msk.producer.dto.ProduceMessageRequest;
 import com.example.msk.producer.dto.ProduceMessageResponse;
 import com.example.msk.producer.dto.ProducerMetrics;
+import com.example.msk.producer.service.AdmissionControlService;
+import com.example.msk.producer.service.CanaryService;
 import com.example.msk.producer.service.ProducerService;
+import com.example.msk.producer.service.RequestCoalescingService;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -11,10 +17,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/v1")
 @RequiredArgsConstructor
@@ -23,13 +34,19 @@ import org.springframework.web.bind.annotation.*;
 public class ProducerController {
     
     private final ProducerService producerService;
+    private final RequestCoalescingService coalescingService;
+    private final CanaryService canaryService;
+    private final Tracer tracer;
+    private final LocalSpanExporter spanExporter;
     
     @PostMapping("/produce")
     @Operation(summary = "Produce messages to MSK", 
-        description = "Produces a batch of messages to the configured MSK topic")
+        description = "Produces a batch of messages to the configured MSK topic, or fans it out to the requested topics in parallel; "
+            + "small single-topic batches are coalesced with concurrent requests and sent together")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Messages produced successfully"),
-        @ApiResponse(responseCode = "400", description = "Invalid request"),
+        @ApiResponse(responseCode = "400", description = "Invalid request or topic list"),
+        @ApiResponse(responseCode = "429", description = "Producer overloaded; retry after the Retry-After header"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     public ResponseEntity<ProduceMessageResponse> produceMessages(
@@ -38,8 +55,17 @@ public class ProducerController {
             request.getBatchSize(), request.getMessageType());
         
         try {
-            ProduceMessageResponse response = producerService.produceMessages(request);
+            ProduceMessageResponse response = coalescingService.produce(request);
+            response.setTraceId(sampledTraceId());
             return ResponseEntity.ok(response);
+        } catch (AdmissionControlService.AdmissionRejectedException e) {
+            return tooManyRequests(e);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected produce request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                .body(ProduceMessageResponse.builder()
+                    .errorDetails(e.getMessage())
+                    .build());
         } catch (Exception e) {
             log.error("Error producing messages", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -49,11 +75,51 @@ public class ProducerController {
         }
     }
     
+    @PostMapping("/produce/async")
+    @Operation(summary = "Produce messages to MSK without blocking a request thread",
+        description = "Same as /produce, but the request thread is released while the batch is sent; the response "
+            + "is written once every message is acknowledged, and its counts reflect broker acknowledgements")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Messages produced successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid request or topic list"),
+        @ApiResponse(responseCode = "429", description = "Producer overloaded; retry after the Retry-After header"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public CompletableFuture<ResponseEntity<ProduceMessageResponse>> produceMessagesAsync(
+            @Valid @RequestBody ProduceMessageRequest request) {
+        log.info("Received async produce request - Batch size: {}, Type: {}", 
+            request.getBatchSize(), request.getMessageType());
+        
+        String traceId = sampledTraceId();
+        try {
+            return producerService.produceMessagesAsync(request)
+                .thenApply(response -> {
+                    response.setTraceId(traceId);
+                    return ResponseEntity.ok(response);
+                });
+        } catch (AdmissionControlService.AdmissionRejectedException e) {
+            return CompletableFuture.completedFuture(tooManyRequests(e));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected produce request: {}", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(ProduceMessageResponse.builder()
+                    .errorDetails(e.getMessage())
+                    .build()));
+        } catch (Exception e) {
+            log.error("Error producing messages", e);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ProduceMessageResponse.builder()
+                    .errorDetails("Failed to produce messages: " + e.getMessage())
+                    .build()));
+        }
+    }
+    
     @PostMapping("/test/batch")
     @Operation(summary = "Batch production test", 
         description = "Performs a batch production test with predefined configurations")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Batch test completed"),
+        @ApiResponse(responseCode = "429", description = "Producer overloaded; retry after the Retry-After header"),
         @ApiResponse(responseCode = "500", description = "Test failed")
     })
     public ResponseEntity<ProduceMessageResponse> batchTest(
@@ -69,7 +135,10 @@ public class ProducerController {
         
         try {
             ProduceMessageResponse response = producerService.produceMessages(request);
+            response.setTraceId(sampledTraceId());
             return ResponseEntity.ok(response);
+        } catch (AdmissionControlService.AdmissionRejectedException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             log.error("Batch test failed", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -79,6 +148,33 @@ public class ProducerController {
         }
     }
     
+    @GetMapping("/traces/{traceId}")
+    @Operation(summary = "Get the producer's spans of a trace",
+        description = "Returns the spans this producer recorded for a sampled trace, from its in-memory span buffer; "
+            + "the consumer serves its side of the same trace")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Spans retrieved successfully"),
+        @ApiResponse(responseCode = "404", description = "Trace not sampled or no longer buffered")
+    })
+    public ResponseEntity<List<Map<String, Object>>> getTrace(@PathVariable String traceId) {
+        List<Map<String, Object>> spans = spanExporter.getTrace(traceId);
+        return spans.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(spans);
+    }
+    
+    private String sampledTraceId() {
+        Span span = tracer.currentSpan();
+        return span != null && Boolean.TRUE.equals(span.context().sampled()) ? span.context().traceId() : null;
+    }
+    
+    private ResponseEntity<ProduceMessageResponse> tooManyRequests(
+            AdmissionControlService.AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .body(ProduceMessageResponse.builder()
+                .errorDetails(e.getMessage())
+                .build());
+    }
+    
     @GetMapping("/metrics")
     @Operation(summary = "Get producer metrics", 
         description = "Returns current producer metrics and statistics")
@@ -86,7 +182,10 @@ public class ProducerController {
         @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
     })
     public ResponseEntity<ProducerMetrics> getMetrics() {
-        return ResponseEntity.ok(producerService.getMetrics());
+        ProducerMetrics metrics = producerService.getMetrics();
+        metrics.setCoalescing(coalescingService.getDetails());
+        metrics.setCanary(canaryService.getDetails());
+        return ResponseEntity.ok(metrics);
     }
     
     @GetMapping("/health")
@@ -0,0 +1,87 @@
+package com.example.msk.producer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Selected internal metrics of the Kafka producer client (rates are per second over the client's sample window)")
+public class KafkaClientMetrics {
+    
+    @Schema(description = "Average time records wait in the accumulator before being sent (ms) - driven by linger.ms and batch.size")
+    private Double recordQueueTimeAvgMs;
+    
+    @Schema(description = "Maximum time a record waited in the accumulator (ms)")
+    private Double recordQueueTimeMaxMs;
+    
+    @Schema(description = "Average produce request latency to the brokers (ms)")
+    private Double requestLatencyAvgMs;
+    
+    @Schema(description = "Maximum produce request latency (ms)")
+    private Double requestLatencyMaxMs;
+    
+    @Schema(description = "Average bytes per partition batch")
+    private Double batchSizeAvg;
+    
+    @Schema(description = "Average compressed/uncompressed size ratio of record batches")
+    private Double compressionRateAvg;
+    
+    @Schema(description = "Unused buffer.memory in bytes")
+    private Double bufferAvailableBytes;
+    
+    @Schema(description = "Configured buffer.memory in bytes")
+    private Double bufferTotalBytes;
+    
+    @Schema(description = "Fraction of time send() blocked waiting for buffer space")
+    private Double bufferPoolWaitRatio;
+    
+    @Schema(description = "Records sent per second")
+    private Double recordSendRate;
+    
+    @Schema(description = "Record retries per second")
+    private Double recordRetryRate;
+    
+    @Schema(description = "Records failed per second")
+    private Double recordErrorRate;
+    
+    @Schema(description = "Produce requests currently awaiting a response")
+    private Double requestsInFlight;
+    
+    @Schema(description = "Open connections to brokers")
+    private Double connectionCount;
+    
+    @Schema(description = "Per-broker request activity")
+    private List<BrokerMetrics> brokers;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Request activity towards a single broker")
+    public static class BrokerMetrics {
+        
+        @Schema(description = "Broker node id (negative ids are bootstrap connections)", example = "1")
+        private String nodeId;
+        
+        @Schema(description = "ACTIVE if requests were sent or responses received in the sample window, otherwise IDLE")
+        private String state;
+        
+        @Schema(description = "Requests sent per second")
+        private Double requestRate;
+        
+        @Schema(description = "Responses received per second")
+        private Double responseRate;
+        
+        @Schema(description = "Average request latency (ms)")
+        private Double requestLatencyAvgMs;
+        
+        @Schema(description = "Bytes sent per second")
+        private Double outgoingByteRate;
+    }
+}
\ No newline at end of file
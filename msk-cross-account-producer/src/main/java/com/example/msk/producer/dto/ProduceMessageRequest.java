@@ -4,7 +4,9 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
+import java.util.List;
 
 @Data
 @Schema(description = "Request to produce messages to MSK")
@@ -27,4 +29,10 @@ public class ProduceMessageRequest {
     
     @Schema(description = "Target AWS account ID", example = "987654321098")
     private String targetAccount;
+    
+    @Schema(description = "Topics to fan the batch out to; defaults to the configured topic. "
+        + "Entries prefixed with 'regex:' select every matching topic in the cluster",
+        example = "[\"connectivity-test\", \"regex:account-a-.*\"]")
+    @Size(max = 100, message = "At most 100 topics or patterns per request")
+    private List<String> topics;
 }
\ No newline at end of file
@@ -18,6 +18,9 @@ public class ProduceMessageResponse {
     @Schema(description = "Unique batch ID for this production run")
     private String batchId;
     
+    @Schema(description = "Trace ID of the request when it was sampled for tracing, otherwise null")
+    private String traceId;
+    
     @Schema(description = "Total number of messages sent")
     private Integer messagesSent;
     
@@ -41,4 +44,10 @@ public class ProduceMessageResponse {
     
     @Schema(description = "Error details if any failures occurred")
     private String errorDetails;
+    
+    @Schema(description = "Per-topic results, one entry per topic the request was fanned out to")
+    private List<TopicProduceResult> topicResults;
+    
+    @Schema(description = "Number of requests sent together in one coalesced pass; null when the request was sent on its own")
+    private Integer coalescedRequests;
 }
\ No newline at end of file
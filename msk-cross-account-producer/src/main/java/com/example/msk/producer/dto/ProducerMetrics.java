@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -28,9 +30,13 @@ public class ProducerMetrics {
     @Schema(description = "Last production timestamp")
     private String lastProductionTime;
     
-    @Schema(description = "Current Kafka connection status")
+    @Schema(description = "Kafka connection status derived from the client metrics", 
+        allowableValues = {"CONNECTED", "DEGRADED", "DISCONNECTED"})
     private String connectionStatus;
     
+    @Schema(description = "Why the connection status is not CONNECTED")
+    private List<String> connectionStatusReasons;
+    
     @Schema(description = "Total batches produced")
     private Long totalBatches;
     
@@ -39,4 +45,19 @@ public class ProducerMetrics {
     
     @Schema(description = "Success rate percentage")
     private Double successRate;
+    
+    @Schema(description = "Internal metrics of the Kafka producer client")
+    private KafkaClientMetrics kafkaClient;
+    
+    @Schema(description = "Active compression codec and the latest per-codec measurements")
+    private Map<String, Object> compression;
+    
+    @Schema(description = "Admission control: in-flight messages and bytes against their limits, drain rate and rejections")
+    private Map<String, Object> admission;
+    
+    @Schema(description = "Request coalescing: requests sent coalesced or directly, requests per coalesced pass and queue wait")
+    private Map<String, Object> coalescing;
+    
+    @Schema(description = "Canary probes: run ID, acknowledged and failed probes, mean acknowledgement time per partition")
+    private Map<String, Object> canary;
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.example.msk.producer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Production result for one topic of a fan-out request")
+public class TopicProduceResult {
+    
+    @Schema(description = "Topic the messages were sent to")
+    private String topic;
+    
+    @Schema(description = "Batch ID used for this topic; verify it on the consumer per topic")
+    private String batchId;
+    
+    @Schema(description = "Number of messages handed to the producer for this topic")
+    private Integer successCount;
+    
+    @Schema(description = "Number of messages that could not be sent to this topic")
+    private Integer failureCount;
+    
+    @Schema(description = "Time spent sending to this topic in milliseconds")
+    private Long durationMs;
+    
+    @Schema(description = "Message IDs produced to this topic")
+    private List<String> messageIds;
+    
+    @Schema(description = "Error details if any failures occurred")
+    private String errorDetails;
+}
\ No newline at end of file
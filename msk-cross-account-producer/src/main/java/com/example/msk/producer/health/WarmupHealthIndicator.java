@@ -0,0 +1,24 @@
+package com.example.msk.producer.health;
+
+import com.example.msk.producer.service.WarmupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports OUT_OF_SERVICE until startup warm-up has finished. Included in the readiness group
+ * so Kubernetes only routes traffic to pods that have already connected to the cluster.
+ */
+@Component("warmup")
+@RequiredArgsConstructor
+public class WarmupHealthIndicator implements HealthIndicator {
+    
+    private final WarmupService warmupService;
+    
+    @Override
+    public Health health() {
+        Health.Builder builder = warmupService.isReady() ? Health.up() : Health.outOfService();
+        return builder.withDetails(warmupService.getDetails()).build();
+    }
+}
\ No newline at end of file
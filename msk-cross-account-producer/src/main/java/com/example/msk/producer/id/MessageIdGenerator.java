@@ -0,0 +1,11 @@
+package com.example.msk.producer.id;
+
+/**
+ * Source of message and batch IDs. Implementations are selected with
+ * {@code producer.message-id.generator} and must be safe to call from any number of threads; IDs
+ * are sent as strings, so the consumer stores whatever format is generated unchanged.
+ */
+public interface MessageIdGenerator {
+    
+    String nextId();
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.msk.producer.id;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Random (version 4) UUIDs, as produced before time-ordered IDs were introduced. Every call goes
+ * through the JDK's shared {@code SecureRandom}, and the IDs land at random positions in the
+ * consumer's {@code message_id} index.
+ */
+@Component
+@ConditionalOnProperty(name = "producer.message-id.generator", havingValue = "random")
+public class RandomUuidGenerator implements MessageIdGenerator {
+    
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
\ No newline at end of file
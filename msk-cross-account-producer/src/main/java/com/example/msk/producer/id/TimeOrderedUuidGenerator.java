@@ -0,0 +1,57 @@
+package com.example.msk.producer.id;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Version 7 UUIDs (RFC 9562): a 48-bit Unix millisecond timestamp followed by 74 bits that are
+ * random at the start of each millisecond and incremented for further IDs in the same millisecond
+ * (the RFC's monotonic method). IDs generated later sort after earlier ones, so the consumer's
+ * unique {@code message_id} index is appended to at its right edge instead of splitting pages all
+ * over the tree. State is per thread and the random bits come from {@link ThreadLocalRandom}, so
+ * nothing is shared or locked; IDs are monotonic per thread, and IDs from different threads only
+ * interleave within the same millisecond. {@code ThreadLocalRandom} is not a cryptographic source,
+ * which is fine for identifiers that only need to be unique, not unguessable.
+ */
+@Component
+@ConditionalOnProperty(name = "producer.message-id.generator", havingValue = "time-ordered", matchIfMissing = true)
+public class TimeOrderedUuidGenerator implements MessageIdGenerator {
+    
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_RFC_4122 = 0x8000_0000_0000_0000L;
+    
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+    
+    private static final class State {
+        private long millis = -1;
+        private long randA;
+        private long randB;
+    }
+    
+    @Override
+    public String nextId() {
+        return next(System.currentTimeMillis()).toString();
+    }
+    
+    UUID next(long epochMillis) {
+        State current = state.get();
+        // A clock that steps back keeps the last timestamp, so IDs still increase
+        if (epochMillis > current.millis) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            current.millis = epochMillis;
+            current.randA = random.nextLong() & 0x0FFFL;
+            // 61 random bits leave room for 2^61 increments before rand_b would overflow
+            current.randB = random.nextLong() >>> 3;
+        } else {
+            current.randB++;
+        }
+        // unix_ts_ms (48) | ver (4) | rand_a (12)
+        long mostSigBits = (current.millis << 16) | VERSION_7 | current.randA;
+        // var (2) | rand_b (62)
+        long leastSigBits = VARIANT_RFC_4122 | current.randB;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.example.msk.producer.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Reference to a payload that was offloaded to the blob store instead of travelling inline.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimCheck {
+    
+    // file:///... for the local store, s3://bucket/key for S3
+    private String uri;
+    private Long sizeBytes;
+    // Hex SHA-256 of the UTF-8 payload bytes
+    private String sha256;
+}
\ No newline at end of file
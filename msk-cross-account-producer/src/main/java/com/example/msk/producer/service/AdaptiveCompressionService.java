@@ -0,0 +1,301 @@
+package com.example.msk.producer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Chooses the producer's {@code compression.type} from the payloads it is actually sending. On every
+ * evaluation the sampled payloads are packed into producer-sized batches and compressed with each
+ * candidate codec, exactly as the client would, measuring the compressed size and CPU time. Codecs
+ * are then considered from cheapest to most expensive, and a more expensive one is only chosen if it
+ * shrinks the batches by at least {@code min-size-reduction} over the current pick. A new choice must
+ * win {@code stable-evaluations} times in a row before the producer is rotated onto it.
+ * <p>
+ * Rotation flushes the current producer and resets the factory, so the next send creates a producer
+ * with the new codec. Sends go through {@link #withProducer(Supplier)}, which holds them back for the
+ * duration of the rotation instead of letting them race a closing producer. Evaluation and rotation
+ * run on their own thread, because the flush waits for every in-flight batch and would otherwise hold
+ * up Spring's single scheduler thread and the tasks sharing it. Adaptive mode is opt-in; the default
+ * static mode keeps {@code compression.type} and starts no thread.
+ */
+@Service
+@Slf4j
+public class AdaptiveCompressionService {
+    
+    private final ProducerFactory<String, Object> producerFactory;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final CompressionSampler sampler;
+    private final MeterRegistry meterRegistry;
+    
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private final Map<String, CodecResult> results = new ConcurrentHashMap<>();
+    
+    @Value("${producer.compression.mode:static}")
+    private String mode;
+    
+    @Value("${producer.compression.candidates:none,lz4,snappy,zstd}")
+    private List<String> candidates;
+    
+    @Value("${producer.compression.min-samples:32}")
+    private Integer minSamples;
+    
+    @Value("${producer.compression.min-size-reduction:0.1}")
+    private Double minSizeReduction;
+    
+    @Value("${producer.compression.min-throughput-mb-per-second:20}")
+    private Double minThroughputMbPerSecond;
+    
+    @Value("${producer.compression.stable-evaluations:2}")
+    private Integer stableEvaluations;
+    
+    @Value("${producer.compression.evaluation-rounds:3}")
+    private Integer evaluationRounds;
+    
+    @Value("${producer.compression.evaluation-interval-ms:60000}")
+    private Long evaluationIntervalMs;
+    
+    private List<String> codecs;
+    private volatile String activeCodec;
+    private volatile String pendingCodec;
+    private volatile int pendingWins;
+    private Counter switches;
+    private ScheduledExecutorService evaluator;
+    
+    public AdaptiveCompressionService(ProducerFactory<String, Object> producerFactory,
+                                      KafkaTemplate<String, Object> kafkaTemplate,
+                                      CompressionSampler sampler,
+                                      MeterRegistry meterRegistry) {
+        this.producerFactory = producerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.sampler = sampler;
+        this.meterRegistry = meterRegistry;
+        Object configured = producerFactory.getConfigurationProperties().get(ProducerConfig.COMPRESSION_TYPE_CONFIG);
+        this.activeCodec = configured != null ? configured.toString() : CompressionType.NONE.name;
+    }
+    
+    @PostConstruct
+    void start() {
+        codecs = candidates.stream().map(codec -> codec.trim().toLowerCase(Locale.ROOT)).toList();
+        for (String name : codecs) {
+            Gauge.builder("msk.producer.compression.active", this, service -> name.equals(service.activeCodec) ? 1 : 0)
+                .description("1 for the compression codec the producer is currently using")
+                .tag("codec", name)
+                .register(meterRegistry);
+            Gauge.builder("msk.producer.compression.ratio", results, r -> r.containsKey(name) ? r.get(name).ratio() : Double.NaN)
+                .description("Uncompressed to compressed size of the sampled payloads, per codec")
+                .tag("codec", name)
+                .register(meterRegistry);
+            Gauge.builder("msk.producer.compression.throughput", results,
+                    r -> r.containsKey(name) ? r.get(name).throughputMbPerSecond() : Double.NaN)
+                .description("Compression throughput on the sampled payloads, per codec")
+                .baseUnit("MB/s")
+                .tag("codec", name)
+                .register(meterRegistry);
+        }
+        switches = Counter.builder("msk.producer.compression.switches")
+            .description("Producer rotations onto a different compression codec")
+            .register(meterRegistry);
+        
+        if (isAdaptive()) {
+            evaluator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "compression-evaluator");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // An exception would cancel the schedule, so it is logged and the next evaluation tries again
+            evaluator.scheduleWithFixedDelay(() -> {
+                try {
+                    evaluate();
+                } catch (RuntimeException e) {
+                    log.error("Compression evaluation failed", e);
+                }
+            }, evaluationIntervalMs, evaluationIntervalMs, TimeUnit.MILLISECONDS);
+            log.info("Adaptive compression enabled - Candidates: {}, Interval: {}ms", codecs, evaluationIntervalMs);
+        }
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (evaluator != null) {
+            evaluator.shutdownNow();
+        }
+    }
+    
+    /**
+     * Runs a send against the current producer; blocks only while a codec rotation is in progress.
+     */
+    public <T> T withProducer(Supplier<T> send) {
+        rotationLock.readLock().lock();
+        try {
+            return send.get();
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+    
+    void evaluate() {
+        List<byte[]> samples = sampler.snapshot();
+        if (samples.size() < minSamples) {
+            log.debug("Skipping compression evaluation - {} of {} samples collected", samples.size(), minSamples);
+            return;
+        }
+        
+        List<List<SimpleRecord>> batches = toBatches(samples);
+        for (String codec : codecs) {
+            results.put(codec, measure(CompressionType.forName(codec), batches));
+        }
+        
+        String choice = choose();
+        log.info("Compression evaluation over {} samples: {} - active {}, best {}",
+            samples.size(), results, activeCodec, choice);
+        
+        if (choice.equals(activeCodec)) {
+            pendingCodec = null;
+            pendingWins = 0;
+            return;
+        }
+        pendingWins = choice.equals(pendingCodec) ? pendingWins + 1 : 1;
+        pendingCodec = choice;
+        if (pendingWins >= stableEvaluations) {
+            rotate(choice);
+        }
+    }
+    
+    // Same packing the record accumulator does: fill up to batch.size, then start a new batch
+    private List<List<SimpleRecord>> toBatches(List<byte[]> samples) {
+        Object batchSizeConfig = producerFactory.getConfigurationProperties().get(ProducerConfig.BATCH_SIZE_CONFIG);
+        int batchSize = batchSizeConfig != null ? Integer.parseInt(batchSizeConfig.toString()) : 16384;
+        
+        List<List<SimpleRecord>> batches = new ArrayList<>();
+        List<SimpleRecord> current = new ArrayList<>();
+        int currentBytes = 0;
+        for (byte[] payload : samples) {
+            if (!current.isEmpty() && currentBytes + payload.length > batchSize) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(new SimpleRecord(payload));
+            currentBytes += payload.length;
+        }
+        batches.add(current);
+        return batches;
+    }
+    
+    private CodecResult measure(CompressionType type, List<List<SimpleRecord>> batches) {
+        long uncompressedBytes = 0;
+        long compressedBytes = 0;
+        long bestNanos = Long.MAX_VALUE;
+        // The first round also pays for loading the native codec library; keep the fastest round
+        for (int round = 0; round < evaluationRounds; round++) {
+            long start = System.nanoTime();
+            long size = 0;
+            for (List<SimpleRecord> batch : batches) {
+                size += MemoryRecords.withRecords(type, batch.toArray(new SimpleRecord[0])).sizeInBytes();
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            compressedBytes = size;
+        }
+        for (List<SimpleRecord> batch : batches) {
+            for (SimpleRecord record : batch) {
+                uncompressedBytes += record.value().remaining();
+            }
+        }
+        double seconds = Math.max(bestNanos, 1) / 1_000_000_000.0;
+        return new CodecResult(type.name, compressedBytes, (double) uncompressedBytes / compressedBytes,
+            uncompressedBytes / 1_048_576.0 / seconds);
+    }
+    
+    private String choose() {
+        List<CodecResult> eligible = new ArrayList<>();
+        for (CodecResult result : results.values()) {
+            if (result.codec().equals(CompressionType.NONE.name)
+                    || result.throughputMbPerSecond() >= minThroughputMbPerSecond) {
+                eligible.add(result);
+            }
+        }
+        eligible.sort(Comparator.comparingDouble(CodecResult::throughputMbPerSecond).reversed());
+        
+        CodecResult best = null;
+        for (CodecResult result : eligible) {
+            if (best == null || result.compressedBytes() <= best.compressedBytes() * (1 - minSizeReduction)) {
+                best = result;
+            }
+        }
+        return best != null ? best.codec() : activeCodec;
+    }
+    
+    private void rotate(String codec) {
+        rotationLock.writeLock().lock();
+        try {
+            String previous = activeCodec;
+            kafkaTemplate.flush();
+            producerFactory.updateConfigs(Map.of(ProducerConfig.COMPRESSION_TYPE_CONFIG, codec));
+            producerFactory.reset();
+            activeCodec = codec;
+            pendingCodec = null;
+            pendingWins = 0;
+            switches.increment();
+            log.info("Rotated producer from compression {} to {}", previous, codec);
+        } catch (Exception e) {
+            log.error("Failed to rotate producer onto compression {}", codec, e);
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+    
+    private boolean isAdaptive() {
+        return "adaptive".equalsIgnoreCase(mode);
+    }
+    
+    public String getActiveCodec() {
+        return activeCodec;
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("mode", mode);
+        details.put("activeCodec", activeCodec);
+        details.put("samples", sampler.getSampledCount());
+        Map<String, Object> measured = new LinkedHashMap<>();
+        results.values().stream()
+            .sorted(Comparator.comparing(CodecResult::codec))
+            .forEach(result -> measured.put(result.codec(), Map.of(
+                "ratio", result.ratio(),
+                "throughputMbPerSecond", result.throughputMbPerSecond())));
+        details.put("codecs", measured);
+        return details;
+    }
+    
+    private record CodecResult(String codec, long compressedBytes, double ratio, double throughputMbPerSecond) {
+        @Override
+        public String toString() {
+            return String.format("%.2fx@%.0fMB/s", ratio, throughputMbPerSecond);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,214 @@
+package com.example.msk.producer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the messages and bytes a pod has handed to the Kafka client but not yet seen acknowledged.
+ * Once {@code buffer.memory} fills, {@code send()} blocks the calling Tomcat thread for up to
+ * {@code max.block.ms}; rejecting the request up front with a Retry-After derived from the observed
+ * drain rate keeps request threads, and with them the health endpoints, available under overload.
+ */
+@Service
+@Slf4j
+public class AdmissionControlService {
+    
+    private static final double DRAIN_RATE_SMOOTHING = 0.3;
+    
+    /**
+     * Thrown when admitting a request would exceed the in-flight limits.
+     */
+    @Getter
+    public static class AdmissionRejectedException extends RuntimeException {
+        
+        private final long retryAfterSeconds;
+        
+        public AdmissionRejectedException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+    
+    /**
+     * Capacity reserved for one request. Every message handed to {@code send()} must be released
+     * with {@link #release()} once its outcome is known; {@link #close()} returns whatever was
+     * reserved but never sent, and only acts the first time it is called.
+     */
+    public final class Permit implements AutoCloseable {
+        
+        private final int messages;
+        private final long bytesPerMessage;
+        private final AtomicInteger attempted = new AtomicInteger();
+        private final AtomicInteger released = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        
+        private Permit(int messages, long bytesPerMessage) {
+            this.messages = messages;
+            this.bytesPerMessage = bytesPerMessage;
+        }
+        
+        public void attempt() {
+            attempted.incrementAndGet();
+        }
+        
+        public void release() {
+            if (released.incrementAndGet() <= messages) {
+                AdmissionControlService.this.release(1, bytesPerMessage);
+                drainedMessages.incrementAndGet();
+            }
+        }
+        
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            int unsent = messages - Math.min(attempted.get(), messages);
+            if (unsent > 0) {
+                released.addAndGet(unsent);
+                AdmissionControlService.this.release(unsent, unsent * bytesPerMessage);
+            }
+        }
+    }
+    
+    private final AtomicLong inFlightMessages = new AtomicLong();
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final AtomicLong drainedMessages = new AtomicLong();
+    private volatile long lastDrainedMessages;
+    private volatile double drainRatePerSecond;
+    
+    private final Counter admittedCounter;
+    private final Counter rejectedMessagesCounter;
+    private final Counter rejectedBytesCounter;
+    
+    @Value("${producer.admission.enabled:true}")
+    private Boolean enabled;
+    
+    @Value("${producer.admission.max-in-flight-messages:20000}")
+    private Long maxInFlightMessages;
+    
+    // Kept below buffer.memory (32 MB) so send() does not block waiting for buffer space
+    @Value("${producer.admission.max-in-flight-bytes:25165824}")
+    private Long maxInFlightBytes;
+    
+    // Serialized JSON envelope around the payload: IDs, accounts, type and timestamps
+    @Value("${producer.admission.message-overhead-bytes:512}")
+    private Integer messageOverheadBytes;
+    
+    @Value("${producer.admission.min-retry-after-seconds:1}")
+    private Long minRetryAfterSeconds;
+    
+    @Value("${producer.admission.max-retry-after-seconds:30}")
+    private Long maxRetryAfterSeconds;
+    
+    public AdmissionControlService(MeterRegistry meterRegistry) {
+        Gauge.builder("msk.producer.admission.in.flight.messages", inFlightMessages, AtomicLong::get)
+            .description("Messages handed to the Kafka client and not yet acknowledged")
+            .register(meterRegistry);
+        Gauge.builder("msk.producer.admission.in.flight.bytes", inFlightBytes, AtomicLong::get)
+            .description("Estimated bytes of messages handed to the Kafka client and not yet acknowledged")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("msk.producer.admission.drain.rate", this, service -> service.drainRatePerSecond)
+            .description("Smoothed rate at which in-flight messages are acknowledged, per second")
+            .register(meterRegistry);
+        this.admittedCounter = Counter.builder("msk.producer.admission.requests")
+            .description("Produce requests by admission decision")
+            .tag("outcome", "admitted")
+            .tag("limit", "none")
+            .register(meterRegistry);
+        this.rejectedMessagesCounter = Counter.builder("msk.producer.admission.requests")
+            .description("Produce requests by admission decision")
+            .tag("outcome", "rejected")
+            .tag("limit", "messages")
+            .register(meterRegistry);
+        this.rejectedBytesCounter = Counter.builder("msk.producer.admission.requests")
+            .description("Produce requests by admission decision")
+            .tag("outcome", "rejected")
+            .tag("limit", "bytes")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Reserves capacity for {@code messages} sends of roughly {@code payloadBytes} each, or throws
+     * {@link AdmissionRejectedException} without blocking. A request larger than the limits is still
+     * admitted when nothing else is in flight, so oversized batches are not starved forever.
+     */
+    public Permit admit(int messages, long payloadBytes) {
+        long bytesPerMessage = payloadBytes + messageOverheadBytes;
+        long bytes = messages * bytesPerMessage;
+        
+        if (enabled) {
+            long currentMessages = inFlightMessages.addAndGet(messages);
+            long currentBytes = inFlightBytes.addAndGet(bytes);
+            boolean overMessages = currentMessages > maxInFlightMessages && currentMessages > messages;
+            boolean overBytes = currentBytes > maxInFlightBytes && currentBytes > bytes;
+            if (overMessages || overBytes) {
+                release(messages, bytes);
+                (overMessages ? rejectedMessagesCounter : rejectedBytesCounter).increment();
+                long excess = overMessages ? currentMessages - maxInFlightMessages
+                    : (currentBytes - maxInFlightBytes + bytesPerMessage - 1) / bytesPerMessage;
+                long retryAfter = retryAfterSeconds(excess);
+                String reason = overMessages
+                    ? String.format("%d messages already in flight (limit %d)", currentMessages - messages, maxInFlightMessages)
+                    : String.format("%d bytes already in flight (limit %d)", currentBytes - bytes, maxInFlightBytes);
+                log.warn("Rejected produce request of {} messages: {} - retry after {}s", messages, reason, retryAfter);
+                throw new AdmissionRejectedException("Producer overloaded: " + reason, retryAfter);
+            }
+        } else {
+            inFlightMessages.addAndGet(messages);
+            inFlightBytes.addAndGet(bytes);
+        }
+        
+        admittedCounter.increment();
+        return new Permit(messages, bytesPerMessage);
+    }
+    
+    @Scheduled(fixedRate = 1000)
+    public void updateDrainRate() {
+        long drained = drainedMessages.get();
+        double rate = drained - lastDrainedMessages;
+        lastDrainedMessages = drained;
+        drainRatePerSecond = DRAIN_RATE_SMOOTHING * rate + (1 - DRAIN_RATE_SMOOTHING) * drainRatePerSecond;
+    }
+    
+    // Time for the backlog above the limit to drain at the recently observed rate
+    private long retryAfterSeconds(long excessMessages) {
+        double rate = drainRatePerSecond;
+        if (rate < 1) {
+            return maxRetryAfterSeconds;
+        }
+        long seconds = (long) Math.ceil(excessMessages / rate);
+        return Math.max(minRetryAfterSeconds, Math.min(maxRetryAfterSeconds, seconds));
+    }
+    
+    private void release(long messages, long bytes) {
+        inFlightMessages.addAndGet(-messages);
+        inFlightBytes.addAndGet(-bytes);
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("enabled", enabled);
+        details.put("inFlightMessages", inFlightMessages.get());
+        details.put("maxInFlightMessages", maxInFlightMessages);
+        details.put("inFlightBytes", inFlightBytes.get());
+        details.put("maxInFlightBytes", maxInFlightBytes);
+        details.put("drainRatePerSecond", Math.round(drainRatePerSecond * 10) / 10.0);
+        details.put("admittedRequests", (long) admittedCounter.count());
+        details.put("rejectedRequests", (long) (rejectedMessagesCounter.count() + rejectedBytesCounter.count()));
+        return details;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.producer.id.MessageIdGenerator;
+import com.example.msk.producer.model.TestMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a timestamped canary probe to every partition of the topic at a fixed rate once warm-up has
+ * finished. Probes carry a run ID in {@code batchId} and a per-partition sequence number, so the
+ * consumer can measure round-trip latency and spot lost probes per partition. They bypass admission
+ * control and are not counted in the produce metrics.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CanaryService {
+    
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final AdaptiveCompressionService compressionService;
+    private final MessageIdGenerator idGenerator;
+    private final WarmupService warmupService;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${aws.msk.topic-name}")
+    private String topicName;
+    
+    @Value("${producer.canary.enabled:true}")
+    private Boolean enabled;
+    
+    @Value("${producer.canary.interval-ms:1000}")
+    private Long intervalMs;
+    
+    private final Map<Integer, AtomicInteger> sequences = new ConcurrentHashMap<>();
+    private final Map<Integer, Timer> ackTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> probeCounters = new ConcurrentHashMap<>();
+    private volatile String runId;
+    private volatile Instant lastProbeAt;
+    private volatile String lastError;
+    
+    // partitionsFor() can block for max.block.ms while the cluster is unreachable, so probes get their own thread
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "producer-canary");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Canary disabled");
+            return;
+        }
+        runId = "canary-" + idGenerator.nextId();
+        scheduler.scheduleAtFixedRate(this::sendProbes, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("Canary started - Run ID: {}, Topic: {}, Interval: {}ms", runId, topicName, intervalMs);
+    }
+    
+    private void sendProbes() {
+        if (!warmupService.isReady()) {
+            return;
+        }
+        try {
+            List<PartitionInfo> partitions = kafkaTemplate.partitionsFor(topicName);
+            for (PartitionInfo partition : partitions) {
+                sendProbe(partition.partition());
+            }
+            lastProbeAt = Instant.now();
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            count("failed");
+            log.warn("Canary probes not sent: {}", e.getMessage());
+        }
+    }
+    
+    private void sendProbe(int partition) {
+        TestMessage probe = TestMessage.builder()
+            .messageId(idGenerator.nextId())
+            .timestamp(Instant.now())
+            .sourceAccount("canary")
+            .targetAccount("canary")
+            .messageType(TestMessage.CANARY_MESSAGE_TYPE)
+            .batchId(runId)
+            .sequenceNumber(sequences.computeIfAbsent(partition, p -> new AtomicInteger()).incrementAndGet())
+            .build();
+        long start = System.nanoTime();
+        // Held back during a codec rotation instead of failing against the closing producer
+        compressionService.withProducer(() -> kafkaTemplate.send(topicName, partition, probe.getMessageId(), probe))
+            .whenComplete((result, error) -> {
+                if (error == null) {
+                    ackTimer(partition).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    count("acked");
+                } else {
+                    lastError = error.getMessage();
+                    count("failed");
+                    log.warn("Canary probe to partition {} failed: {}", partition, error.getMessage());
+                }
+            });
+    }
+    
+    private Timer ackTimer(int partition) {
+        return ackTimers.computeIfAbsent(partition, p -> Timer.builder("msk.producer.canary.ack")
+            .description("Time from sending a canary probe until the partition leader acknowledges it")
+            .tag("partition", String.valueOf(p))
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry));
+    }
+    
+    private void count(String outcome) {
+        probeCounters.computeIfAbsent(outcome, o -> Counter.builder("msk.producer.canary.probes")
+                .description("Canary probes by outcome")
+                .tag("outcome", o)
+                .register(meterRegistry))
+            .increment();
+    }
+    
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("enabled", enabled);
+        details.put("runId", runId);
+        details.put("intervalMs", intervalMs);
+        details.put("probesAcked", probeCounters.containsKey("acked") ? (long) probeCounters.get("acked").count() : 0L);
+        details.put("probesFailed", probeCounters.containsKey("failed") ? (long) probeCounters.get("failed").count() : 0L);
+        details.put("lastProbeAt", lastProbeAt != null ? lastProbeAt.toString() : "Never");
+        Map<String, Object> ackMs = new LinkedHashMap<>();
+        ackTimers.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(entry -> ackMs.put(String.valueOf(entry.getKey()),
+                Math.round(entry.getValue().mean(TimeUnit.MILLISECONDS) * 100) / 100.0));
+        details.put("meanAckMsByPartition", ackMs);
+        if (lastError != null) {
+            details.put("lastError", lastError);
+        }
+        return details;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.producer.model.ClaimCheck;
+import com.example.msk.producer.storage.BlobStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Claim-check mode: payloads above the threshold are written to the {@link BlobStore} and only a
+ * {@link ClaimCheck} travels through Kafka. Blobs are keyed by the payload's SHA-256, so the same
+ * payload is stored once however many messages and batches carry it.
+ */
+@Service
+@Slf4j
+public class ClaimCheckService {
+    
+    // URI, size and checksum of a claim check in the serialized message
+    private static final long REFERENCE_SIZE_ESTIMATE = 256;
+    
+    private final BlobStore blobStore;
+    private final Counter offloadedCounter;
+    private final Counter storedBytesCounter;
+    private final Timer storeTimer;
+    
+    @Value("${producer.claim-check.enabled:false}")
+    private Boolean enabled;
+    
+    @Value("${producer.claim-check.threshold-bytes:16384}")
+    private Integer thresholdBytes;
+    
+    @Value("${producer.claim-check.key-prefix:sha256/}")
+    private String keyPrefix;
+    
+    // Checksums stored recently by this instance; skips the store round trip for repeated payloads
+    private final Set<String> recentlyStored = Collections.newSetFromMap(
+        Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > 1024;
+            }
+        }));
+    
+    public ClaimCheckService(BlobStore blobStore, MeterRegistry meterRegistry) {
+        this.blobStore = blobStore;
+        this.offloadedCounter = Counter.builder("msk.producer.claimcheck.offloaded")
+            .description("Payloads sent as a claim-check reference instead of inline")
+            .register(meterRegistry);
+        this.storedBytesCounter = Counter.builder("msk.producer.claimcheck.stored")
+            .description("Payload bytes written to the claim-check blob store")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        this.storeTimer = Timer.builder("msk.producer.claimcheck.store.duration")
+            .description("Time to write a payload to the claim-check blob store")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Stores the payload and returns its claim check, or {@code null} when the payload should be
+     * sent inline (claim-check disabled or payload not above the threshold).
+     */
+    public ClaimCheck offload(String payload) {
+        // UTF-8 needs at most three bytes per char, so short payloads are decided without encoding them
+        if (!enabled || payload == null || payload.length() <= thresholdBytes / 3) {
+            return null;
+        }
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= thresholdBytes) {
+            return null;
+        }
+        
+        String sha256 = sha256(bytes);
+        String key = keyPrefix + sha256;
+        String uri = storeTimer.record(() -> store(key, sha256, bytes));
+        offloadedCounter.increment();
+        
+        log.debug("Offloaded {} byte payload to {}", bytes.length, uri);
+        return ClaimCheck.builder()
+            .uri(uri)
+            .sizeBytes((long) bytes.length)
+            .sha256(sha256)
+            .build();
+    }
+    
+    /**
+     * Estimated payload bytes each message carries inline, without encoding or storing anything:
+     * payloads that will certainly be offloaded count as their reference only.
+     */
+    public long inlineSizeEstimate(String payload) {
+        if (payload == null) {
+            return 0;
+        }
+        if (enabled && payload.length() > thresholdBytes) {
+            return REFERENCE_SIZE_ESTIMATE;
+        }
+        return payload.length();
+    }
+    
+    private String store(String key, String sha256, byte[] bytes) {
+        if (recentlyStored.contains(sha256)) {
+            return blobStore.uriOf(key);
+        }
+        // Another instance may already have stored the same content
+        if (!blobStore.exists(key)) {
+            blobStore.put(key, bytes);
+            storedBytesCounter.increment(bytes.length);
+        }
+        recentlyStored.add(sha256);
+        return blobStore.uriOf(key);
+    }
+    
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
\ No newline at end of file
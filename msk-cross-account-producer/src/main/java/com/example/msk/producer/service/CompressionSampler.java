@@ -0,0 +1,57 @@
+package com.example.msk.producer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps every Nth serialized payload in a fixed-size ring so the adaptive compression evaluation
+ * works on the current message mix. The serializer's output array is stored as-is; the producer
+ * never mutates it, so sampling costs one counter increment per record and no copying.
+ */
+@Component
+public class CompressionSampler {
+    
+    private final int sampleEvery;
+    private final AtomicReferenceArray<byte[]> samples;
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong sampled = new AtomicLong();
+    
+    public CompressionSampler(@Value("${producer.compression.mode:static}") String mode,
+                              @Value("${producer.compression.sample-every:100}") int sampleEvery,
+                              @Value("${producer.compression.sample-size:256}") int sampleSize) {
+        // Static mode never reads the samples, so skip collecting them
+        this.sampleEvery = "adaptive".equalsIgnoreCase(mode) ? Math.max(1, sampleEvery) : 0;
+        this.samples = new AtomicReferenceArray<>(Math.max(1, sampleSize));
+    }
+    
+    public byte[] offer(byte[] payload) {
+        if (sampleEvery > 0 && payload != null && offered.getAndIncrement() % sampleEvery == 0) {
+            long slot = sampled.getAndIncrement();
+            samples.set((int) (slot % samples.length()), payload);
+        }
+        return payload;
+    }
+    
+    /**
+     * Samples currently held; fewer than the ring size until it has filled.
+     */
+    public List<byte[]> snapshot() {
+        List<byte[]> result = new ArrayList<>(samples.length());
+        for (int i = 0; i < samples.length(); i++) {
+            byte[] payload = samples.get(i);
+            if (payload != null) {
+                result.add(payload);
+            }
+        }
+        return result;
+    }
+    
+    public long getSampledCount() {
+        return sampled.get();
+    }
+}
\ No newline at end of file
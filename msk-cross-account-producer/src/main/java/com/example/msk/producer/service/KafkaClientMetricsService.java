@@ -0,0 +1,161 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.producer.dto.KafkaClientMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the producer client's own metrics ({@code KafkaProducer.metrics()}) and derives a
+ * connection status from them. The full set of client metrics is also published to Micrometer
+ * by the {@code MicrometerProducerListener} registered in {@code KafkaConfig}.
+ */
+@Service
+@Slf4j
+public class KafkaClientMetricsService {
+    
+    private static final String PRODUCER_GROUP = "producer-metrics";
+    private static final String NODE_GROUP = "producer-node-metrics";
+    
+    public enum ConnectionStatus {
+        CONNECTED, DEGRADED, DISCONNECTED
+    }
+    
+    public record StatusReport(ConnectionStatus status, List<String> reasons) {
+    }
+    
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    
+    @Value("${producer.metrics.buffer-low-ratio:0.1}")
+    private Double bufferLowRatio;
+    
+    @Value("${producer.metrics.max-retry-rate:1.0}")
+    private Double maxRetryRate;
+    
+    public KafkaClientMetricsService(KafkaTemplate<String, Object> kafkaTemplate, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        Gauge.builder("msk.producer.connection.status", this, service -> service.status().status().ordinal())
+            .description("Derived producer connection status: 0 = CONNECTED, 1 = DEGRADED, 2 = DISCONNECTED")
+            .register(meterRegistry);
+    }
+    
+    public KafkaClientMetrics snapshot() {
+        return snapshot(readMetrics());
+    }
+    
+    public StatusReport status() {
+        return status(snapshot());
+    }
+    
+    public StatusReport status(KafkaClientMetrics metrics) {
+        List<String> reasons = new ArrayList<>();
+        
+        if (metrics.getConnectionCount() == null || metrics.getConnectionCount() == 0) {
+            reasons.add("No open broker connections");
+            return new StatusReport(ConnectionStatus.DISCONNECTED, reasons);
+        }
+        double errorRate = valueOrZero(metrics.getRecordErrorRate());
+        if (errorRate > 0 && valueOrZero(metrics.getRecordSendRate()) == 0) {
+            reasons.add(String.format("All sends failing (%.2f errors/s)", errorRate));
+            return new StatusReport(ConnectionStatus.DISCONNECTED, reasons);
+        }
+        
+        if (errorRate > 0) {
+            reasons.add(String.format("Record errors: %.2f/s", errorRate));
+        }
+        if (valueOrZero(metrics.getRecordRetryRate()) > maxRetryRate) {
+            reasons.add(String.format("Record retries: %.2f/s", metrics.getRecordRetryRate()));
+        }
+        if (metrics.getBufferTotalBytes() != null && metrics.getBufferAvailableBytes() != null
+                && metrics.getBufferAvailableBytes() < metrics.getBufferTotalBytes() * bufferLowRatio) {
+            reasons.add(String.format("buffer.memory nearly exhausted: %.0f of %.0f bytes free",
+                metrics.getBufferAvailableBytes(), metrics.getBufferTotalBytes()));
+        }
+        if (valueOrZero(metrics.getBufferPoolWaitRatio()) > 0) {
+            reasons.add(String.format("send() blocked waiting for buffer space %.1f%% of the time",
+                metrics.getBufferPoolWaitRatio() * 100));
+        }
+        
+        return new StatusReport(reasons.isEmpty() ? ConnectionStatus.CONNECTED : ConnectionStatus.DEGRADED, reasons);
+    }
+    
+    private Map<MetricName, ? extends Metric> readMetrics() {
+        try {
+            return kafkaTemplate.metrics();
+        } catch (Exception e) {
+            log.warn("Could not read Kafka producer metrics: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+    
+    private KafkaClientMetrics snapshot(Map<MetricName, ? extends Metric> metrics) {
+        Map<String, Double> producer = new HashMap<>();
+        Map<String, Map<String, Double>> nodes = new HashMap<>();
+        
+        metrics.forEach((name, metric) -> {
+            if (PRODUCER_GROUP.equals(name.group())) {
+                producer.put(name.name(), toDouble(metric.metricValue()));
+            } else if (NODE_GROUP.equals(name.group()) && name.tags().containsKey("node-id")) {
+                String nodeId = name.tags().get("node-id").replace("node-", "");
+                nodes.computeIfAbsent(nodeId, id -> new HashMap<>()).put(name.name(), toDouble(metric.metricValue()));
+            }
+        });
+        
+        List<KafkaClientMetrics.BrokerMetrics> brokers = new ArrayList<>();
+        nodes.forEach((nodeId, values) -> {
+            Double requestRate = values.get("request-rate");
+            Double responseRate = values.get("response-rate");
+            brokers.add(KafkaClientMetrics.BrokerMetrics.builder()
+                .nodeId(nodeId)
+                .state(valueOrZero(requestRate) > 0 || valueOrZero(responseRate) > 0 ? "ACTIVE" : "IDLE")
+                .requestRate(requestRate)
+                .responseRate(responseRate)
+                .requestLatencyAvgMs(values.get("request-latency-avg"))
+                .outgoingByteRate(values.get("outgoing-byte-rate"))
+                .build());
+        });
+        brokers.sort(Comparator.comparing(KafkaClientMetrics.BrokerMetrics::getNodeId));
+        
+        return KafkaClientMetrics.builder()
+            .recordQueueTimeAvgMs(producer.get("record-queue-time-avg"))
+            .recordQueueTimeMaxMs(producer.get("record-queue-time-max"))
+            .requestLatencyAvgMs(producer.get("request-latency-avg"))
+            .requestLatencyMaxMs(producer.get("request-latency-max"))
+            .batchSizeAvg(producer.get("batch-size-avg"))
+            .compressionRateAvg(producer.get("compression-rate-avg"))
+            .bufferAvailableBytes(producer.get("buffer-available-bytes"))
+            .bufferTotalBytes(producer.get("buffer-total-bytes"))
+            .bufferPoolWaitRatio(producer.get("bufferpool-wait-ratio"))
+            .recordSendRate(producer.get("record-send-rate"))
+            .recordRetryRate(producer.get("record-retry-rate"))
+            .recordErrorRate(producer.get("record-error-rate"))
+            .requestsInFlight(producer.get("requests-in-flight"))
+            .connectionCount(producer.get("connection-count"))
+            .brokers(brokers)
+            .build();
+    }
+    
+    // Averages and maxima are NaN until the first sample, which JSON cannot represent
+    private Double toDouble(Object value) {
+        if (value instanceof Number number) {
+            double d = number.doubleValue();
+            return Double.isFinite(d) ? d : null;
+        }
+        return null;
+    }
+    
+    private double valueOrZero(Double value) {
+        return value != null ? value : 0;
+    }
+}
\ No newline at end of file
@@ -1,9 +1,16 @@
 package com.example.msk.producer.service;
 
+import com.example.msk.producer.dto.KafkaClientMetrics;
 import com.example.msk.producer.dto.ProduceMessageRequest;
 import com.example.msk.producer.dto.ProduceMessageResponse;
 import com.example.msk.producer.dto.ProducerMetrics;
+import com.example.msk.producer.dto.TopicProduceResult;
+import com.example.msk.producer.id.MessageIdGenerator;
+import com.example.msk.producer.model.ClaimCheck;
 import com.example.msk.producer.model.TestMessage;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,9 +20,16 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Service
@@ -24,9 +38,13 @@ import java.util.concurrent.atomic.AtomicLong;
 public class ProducerService {
     
     private final KafkaTemplate<String, Object> kafkaTemplate;
-    
-    @Value("${aws.msk.topic-name}")
-    private String topicName;
+    private final KafkaClientMetricsService clientMetricsService;
+    private final AdaptiveCompressionService compressionService;
+    private final ClaimCheckService claimCheckService;
+    private final TopicFanOutService fanOutService;
+    private final AdmissionControlService admissionControl;
+    private final MessageIdGenerator idGenerator;
+    private final ObservationRegistry observationRegistry;
     
     @Value("${producer.rate-limit-per-second}")
     private Integer rateLimitPerSecond;
@@ -39,93 +57,359 @@ public class ProducerService {
     private volatile Instant lastProductionTime;
     private volatile Instant serviceStartTime = Instant.now();
     
+    // Releases the later seconds of rate-limited async batches; sends themselves never block it for long
+    private final ScheduledExecutorService sendScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "producer-async-send");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     public ProduceMessageResponse produceMessages(ProduceMessageRequest request) {
-        String batchId = UUID.randomUUID().toString();
-        List<String> messageIds = new ArrayList<>();
+        String batchId = idGenerator.nextId();
+        Instant startTime = Instant.now();
+        // Resolved before anything is sent, so an invalid topic list rejects the whole request
+        List<String> topics = fanOutService.resolve(request.getTopics());
+        // Rejects without blocking when the pod already has too much in flight
+        AdmissionControlService.Permit permit = admissionControl.admit(request.getBatchSize() * topics.size(),
+            claimCheckService.inlineSizeEstimate(request.getPayload()));
+        
+        log.info("Starting batch production - Batch ID: {}, Size: {}, Topics: {}", 
+            batchId, request.getBatchSize(), topics);
+        
+        List<TopicProduceResult> topicResults = new ArrayList<>();
+        StringBuilder errorDetails = new StringBuilder();
+        
+        try (permit) {
+            // Every message in the batch carries the same payload, so it is offloaded at most once
+            ClaimCheck claimCheck = claimCheckService.offload(request.getPayload());
+            
+            // With several topics each gets its own batch ID, so the consumer can verify them separately
+            topicResults = fanOutService.forEachTopic(topics, topic -> produceToTopic(topic,
+                topics.size() == 1 ? batchId : idGenerator.nextId(), request, claimCheck, permit));
+            
+            totalBatches.addAndGet(topics.size());
+            lastProductionTime = Instant.now();
+        
+        } catch (Exception e) {
+            log.error("Batch production failed", e);
+            errorDetails.append("Batch error: ").append(e.getMessage());
+        }
+        
+        return buildResponse(batchId, startTime, request, topics, topicResults, errorDetails);
+    }
+    
+    /**
+     * A small single-topic request that was already admitted and had its payload offloaded, waiting to
+     * be sent together with others by {@link RequestCoalescingService}. {@code observation} is the
+     * caller's current observation, if any, so the sends are traced as part of the caller's request.
+     */
+    public record CoalescedRequest(ProduceMessageRequest request, String topic, ClaimCheck claimCheck,
+                                   AdmissionControlService.Permit permit, Instant startTime, Observation observation) {
+    }
+    
+    /**
+     * Sends several admitted requests in one pass on the calling thread and returns one response per
+     * request, in order. Each request keeps its own batch ID, so the consumer can still verify it on
+     * its own; the setup, response bookkeeping and logging that {@link #produceMessages} repeats per
+     * request are shared.
+     */
+    public List<ProduceMessageResponse> produceCoalesced(List<CoalescedRequest> requests) {
+        long start = System.nanoTime();
+        List<ProduceMessageResponse> responses = new ArrayList<>(requests.size());
+        int messages = 0;
+        int failed = 0;
+        for (CoalescedRequest coalesced : requests) {
+            String batchId = idGenerator.nextId();
+            List<TopicProduceResult> topicResults = List.of();
+            StringBuilder errorDetails = new StringBuilder();
+            try (AdmissionControlService.Permit permit = coalesced.permit();
+                 Observation.Scope scope = coalesced.observation() != null ? coalesced.observation().openScope() : null) {
+                topicResults = List.of(produceToTopic(coalesced.topic(), batchId, coalesced.request(),
+                    coalesced.claimCheck(), permit));
+            } catch (Exception e) {
+                log.error("Coalesced request failed - Batch ID: {}", batchId, e);
+                errorDetails.append("Batch error: ").append(e.getMessage());
+            }
+            ProduceMessageResponse response = buildResponse(batchId, coalesced.startTime(), coalesced.request(),
+                List.of(coalesced.topic()), topicResults, errorDetails, requests.size());
+            messages += response.getMessagesSent();
+            failed += response.getFailureCount();
+            responses.add(response);
+        }
+        totalBatches.addAndGet(requests.size());
+        lastProductionTime = Instant.now();
+        
+        log.info("Coalesced batch production completed - Requests: {}, Messages: {}, Failed: {}, Duration: {}ms",
+            requests.size(), messages, failed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return responses;
+    }
+    
+    /**
+     * Non-blocking variant of {@link #produceMessages}: hands the batch to the Kafka client and
+     * completes once every message is acknowledged, without holding the calling thread meanwhile.
+     * The rate limit is applied by scheduling each second's share of the batch instead of sleeping,
+     * and success and failure counts reflect broker acknowledgements rather than hand-offs.
+     */
+    public CompletableFuture<ProduceMessageResponse> produceMessagesAsync(ProduceMessageRequest request) {
+        String batchId = idGenerator.nextId();
         Instant startTime = Instant.now();
+        List<String> topics = fanOutService.resolve(request.getTopics());
+        AdmissionControlService.Permit permit = admissionControl.admit(request.getBatchSize() * topics.size(),
+            claimCheckService.inlineSizeEstimate(request.getPayload()));
         
+        log.info("Starting async batch production - Batch ID: {}, Size: {}, Topics: {}",
+            batchId, request.getBatchSize(), topics);
+        
+        ClaimCheck claimCheck;
+        try {
+            claimCheck = claimCheckService.offload(request.getPayload());
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+        
+        List<AsyncTopicBatch> batches = topics.stream()
+            .map(topic -> new AsyncTopicBatch(topic, topics.size() == 1 ? batchId : idGenerator.nextId(),
+                request, claimCheck, permit))
+            .toList();
+        
+        // Later chunks run on the scheduler thread; wrapping keeps their sends in the request's trace
+        Observation parent = observationRegistry.getCurrentObservation();
+        int perSecond = Math.max(1, rateLimitPerSecond);
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < request.getBatchSize(); from += perSecond) {
+            int first = from;
+            int last = Math.min(from + perSecond, request.getBatchSize());
+            Runnable chunk = parent != null
+                ? parent.wrap(() -> batches.forEach(batch -> batch.send(first, last)))
+                : () -> batches.forEach(batch -> batch.send(first, last));
+            chunks.add(from == 0
+                ? CompletableFuture.runAsync(chunk, Runnable::run)
+                : CompletableFuture.runAsync(chunk,
+                    CompletableFuture.delayedExecutor(from / perSecond, TimeUnit.SECONDS, sendScheduler)));
+        }
+        totalBatches.addAndGet(topics.size());
+        
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+            .handle((ignored, error) -> error)
+            .thenCompose(error -> CompletableFuture.allOf(batches.stream()
+                    .flatMap(batch -> batch.futures.stream())
+                    .toArray(CompletableFuture[]::new))
+                .handle((ignored, sendError) -> error))
+            .thenApply(error -> {
+                permit.close();
+                lastProductionTime = Instant.now();
+                StringBuilder errorDetails = new StringBuilder();
+                if (error != null) {
+                    log.error("Async batch production failed", error);
+                    errorDetails.append("Batch error: ").append(error.getMessage());
+                }
+                return buildResponse(batchId, startTime, request, topics,
+                    batches.stream().map(AsyncTopicBatch::toResult).toList(), errorDetails);
+            });
+    }
+    
+    private ProduceMessageResponse buildResponse(String batchId, Instant startTime, ProduceMessageRequest request,
+                                                 List<String> topics, List<TopicProduceResult> topicResults,
+                                                 StringBuilder errorDetails) {
+        return buildResponse(batchId, startTime, request, topics, topicResults, errorDetails, null);
+    }
+    
+    private ProduceMessageResponse buildResponse(String batchId, Instant startTime, ProduceMessageRequest request,
+                                                 List<String> topics, List<TopicProduceResult> topicResults,
+                                                 StringBuilder errorDetails, Integer coalescedRequests) {
         int successCount = 0;
         int failureCount = 0;
-        StringBuilder errorDetails = new StringBuilder();
+        List<String> messageIds = new ArrayList<>();
+        for (TopicProduceResult result : topicResults) {
+            successCount += result.getSuccessCount();
+            failureCount += result.getFailureCount();
+            messageIds.addAll(result.getMessageIds());
+            if (result.getErrorDetails() != null) {
+                errorDetails.append(topics.size() > 1 ? result.getTopic() + ": " : "")
+                    .append(result.getErrorDetails());
+            }
+        }
         
-        log.info("Starting batch production - Batch ID: {}, Size: {}", batchId, request.getBatchSize());
+        Instant endTime = Instant.now();
+        long durationMs = endTime.toEpochMilli() - startTime.toEpochMilli();
+        
+        ProduceMessageResponse response = ProduceMessageResponse.builder()
+            .batchId(batchId)
+            .messagesSent(request.getBatchSize() * topics.size())
+            .successCount(successCount)
+            .failureCount(failureCount)
+            .startTime(startTime)
+            .endTime(endTime)
+            .durationMs(durationMs)
+            .messageIds(messageIds)
+            .errorDetails(errorDetails.length() > 0 ? errorDetails.toString() : null)
+            .topicResults(topicResults)
+            .coalescedRequests(coalescedRequests)
+            .build();
+        
+        // Coalesced requests are logged once per merged pass instead
+        if (response.getCoalescedRequests() == null) {
+            log.info("Batch production completed - Batch ID: {}, Topics: {}, Success: {}, Failed: {}, Duration: {}ms",
+                batchId, topics.size(), successCount, failureCount, durationMs);
+        }
+        
+        return response;
+    }
+    
+    private TopicProduceResult produceToTopic(String topic, String batchId, ProduceMessageRequest request,
+                                              ClaimCheck claimCheck, AdmissionControlService.Permit permit) {
+        List<String> messageIds = new ArrayList<>();
+        long start = System.nanoTime();
+        
+        int successCount = 0;
+        int failureCount = 0;
+        StringBuilder errorDetails = new StringBuilder();
         
         try {
             for (int i = 0; i < request.getBatchSize(); i++) {
-                String messageId = UUID.randomUUID().toString();
+                String messageId = idGenerator.nextId();
                 messageIds.add(messageId);
                 
-                TestMessage message = TestMessage.builder()
-                    .messageId(messageId)
-                    .timestamp(Instant.now())
-                    .sourceAccount(request.getSourceAccount())
-                    .targetAccount(request.getTargetAccount())
-                    .payload(request.getPayload())
-                    .messageType(request.getMessageType())
-                    .batchId(batchId)
-                    .sequenceNumber(i + 1)
-                    .build();
+                TestMessage message = TestMessageFactory.create(messageId, request, batchId, i + 1, claimCheck);
                 
+                permit.attempt();
                 try {
-                    CompletableFuture<SendResult<String, Object>> future = 
-                        kafkaTemplate.send(topicName, messageId, message);
-                    
-                    future.whenComplete((result, ex) -> {
-                        if (ex == null) {
-                            totalSuccessfulMessages.incrementAndGet();
-                            log.debug("Message sent successfully - ID: {}, Partition: {}, Offset: {}", 
-                                messageId, result.getRecordMetadata().partition(), 
-                                result.getRecordMetadata().offset());
-                        } else {
-                            totalFailedMessages.incrementAndGet();
-                            log.error("Failed to send message - ID: {}", messageId, ex);
-                        }
-                    });
+                    send(topic, messageId, message, permit);
                     
                     successCount++;
-                    totalMessagesProduced.incrementAndGet();
                     
                     // Apply rate limiting
                     if (i > 0 && i % rateLimitPerSecond == 0) {
                         Thread.sleep(1000);
                     }
-                    
+                
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw e;
                 } catch (Exception e) {
+                    permit.release();
                     failureCount++;
                     totalFailedMessages.incrementAndGet();
                     errorDetails.append("Message ").append(messageId).append(": ")
                         .append(e.getMessage()).append("; ");
-                    log.error("Error sending message {}", messageId, e);
+                    log.error("Error sending message {} to {}", messageId, topic, e);
                 }
             }
-            
-            totalBatches.incrementAndGet();
-            lastProductionTime = Instant.now();
-            
         } catch (Exception e) {
-            log.error("Batch production failed", e);
-            errorDetails.append("Batch error: ").append(e.getMessage());
+            log.error("Production to topic {} failed", topic, e);
+            errorDetails.append("Topic error: ").append(e.getMessage()).append("; ");
         }
         
-        Instant endTime = Instant.now();
-        long durationMs = endTime.toEpochMilli() - startTime.toEpochMilli();
-        
-        ProduceMessageResponse response = ProduceMessageResponse.builder()
+        return TopicProduceResult.builder()
+            .topic(topic)
             .batchId(batchId)
-            .messagesSent(request.getBatchSize())
             .successCount(successCount)
             .failureCount(failureCount)
-            .startTime(startTime)
-            .endTime(endTime)
-            .durationMs(durationMs)
+            .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
             .messageIds(messageIds)
             .errorDetails(errorDetails.length() > 0 ? errorDetails.toString() : null)
             .build();
+    }
+    
+    /**
+     * Hands one message to the client. The returned future completes after the outcome has been
+     * counted and the message's admission capacity released.
+     */
+    private CompletableFuture<SendResult<String, Object>> send(String topic, String messageId, TestMessage message,
+                                                               AdmissionControlService.Permit permit) {
+        CompletableFuture<SendResult<String, Object>> future = compressionService.withProducer(
+            () -> kafkaTemplate.send(topic, messageId, message));
+        totalMessagesProduced.incrementAndGet();
         
-        log.info("Batch production completed - Batch ID: {}, Success: {}, Failed: {}, Duration: {}ms",
-            batchId, successCount, failureCount, durationMs);
+        return future.whenComplete((result, ex) -> {
+            permit.release();
+            if (ex == null) {
+                totalSuccessfulMessages.incrementAndGet();
+                log.debug("Message sent successfully - ID: {}, Topic: {}, Partition: {}, Offset: {}", 
+                    messageId, topic, result.getRecordMetadata().partition(), 
+                    result.getRecordMetadata().offset());
+            } else {
+                totalFailedMessages.incrementAndGet();
+                log.error("Failed to send message - ID: {}, Topic: {}", messageId, topic, ex);
+            }
+        });
+    }
+    
+    /**
+     * One topic's share of an async request; {@link #send(int, int)} is called once per rate-limit
+     * second, from the request thread for the first and from the send scheduler afterwards.
+     */
+    private final class AsyncTopicBatch {
         
-        return response;
+        private final String topic;
+        private final String batchId;
+        private final ProduceMessageRequest request;
+        private final ClaimCheck claimCheck;
+        private final AdmissionControlService.Permit permit;
+        private final String[] messageIds;
+        private final List<CompletableFuture<?>> futures = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger successCount = new AtomicInteger();
+        private final AtomicInteger failureCount = new AtomicInteger();
+        private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+        private final long start = System.nanoTime();
+        private volatile long end;
+        
+        private AsyncTopicBatch(String topic, String batchId, ProduceMessageRequest request, ClaimCheck claimCheck,
+                                AdmissionControlService.Permit permit) {
+            this.topic = topic;
+            this.batchId = batchId;
+            this.request = request;
+            this.claimCheck = claimCheck;
+            this.permit = permit;
+            this.messageIds = new String[request.getBatchSize()];
+            for (int i = 0; i < messageIds.length; i++) {
+                messageIds[i] = idGenerator.nextId();
+            }
+        }
+        
+        private void send(int first, int last) {
+            for (int i = first; i < last; i++) {
+                String messageId = messageIds[i];
+                TestMessage message = TestMessageFactory.create(messageId, request, batchId, i + 1, claimCheck);
+                permit.attempt();
+                CompletableFuture<?> future;
+                try {
+                    future = ProducerService.this.send(topic, messageId, message, permit);
+                } catch (Exception e) {
+                    permit.release();
+                    totalFailedMessages.incrementAndGet();
+                    log.error("Error sending message {} to {}", messageId, topic, e);
+                    future = CompletableFuture.failedFuture(e);
+                }
+                futures.add(future.whenComplete((result, ex) -> {
+                    if (ex == null) {
+                        successCount.incrementAndGet();
+                    } else {
+                        failureCount.incrementAndGet();
+                        errors.add("Message " + messageId + ": " + ex.getMessage() + "; ");
+                    }
+                    end = System.nanoTime();
+                }));
+            }
+        }
+        
+        private TopicProduceResult toResult() {
+            return TopicProduceResult.builder()
+                .topic(topic)
+                .batchId(batchId)
+                .successCount(successCount.get())
+                .failureCount(failureCount.get())
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(Math.max(end, start) - start))
+                .messageIds(Arrays.asList(messageIds))
+                .errorDetails(errors.isEmpty() ? null : String.join("", errors))
+                .build();
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        sendScheduler.shutdownNow();
     }
     
     public ProducerMetrics getMetrics() {
@@ -144,16 +428,23 @@ public class ProducerService {
         double avgBatchSize = batches > 0 ? 
             (double) totalMessages / batches : 0;
         
+        KafkaClientMetrics clientMetrics = clientMetricsService.snapshot();
+        KafkaClientMetricsService.StatusReport status = clientMetricsService.status(clientMetrics);
+        
         return ProducerMetrics.builder()
             .totalMessagesProduced(totalMessages)
             .totalSuccessfulMessages(successMessages)
             .totalFailedMessages(failedMessages)
             .avgMessagesPerSecond(avgMessagesPerSecond)
             .lastProductionTime(lastProductionTime != null ? lastProductionTime.toString() : "Never")
-            .connectionStatus("Connected") // This could be enhanced with actual connection checking
+            .connectionStatus(status.status().name())
+            .connectionStatusReasons(status.reasons())
             .totalBatches(batches)
             .avgBatchSize(avgBatchSize)
             .successRate(successRate)
+            .kafkaClient(clientMetrics)
+            .compression(compressionService.getDetails())
+            .admission(admissionControl.getDetails())
             .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.producer.dto.ProduceMessageRequest;
+import com.example.msk.producer.dto.ProduceMessageResponse;
+import com.example.msk.producer.model.ClaimCheck;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent small produce requests. A request of at most {@code max-request-messages}
+ * messages for a single topic is admitted, and its payload offloaded to the claim-check store, on its
+ * own request thread, then queued. Each of {@code senders} coalescing threads collects queued requests
+ * until {@code max-requests} are waiting or {@code max-wait-ms} has passed since the first one, sends
+ * them all in a single {@link ProducerService#produceCoalesced} pass and hands every caller its own
+ * response. While a pass is sending, the other threads fill the next ones, so under load passes grow
+ * on their own, the wait only applies when traffic is light, and a send blocked on metadata or buffer
+ * space holds up one sender instead of every queued request. Larger and
+ * fanned-out requests go straight to {@link ProducerService#produceMessages}. For a sampled request
+ * the time spent queued is added to its trace as a {@code producer coalesce wait} span.
+ */
+@Service
+@Slf4j
+public class RequestCoalescingService {
+    
+    // span is the caller's current span when it is sampled, otherwise null
+    private record Pending(ProducerService.CoalescedRequest request, CompletableFuture<ProduceMessageResponse> response,
+                           long enqueuedNanos, Span span) {
+    }
+    
+    private final ProducerService producerService;
+    private final TopicFanOutService fanOutService;
+    private final AdmissionControlService admissionControl;
+    private final ClaimCheckService claimCheckService;
+    private final ObservationRegistry observationRegistry;
+    private final Tracer tracer;
+    private final boolean enabled;
+    private final int maxRequestMessages;
+    private final int maxRequests;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> senders = new ArrayList<>();
+    private volatile boolean running = true;
+    
+    private final DistributionSummary passRequests;
+    private final DistributionSummary passMessages;
+    private final Timer queueWait;
+    private final Counter coalescedCounter;
+    private final Counter directCounter;
+    
+    public RequestCoalescingService(ProducerService producerService,
+                                    TopicFanOutService fanOutService,
+                                    AdmissionControlService admissionControl,
+                                    ClaimCheckService claimCheckService,
+                                    MeterRegistry meterRegistry,
+                                    ObservationRegistry observationRegistry,
+                                    Tracer tracer,
+                                    @Value("${producer.coalescing.enabled:true}") boolean enabled,
+                                    @Value("${producer.coalescing.max-request-messages:10}") int maxRequestMessages,
+                                    @Value("${producer.coalescing.max-requests:200}") int maxRequests,
+                                    @Value("${producer.coalescing.max-wait-ms:2}") long maxWaitMs,
+                                    @Value("${producer.coalescing.senders:4}") int senders) {
+        this.producerService = producerService;
+        this.fanOutService = fanOutService;
+        this.admissionControl = admissionControl;
+        this.claimCheckService = claimCheckService;
+        this.observationRegistry = observationRegistry;
+        this.tracer = tracer;
+        this.enabled = enabled;
+        this.maxRequestMessages = maxRequestMessages;
+        this.maxRequests = Math.max(1, maxRequests);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        
+        this.passRequests = DistributionSummary.builder("msk.producer.coalescing.pass.requests")
+            .description("Produce requests sent together in one coalesced pass")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.passMessages = DistributionSummary.builder("msk.producer.coalescing.pass.messages")
+            .description("Messages sent in one coalesced pass")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.queueWait = Timer.builder("msk.producer.coalescing.wait")
+            .description("Time a coalesced request waits before its pass starts sending")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("msk.producer.coalescing.requests")
+            .description("Produce requests by path")
+            .tag("path", "coalesced")
+            .register(meterRegistry);
+        this.directCounter = Counter.builder("msk.producer.coalescing.requests")
+            .description("Produce requests by path")
+            .tag("path", "direct")
+            .register(meterRegistry);
+        
+        if (enabled) {
+            for (int i = 1; i <= Math.max(1, senders); i++) {
+                Thread sender = new Thread(this::run, "producer-coalescer-" + i);
+                sender.setDaemon(true);
+                sender.start();
+                this.senders.add(sender);
+            }
+        }
+    }
+    
+    /**
+     * Produces the request, coalesced with concurrent ones when it is small enough. Blocks until its
+     * messages have been handed to the Kafka client, like {@link ProducerService#produceMessages}.
+     *
+     * @throws AdmissionControlService.AdmissionRejectedException when the producer is overloaded
+     * @throws IllegalArgumentException for an invalid topic list
+     */
+    public ProduceMessageResponse produce(ProduceMessageRequest request) {
+        if (!enabled || request.getBatchSize() > maxRequestMessages) {
+            directCounter.increment();
+            return producerService.produceMessages(request);
+        }
+        Instant startTime = Instant.now();
+        List<String> topics = fanOutService.resolve(request.getTopics());
+        if (topics.size() != 1) {
+            directCounter.increment();
+            return producerService.produceMessages(request);
+        }
+        AdmissionControlService.Permit permit = admissionControl.admit(request.getBatchSize(),
+            claimCheckService.inlineSizeEstimate(request.getPayload()));
+        // A blob store write is far slower than a send, so it is never done on a coalescing thread
+        ClaimCheck claimCheck;
+        try {
+            claimCheck = claimCheckService.offload(request.getPayload());
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+        
+        Span span = tracer.currentSpan();
+        Pending pending = new Pending(new ProducerService.CoalescedRequest(request, topics.get(0), claimCheck, permit,
+            startTime, observationRegistry.getCurrentObservation()), new CompletableFuture<>(), System.nanoTime(),
+            span != null && Boolean.TRUE.equals(span.context().sampled()) ? span : null);
+        coalescedCounter.increment();
+        queue.add(pending);
+        if (!running) {
+            // Lost the race with shutdown; the coalescing threads may already have drained the queue
+            fail(List.of(pending), new IllegalStateException("Producer is shutting down"));
+        }
+        try {
+            return pending.response().join();
+        } catch (CompletionException | CancellationException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+    
+    private void run() {
+        List<Pending> pass = new ArrayList<>(maxRequests);
+        while (running) {
+            try {
+                Pending first = queue.take();
+                pass.add(first);
+                long deadline = first.enqueuedNanos() + maxWaitNanos;
+                while (pass.size() < maxRequests) {
+                    if (queue.drainTo(pass, maxRequests - pass.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    pass.add(next);
+                }
+                send(pass);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                pass.clear();
+            }
+        }
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        fail(remaining, new IllegalStateException("Producer is shutting down"));
+    }
+    
+    private void send(List<Pending> pass) {
+        long now = System.nanoTime();
+        List<ProducerService.CoalescedRequest> requests = new ArrayList<>(pass.size());
+        int messages = 0;
+        long nowEpochMicros = epochMicros();
+        for (Pending pending : pass) {
+            queueWait.record(now - pending.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            if (pending.span() != null) {
+                tracer.spanBuilder()
+                    .setParent(pending.span().context())
+                    .name("producer coalesce wait")
+                    .tag("coalescing.pass.requests", pass.size())
+                    .startTimestamp(nowEpochMicros - (now - pending.enqueuedNanos()) / 1000, TimeUnit.MICROSECONDS)
+                    .start()
+                    .end(nowEpochMicros, TimeUnit.MICROSECONDS);
+            }
+            requests.add(pending.request());
+            messages += pending.request().request().getBatchSize();
+        }
+        passRequests.record(pass.size());
+        passMessages.record(messages);
+        
+        try {
+            List<ProduceMessageResponse> responses = producerService.produceCoalesced(requests);
+            for (int i = 0; i < pass.size(); i++) {
+                pass.get(i).response().complete(responses.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.error("Coalesced pass of {} requests failed", pass.size(), e);
+            fail(pass, e);
+        }
+    }
+    
+    private static long epochMicros() {
+        Instant now = Instant.now();
+        return TimeUnit.SECONDS.toMicros(now.getEpochSecond()) + now.getNano() / 1000;
+    }
+    
+    private void fail(List<Pending> pending, RuntimeException error) {
+        for (Pending request : pending) {
+            request.request().permit().close();
+            request.response().completeExceptionally(error);
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        running = false;
+        senders.forEach(Thread::interrupt);
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("enabled", enabled);
+        details.put("senders", senders.size());
+        details.put("coalescedRequests", (long) coalescedCounter.count());
+        details.put("directRequests", (long) directCounter.count());
+        details.put("passes", passRequests.count());
+        details.put("avgRequestsPerPass", Math.round(passRequests.mean() * 100) / 100.0);
+        details.put("maxRequestsPerPass", (long) passRequests.max());
+        details.put("avgWaitMs", Math.round(queueWait.mean(TimeUnit.MILLISECONDS) * 1000) / 1000.0);
+        return details;
+    }
+}
\ No newline at end of file
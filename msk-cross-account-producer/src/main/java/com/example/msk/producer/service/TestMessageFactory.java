@@ -0,0 +1,32 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.producer.dto.ProduceMessageRequest;
+import com.example.msk.producer.model.ClaimCheck;
+import com.example.msk.producer.model.TestMessage;
+
+import java.time.Instant;
+
+/**
+ * Builds the {@link TestMessage} sent for one position of a batch. When the payload was offloaded
+ * the record carries only the claim check, never both.
+ */
+public final class TestMessageFactory {
+    
+    private TestMessageFactory() {
+    }
+    
+    public static TestMessage create(String messageId, ProduceMessageRequest request, String batchId,
+                                     int sequenceNumber, ClaimCheck claimCheck) {
+        return TestMessage.builder()
+            .messageId(messageId)
+            .timestamp(Instant.now())
+            .sourceAccount(request.getSourceAccount())
+            .targetAccount(request.getTargetAccount())
+            .payload(claimCheck == null ? request.getPayload() : null)
+            .claimCheck(claimCheck)
+            .messageType(request.getMessageType())
+            .batchId(batchId)
+            .sequenceNumber(sequenceNumber)
+            .build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.common.credentials.MskCredentialsCallbackHandler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the topics a produce request fans out to and runs the per-topic sends in parallel.
+ * Plain entries are used as topic names; entries prefixed with {@code regex:} are matched against
+ * the cluster's topic list, which is fetched with an admin client sharing the producer's
+ * connection and authentication settings and cached for {@code topic-cache-ttl-ms}. Only topics
+ * matching {@code allowed-topics} can be reached; when it is not set, that is the configured topic alone.
+ */
+@Service
+@Slf4j
+public class TopicFanOutService {
+    
+    private static final String REGEX_PREFIX = "regex:";
+    
+    private final ProducerFactory<String, Object> producerFactory;
+    private final String defaultTopic;
+    private final Pattern allowedTopics;
+    private final int maxTopics;
+    private final long topicCacheTtlMs;
+    private final ExecutorService executor;
+    
+    private AdminClient adminClient;
+    private volatile Set<String> clusterTopics;
+    private volatile long clusterTopicsFetchedAt;
+    
+    public TopicFanOutService(ProducerFactory<String, Object> producerFactory,
+                              @Value("${aws.msk.topic-name}") String defaultTopic,
+                              @Value("${producer.fan-out.allowed-topics:}") String allowedTopics,
+                              @Value("${producer.fan-out.max-topics:50}") int maxTopics,
+                              @Value("${producer.fan-out.parallelism:8}") int parallelism,
+                              @Value("${producer.fan-out.topic-cache-ttl-ms:60000}") long topicCacheTtlMs) {
+        this.producerFactory = producerFactory;
+        this.defaultTopic = defaultTopic;
+        this.allowedTopics = Pattern.compile(allowedTopics.isBlank() ? Pattern.quote(defaultTopic) : allowedTopics);
+        this.maxTopics = maxTopics;
+        this.topicCacheTtlMs = topicCacheTtlMs;
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "producer-fan-out-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Expands the requested names and patterns into a de-duplicated, ordered topic list.
+     *
+     * @throws IllegalArgumentException if a topic is not allowed, a pattern matches nothing, or the
+     *                                  expansion exceeds {@code max-topics}
+     */
+    public List<String> resolve(List<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return List.of(defaultTopic);
+        }
+        
+        Set<String> topics = new LinkedHashSet<>();
+        for (String entry : requested) {
+            if (entry == null || entry.isBlank()) {
+                continue;
+            }
+            if (entry.startsWith(REGEX_PREFIX)) {
+                Pattern pattern = Pattern.compile(entry.substring(REGEX_PREFIX.length()));
+                List<String> matches = clusterTopics().stream()
+                    .filter(topic -> pattern.matcher(topic).matches())
+                    .filter(topic -> allowedTopics.matcher(topic).matches())
+                    .sorted()
+                    .toList();
+                if (matches.isEmpty()) {
+                    throw new IllegalArgumentException("No allowed topic matches " + entry);
+                }
+                topics.addAll(matches);
+            } else {
+                if (!allowedTopics.matcher(entry).matches()) {
+                    throw new IllegalArgumentException("Topic not allowed: " + entry);
+                }
+                topics.add(entry);
+            }
+        }
+        
+        if (topics.isEmpty()) {
+            return List.of(defaultTopic);
+        }
+        if (topics.size() > maxTopics) {
+            throw new IllegalArgumentException(String.format("Request resolves to %d topics, limit is %d",
+                topics.size(), maxTopics));
+        }
+        return new ArrayList<>(topics);
+    }
+    
+    /**
+     * Applies the send to every topic in parallel and returns the results in topic order. A single
+     * topic runs on the calling thread.
+     */
+    public <T> List<T> forEachTopic(List<String> topics, Function<String, T> send) {
+        if (topics.size() == 1) {
+            return List.of(send.apply(topics.get(0)));
+        }
+        List<CompletableFuture<T>> futures = topics.stream()
+            .map(topic -> CompletableFuture.supplyAsync(() -> send.apply(topic), executor))
+            .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+    
+    private Set<String> clusterTopics() {
+        Set<String> cached = clusterTopics;
+        if (cached != null && System.currentTimeMillis() - clusterTopicsFetchedAt < topicCacheTtlMs) {
+            return cached;
+        }
+        synchronized (this) {
+            if (clusterTopics != null && System.currentTimeMillis() - clusterTopicsFetchedAt < topicCacheTtlMs) {
+                return clusterTopics;
+            }
+            try {
+                Set<String> fetched = adminClient().listTopics().names().get(30, TimeUnit.SECONDS);
+                clusterTopics = fetched;
+                clusterTopicsFetchedAt = System.currentTimeMillis();
+                log.debug("Fetched {} topic names from the cluster", fetched.size());
+                return fetched;
+            } catch (Exception e) {
+                if (clusterTopics != null) {
+                    log.warn("Failed to refresh topic list, using cached list: {}", e.getMessage());
+                    return clusterTopics;
+                }
+                throw new IllegalStateException("Failed to list topics: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    private AdminClient adminClient() {
+        if (adminClient == null) {
+            // Only the connection and authentication settings apply to the admin client
+            Map<String, Object> config = new HashMap<>();
+            producerFactory.getConfigurationProperties().forEach((key, value) -> {
+                if (key.equals(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG)
+                        || key.equals(CommonClientConfigs.SECURITY_PROTOCOL_CONFIG)
+                        || key.startsWith("sasl.") || key.startsWith("ssl.")
+                        || key.equals(MskCredentialsCallbackHandler.CREDENTIALS_PROVIDER_CONFIG)) {
+                    config.put(key, value);
+                }
+            });
+            config.put(CommonClientConfigs.CLIENT_ID_CONFIG, "producer-fan-out-admin");
+            adminClient = AdminClient.create(config);
+        }
+        return adminClient;
+    }
+    
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+        synchronized (this) {
+            if (adminClient != null) {
+                adminClient.close();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.producer.id.MessageIdGenerator;
+import com.example.msk.producer.model.TestMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pays the one-off costs of the first produce call before the pod is marked ready: the TLS and
+ * SASL handshakes, the topic metadata fetch, a connection to every partition leader and the JIT
+ * warm-up of the JSON serializer. {@link com.example.msk.producer.health.WarmupHealthIndicator}
+ * keeps the readiness group down until {@link #isReady()} returns true.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WarmupService {
+    
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final AdaptiveCompressionService compressionService;
+    private final MessageIdGenerator idGenerator;
+    
+    @Value("${aws.msk.topic-name}")
+    private String topicName;
+    
+    @Value("${producer.warmup.enabled:true}")
+    private Boolean enabled;
+    
+    @Value("${producer.warmup.probe-leaders:true}")
+    private Boolean probeLeaders;
+    
+    @Value("${producer.warmup.serialization-iterations:2000}")
+    private Integer serializationIterations;
+    
+    @Value("${producer.warmup.max-attempts:5}")
+    private Integer maxAttempts;
+    
+    @Value("${producer.warmup.retry-delay-ms:5000}")
+    private Long retryDelayMs;
+    
+    @Value("${producer.warmup.step-timeout-ms:30000}")
+    private Long stepTimeoutMs;
+    
+    // Report ready after the last failed attempt instead of keeping the pod out of rotation forever
+    @Value("${producer.warmup.fail-open:true}")
+    private Boolean failOpen;
+    
+    public enum State {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+    
+    private volatile State state = State.PENDING;
+    private volatile Instant startedAt;
+    private volatile Instant completedAt;
+    private volatile String lastError;
+    private volatile int attempts;
+    private final Map<String, Long> stepDurationsMs = Collections.synchronizedMap(new LinkedHashMap<>());
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmup() {
+        if (!enabled) {
+            log.info("Warm-up disabled - reporting ready immediately");
+            state = State.COMPLETED;
+            return;
+        }
+        Thread thread = new Thread(this::runWarmup, "producer-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void runWarmup() {
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        
+        while (attempts < maxAttempts) {
+            attempts++;
+            try {
+                List<PartitionInfo> partitions = timeStep("metadata", this::fetchMetadata);
+                timeStep("serialization", () -> exerciseSerialization(partitions.size()));
+                if (probeLeaders) {
+                    timeStep("leaders", () -> probePartitionLeaders(partitions));
+                }
+                
+                completedAt = Instant.now();
+                lastError = null;
+                state = State.COMPLETED;
+                log.info("Warm-up completed in {}ms after {} attempt(s): {}",
+                    Duration.between(startedAt, completedAt).toMillis(), attempts, stepDurationsMs);
+                return;
+            
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                log.warn("Warm-up attempt {}/{} failed: {}", attempts, maxAttempts, e.getMessage());
+                if (attempts < maxAttempts) {
+                    sleep(retryDelayMs);
+                }
+            }
+        }
+        
+        completedAt = Instant.now();
+        state = State.FAILED;
+        log.error("Warm-up gave up after {} attempts - pod will report {}", attempts,
+            failOpen ? "ready without warm-up" : "not ready");
+    }
+    
+    private List<PartitionInfo> fetchMetadata() {
+        // First call creates the producer, authenticates against a bootstrap broker and loads topic metadata
+        List<PartitionInfo> partitions = kafkaTemplate.partitionsFor(topicName);
+        if (partitions == null || partitions.isEmpty()) {
+            throw new IllegalStateException("No partition metadata returned for topic " + topicName);
+        }
+        log.info("Fetched metadata for topic {} - {} partitions", topicName, partitions.size());
+        return partitions;
+    }
+    
+    private Void exerciseSerialization(int partitionCount) {
+        try (JsonSerializer<Object> serializer = new JsonSerializer<>()) {
+            long bytes = 0;
+            for (int i = 0; i < serializationIterations; i++) {
+                bytes += serializer.serialize(topicName, syntheticMessage(i % Math.max(partitionCount, 1))).length;
+            }
+            log.debug("Serialized {} synthetic messages ({} bytes)", serializationIterations, bytes);
+        }
+        return null;
+    }
+    
+    /**
+     * Sends one warm-up record to each partition so the producer holds an authenticated connection
+     * to every leader. Consumers acknowledge these records without persisting them.
+     */
+    private Void probePartitionLeaders(List<PartitionInfo> partitions) throws Exception {
+        List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>();
+        for (PartitionInfo partition : partitions) {
+            TestMessage message = syntheticMessage(partition.partition());
+            futures.add(compressionService.withProducer(
+                () -> kafkaTemplate.send(topicName, partition.partition(), message.getMessageId(), message)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .get(stepTimeoutMs, TimeUnit.MILLISECONDS);
+        log.info("Warm-up records acknowledged by leaders of {} partitions", partitions.size());
+        return null;
+    }
+    
+    private TestMessage syntheticMessage(int sequence) {
+        return TestMessage.builder()
+            .messageId(idGenerator.nextId())
+            .timestamp(Instant.now())
+            .sourceAccount("warmup")
+            .targetAccount("warmup")
+            .payload("warmup")
+            .messageType(TestMessage.WARMUP_MESSAGE_TYPE)
+            .batchId("warmup")
+            .sequenceNumber(sequence)
+            .build();
+    }
+    
+    private <T> T timeStep(String name, WarmupStep<T> step) throws Exception {
+        long start = System.nanoTime();
+        T result = step.run();
+        stepDurationsMs.put(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+    
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public boolean isReady() {
+        return state == State.COMPLETED || (state == State.FAILED && failOpen);
+    }
+    
+    public Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("state", state);
+        details.put("attempts", attempts);
+        if (startedAt != null) {
+            Instant end = completedAt != null ? completedAt : Instant.now();
+            details.put("durationMs", Duration.between(startedAt, end).toMillis());
+        }
+        details.put("steps", new LinkedHashMap<>(stepDurationsMs));
+        if (lastError != null) {
+            details.put("lastError", lastError);
+        }
+        return details;
+    }
+    
+    @FunctionalInterface
+    private interface WarmupStep<T> {
+        T run() throws Exception;
+    }
+}
\ No newline at end of file
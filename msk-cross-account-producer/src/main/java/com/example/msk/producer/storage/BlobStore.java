@@ -0,0 +1,24 @@
+package com.example.msk.producer.storage;
+
+/**
+ * Storage for payloads offloaded by the claim-check mode. Implementations are selected with
+ * {@code producer.claim-check.store}.
+ */
+public interface BlobStore {
+    
+    /**
+     * Stores the content under the key, replacing any existing blob, and returns the URI that
+     * consumers resolve it by.
+     */
+    String put(String key, byte[] content);
+    
+    /**
+     * The URI a blob with this key is resolved by, whether or not it has been stored yet.
+     */
+    String uriOf(String key);
+    
+    /**
+     * Whether a blob with this key has already been stored.
+     */
+    boolean exists(String key);
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.example.msk.producer.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Filesystem blob store for local runs and tests. Producer and consumer must see the same
+ * directory, e.g. through a shared volume.
+ */
+@Component
+@ConditionalOnProperty(name = "producer.claim-check.store", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalBlobStore implements BlobStore {
+    
+    private final Path directory;
+    
+    public LocalBlobStore(@Value("${producer.claim-check.local.directory}") String directory) {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        log.info("Claim-check payloads are stored under {}", this.directory);
+    }
+    
+    @Override
+    public String put(String key, byte[] content) {
+        Path target = resolve(key);
+        try {
+            Files.createDirectories(target.getParent());
+            // Write to a temporary file first so a consumer never reads a partially written blob
+            Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return uriOf(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store blob " + key, e);
+        }
+    }
+    
+    @Override
+    public String uriOf(String key) {
+        return resolve(key).toUri().toString();
+    }
+    
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+    
+    private Path resolve(String key) {
+        Path path = directory.resolve(key).normalize();
+        if (!path.startsWith(directory)) {
+            throw new IllegalArgumentException("Blob key escapes the store directory: " + key);
+        }
+        return path;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.example.msk.producer.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+/**
+ * S3 blob store for deployed environments. Uses the default credential chain of the producer's
+ * own account; the consumer's role needs {@code s3:GetObject} on the bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "producer.claim-check.store", havingValue = "s3")
+@Slf4j
+public class S3BlobStore implements BlobStore {
+    
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String prefix;
+    
+    public S3BlobStore(@Value("${aws.region}") String region,
+                       @Value("${producer.claim-check.s3.bucket}") String bucket,
+                       @Value("${producer.claim-check.s3.prefix:}") String prefix) {
+        this.s3Client = S3Client.builder().region(Region.of(region)).build();
+        this.bucket = bucket;
+        this.prefix = prefix;
+        log.info("Claim-check payloads are stored in s3://{}/{}", bucket, prefix);
+    }
+    
+    @Override
+    public String put(String key, byte[] content) {
+        String objectKey = prefix + key;
+        s3Client.putObject(PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(objectKey)
+                .contentType("text/plain; charset=utf-8")
+                .build(),
+            RequestBody.fromBytes(content));
+        return uriOf(key);
+    }
+    
+    @Override
+    public String uriOf(String key) {
+        return "s3://" + bucket + "/" + prefix + key;
+    }
+    
+    @Override
+    public boolean exists(String key) {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(prefix + key).build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        s3Client.close();
+    }
+}
\ No newline at end of file
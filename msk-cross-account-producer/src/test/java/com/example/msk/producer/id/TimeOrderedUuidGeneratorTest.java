@@ -0,0 +1,74 @@
+package com.example.msk.producer.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedUuidGeneratorTest {
+    
+    // 2026-01-01T00:00:00Z
+    private static final long MILLIS = 1_767_225_600_000L;
+    
+    private final TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator();
+    
+    @Test
+    void layoutIsVersion7WithTheTimestampInTheTop48Bits() {
+        UUID id = generator.next(MILLIS);
+        
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(MILLIS);
+        assertThat(id.toString()).startsWith("019b76da-").hasSize(36);
+    }
+    
+    @Test
+    void idsIncreaseWithinAMillisecondAndAcrossMilliseconds() {
+        List<UUID> ids = new ArrayList<>();
+        for (long millis = MILLIS; millis < MILLIS + 3; millis++) {
+            for (int i = 0; i < 1000; i++) {
+                ids.add(generator.next(millis));
+            }
+        }
+        
+        assertIncreasing(ids);
+        // rand_a is fixed within a millisecond, rand_b counts up by one
+        assertThat(ids.get(1).getMostSignificantBits()).isEqualTo(ids.get(0).getMostSignificantBits());
+        assertThat(ids.get(1).getLeastSignificantBits() - ids.get(0).getLeastSignificantBits()).isEqualTo(1);
+    }
+    
+    @Test
+    void clockSteppingBackDoesNotBreakTheOrder() {
+        List<UUID> ids = new ArrayList<>();
+        ids.add(generator.next(MILLIS));
+        ids.add(generator.next(MILLIS - 5_000));
+        ids.add(generator.next(MILLIS + 1));
+        
+        assertIncreasing(ids);
+        assertThat(ids.get(1).getMostSignificantBits() >>> 16).isEqualTo(MILLIS);
+    }
+    
+    @Test
+    void stringFormSortsInGenerationOrder() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId());
+        }
+        
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+    
+    // UUID.compareTo compares signed halves, so unsigned order is checked explicitly
+    private static void assertIncreasing(List<UUID> ids) {
+        for (int i = 1; i < ids.size(); i++) {
+            UUID previous = ids.get(i - 1);
+            UUID current = ids.get(i);
+            int high = Long.compareUnsigned(current.getMostSignificantBits(), previous.getMostSignificantBits());
+            int low = Long.compareUnsigned(current.getLeastSignificantBits(), previous.getLeastSignificantBits());
+            assertThat(high > 0 || high == 0 && low > 0).as("%s after %s", current, previous).isTrue();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.example.msk.producer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdaptiveCompressionServiceTest {
+    
+    private static final String TOPIC = "connectivity-test";
+    private static final int SENDERS = 4;
+    
+    private final RotatingProducerFactory producerFactory = new RotatingProducerFactory();
+    private final CompressionSampler sampler = mock(CompressionSampler.class);
+    private final ExecutorService senders = Executors.newFixedThreadPool(SENDERS);
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private AdaptiveCompressionService service;
+    
+    @BeforeEach
+    void setUp() {
+        kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        service = new AdaptiveCompressionService(producerFactory, kafkaTemplate, sampler, new SimpleMeterRegistry());
+        // Static mode starts no evaluator thread; the test drives evaluate() itself
+        ReflectionTestUtils.setField(service, "mode", "static");
+        ReflectionTestUtils.setField(service, "candidates", List.of("none", "gzip"));
+        ReflectionTestUtils.setField(service, "minSamples", 1);
+        ReflectionTestUtils.setField(service, "minSizeReduction", 0.1);
+        ReflectionTestUtils.setField(service, "minThroughputMbPerSecond", 0.0);
+        ReflectionTestUtils.setField(service, "stableEvaluations", 1);
+        ReflectionTestUtils.setField(service, "evaluationRounds", 1);
+        ReflectionTestUtils.setField(service, "evaluationIntervalMs", 60000L);
+        service.start();
+        
+        byte[] compressible = "connectivity-test ".repeat(100).getBytes(StandardCharsets.UTF_8);
+        when(sampler.snapshot()).thenReturn(Collections.nCopies(64, compressible));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        senders.shutdownNow();
+        service.stop();
+    }
+    
+    @Test
+    void sendsDuringARotationNeitherFailNorReachTheClosedProducer() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<CompletableFuture<SendResult<String, Object>>> sent = new CopyOnWriteArrayList<>();
+        List<Throwable> thrown = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            senders.submit(() -> {
+                while (running.get()) {
+                    try {
+                        sent.add(service.withProducer(() -> kafkaTemplate.send(TOPIC, "key", "value")));
+                    } catch (RuntimeException e) {
+                        thrown.add(e);
+                    }
+                }
+            });
+        }
+        await().atMost(Duration.ofSeconds(5)).until(() -> sent.size() > 1000);
+        
+        service.evaluate();
+        
+        // Keep sending until the rotated producer has taken traffic too
+        await().atMost(Duration.ofSeconds(5)).until(() -> producerFactory.created.size() == 2
+            && producerFactory.created.get(1).history().size() > 1000);
+        running.set(false);
+        senders.shutdown();
+        assertThat(senders.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        
+        assertThat(thrown).isEmpty();
+        assertThat(sent).allSatisfy(future -> assertThat(future).isCompleted().isNotCompletedExceptionally());
+        assertThat(service.getActiveCodec()).isEqualTo("gzip");
+        assertThat(producerFactory.codecs).containsExactly("none", "gzip");
+        assertThat(producerFactory.created.get(0).closed()).isTrue();
+        assertThat(producerFactory.created.get(0).history().size() + producerFactory.created.get(1).history().size())
+            .isEqualTo(sent.size());
+    }
+    
+    @Test
+    void noRotationWhileTheActiveCodecStaysBest() {
+        when(sampler.snapshot()).thenReturn(List.of(new byte[]{1, 2, 3}, new byte[]{4, 5, 6}));
+        kafkaTemplate.send(TOPIC, "key", "value");
+        
+        service.evaluate();
+        
+        assertThat(service.getActiveCodec()).isEqualTo("none");
+        assertThat(producerFactory.codecs).containsExactly("none");
+    }
+    
+    /**
+     * Shares one producer like DefaultKafkaProducerFactory does and closes it for good on reset(), so a
+     * send that races the rotation fails the way it would against a real closing producer.
+     */
+    private static class RotatingProducerFactory implements ProducerFactory<String, Object> {
+        
+        private static final long CLOSE_MILLIS = 50;
+        private static final Serializer<Object> VALUE_SERIALIZER =
+            (topic, data) -> String.valueOf(data).getBytes(StandardCharsets.UTF_8);
+        
+        private final Map<String, Object> configs =
+            new HashMap<>(Map.of(ProducerConfig.COMPRESSION_TYPE_CONFIG, "none"));
+        private final List<SharedProducer> created = new CopyOnWriteArrayList<>();
+        private final List<String> codecs = new ArrayList<>();
+        private SharedProducer current;
+        
+        @Override
+        public synchronized Producer<String, Object> createProducer() {
+            if (current == null) {
+                current = new SharedProducer();
+                created.add(current);
+                codecs.add(configs.get(ProducerConfig.COMPRESSION_TYPE_CONFIG).toString());
+            }
+            return current;
+        }
+        
+        @Override
+        public void reset() {
+            SharedProducer closing = current;
+            if (closing == null) {
+                return;
+            }
+            // A real close takes a while; sends that pick up the shared producer meanwhile hit a closed one
+            closing.shutdown();
+            try {
+                Thread.sleep(CLOSE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                current = null;
+            }
+        }
+        
+        @Override
+        public synchronized void updateConfigs(Map<String, Object> updates) {
+            configs.putAll(updates);
+        }
+        
+        @Override
+        public Map<String, Object> getConfigurationProperties() {
+            return Collections.unmodifiableMap(configs);
+        }
+    }
+    
+    /**
+     * KafkaTemplate closes the producer after every send; like the factory's close-safe wrapper, only
+     * {@link #shutdown()} really closes it.
+     */
+    private static class SharedProducer extends MockProducer<String, Object> {
+        
+        SharedProducer() {
+            super(true, new StringSerializer(), RotatingProducerFactory.VALUE_SERIALIZER);
+        }
+        
+        @Override
+        public void close(Duration timeout) {
+        }
+        
+        void shutdown() {
+            super.close(Duration.ZERO);
+        }
+    }
+}
\ No newline at end of file
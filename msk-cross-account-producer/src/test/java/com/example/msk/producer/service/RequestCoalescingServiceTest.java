@@ -0,0 +1,90 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.producer.dto.ProduceMessageRequest;
+import com.example.msk.producer.dto.ProduceMessageResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequestCoalescingServiceTest {
+    
+    private final ProducerService producerService = mock(ProducerService.class);
+    private final TopicFanOutService fanOutService = mock(TopicFanOutService.class);
+    private final AdmissionControlService admissionControl = mock(AdmissionControlService.class);
+    private final ClaimCheckService claimCheckService = mock(ClaimCheckService.class);
+    private final CountDownLatch slowPassStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseSlowPass = new CountDownLatch(1);
+    private RequestCoalescingService service;
+    
+    @BeforeEach
+    void setUp() {
+        when(fanOutService.resolve(any())).thenReturn(List.of("connectivity-test"));
+        when(admissionControl.admit(anyInt(), anyLong())).thenAnswer(invocation -> mock(AdmissionControlService.Permit.class));
+        when(producerService.produceCoalesced(any())).thenAnswer(invocation -> {
+            List<ProducerService.CoalescedRequest> requests = invocation.getArgument(0);
+            if (requests.stream().anyMatch(request -> "slow".equals(request.request().getPayload()))) {
+                // Stands in for a send blocked on metadata or buffer space for max.block.ms
+                slowPassStarted.countDown();
+                releaseSlowPass.await();
+            }
+            return requests.stream().map(request -> ProduceMessageResponse.builder().build()).toList();
+        });
+        service = new RequestCoalescingService(producerService, fanOutService, admissionControl, claimCheckService,
+            new SimpleMeterRegistry(), ObservationRegistry.NOOP, Tracer.NOOP, true, 10, 200, 2, 2);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        releaseSlowPass.countDown();
+        service.close();
+    }
+    
+    @Test
+    void blockedPassDoesNotHoldUpOtherRequests() throws Exception {
+        CompletableFuture<ProduceMessageResponse> slow = CompletableFuture.supplyAsync(() -> service.produce(request("slow")));
+        assertThat(slowPassStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        
+        CompletableFuture<ProduceMessageResponse> fast = CompletableFuture.supplyAsync(() -> service.produce(request("fast")));
+        assertThat(fast.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(slow).isNotDone();
+        
+        releaseSlowPass.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+    
+    @Test
+    void payloadIsOffloadedOnTheCallersThread() {
+        AtomicReference<String> offloadedOn = new AtomicReference<>();
+        when(claimCheckService.offload(anyString())).thenAnswer(invocation -> {
+            offloadedOn.set(Thread.currentThread().getName());
+            return null;
+        });
+        
+        service.produce(request("large"));
+        
+        assertThat(offloadedOn).hasValue(Thread.currentThread().getName());
+    }
+    
+    private static ProduceMessageRequest request(String payload) {
+        ProduceMessageRequest request = new ProduceMessageRequest();
+        request.setPayload(payload);
+        return request;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.example.msk.producer.service;
+
+import com.example.msk.producer.dto.ProduceMessageRequest;
+import com.example.msk.producer.model.ClaimCheck;
+import com.example.msk.producer.model.TestMessage;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestMessageFactoryTest {
+    
+    @Test
+    void copiesTheRequestIntoTheMessage() {
+        TestMessage message = TestMessageFactory.create("message-1", request(), "batch-1", 7, null);
+        
+        assertThat(message.getMessageId()).isEqualTo("message-1");
+        assertThat(message.getBatchId()).isEqualTo("batch-1");
+        assertThat(message.getSequenceNumber()).isEqualTo(7);
+        assertThat(message.getSourceAccount()).isEqualTo("123456789012");
+        assertThat(message.getTargetAccount()).isEqualTo("987654321098");
+        assertThat(message.getMessageType()).isEqualTo("connectivity-test");
+        assertThat(message.getPayload()).isEqualTo("hello");
+        assertThat(message.getClaimCheck()).isNull();
+        assertThat(message.getTimestamp()).isNotNull();
+    }
+    
+    @Test
+    void offloadedPayloadTravelsOnlyAsClaimCheck() {
+        ClaimCheck claimCheck = ClaimCheck.builder().uri("s3://bucket/key").sizeBytes(5L).sha256("abc").build();
+        
+        TestMessage message = TestMessageFactory.create("message-1", request(), "batch-1", 1, claimCheck);
+        
+        assertThat(message.getPayload()).isNull();
+        assertThat(message.getClaimCheck()).isSameAs(claimCheck);
+    }
+    
+    private static ProduceMessageRequest request() {
+        ProduceMessageRequest request = new ProduceMessageRequest();
+        request.setPayload("hello");
+        request.setSourceAccount("123456789012");
+        request.setTargetAccount("987654321098");
+        return request;
+    }
+}
\ No newline at end of file
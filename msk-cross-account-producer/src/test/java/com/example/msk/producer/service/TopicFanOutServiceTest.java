@@ -0,0 +1,50 @@
+package com.example.msk.producer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class TopicFanOutServiceTest {
+    
+    private static final String TOPIC = "connectivity-test";
+    
+    private TopicFanOutService service;
+    
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+    
+    @Test
+    void withoutAnAllowListOnlyTheConfiguredTopicIsReachable() {
+        service = service("");
+        
+        assertThat(service.resolve(List.of(TOPIC))).containsExactly(TOPIC);
+        assertThat(service.resolve(List.of())).containsExactly(TOPIC);
+        assertThatThrownBy(() -> service.resolve(List.of("__consumer_offsets")))
+            .isInstanceOf(IllegalArgumentException.class);
+        // The topic name is matched literally, not as a pattern
+        assertThatThrownBy(() -> service.resolve(List.of("connectivity_test")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void allowListAdmitsMatchingTopics() {
+        service = service("connectivity-test|account-c-.*");
+        
+        assertThat(service.resolve(List.of(TOPIC, "account-c-1"))).containsExactly(TOPIC, "account-c-1");
+        assertThatThrownBy(() -> service.resolve(List.of("account-d-1")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static TopicFanOutService service(String allowedTopics) {
+        return new TopicFanOutService(mock(ProducerFactory.class), TOPIC, allowedTopics, 50, 2, 60000);
+    }
+}
\ No newline at end of file
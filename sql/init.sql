@@ -19,7 +19,8 @@ CREATE TABLE IF NOT EXISTS consumed_messages (
   consumer_group VARCHAR(255),
   processing_status VARCHAR(20) CHECK (processing_status IN ('SUCCESS', 'FAILED', 'DLQ')),
   error_message VARCHAR(1000),
-  retry_count INTEGER DEFAULT 0
+  retry_count INTEGER DEFAULT 0,
+  topic VARCHAR(255)
 );
 
 -- Create indexes for performance
@@ -30,6 +31,25 @@ CREATE INDEX IF NOT EXISTS idx_message_type ON consumed_messages(message_type);
 CREATE INDEX IF NOT EXISTS idx_processing_status ON consumed_messages(processing_status);
 CREATE INDEX IF NOT EXISTS idx_kafka_partition_offset ON consumed_messages(kafka_partition, kafka_offset);
 
+-- Archive table used by the retention engine when consumer.retention.archive-enabled=true
+CREATE TABLE IF NOT EXISTS consumed_messages_archive (LIKE consumed_messages INCLUDING ALL);
+ALTER TABLE consumed_messages_archive ADD COLUMN IF NOT EXISTS topic VARCHAR(255);
+
+-- Per-minute counts for message types whose persistence policy is sampled or aggregate
+CREATE TABLE IF NOT EXISTS message_aggregates (
+  id BIGSERIAL PRIMARY KEY,
+  message_type VARCHAR(100) NOT NULL,
+  source_account VARCHAR(50) NOT NULL,
+  target_account VARCHAR(50) NOT NULL,
+  bucket_start TIMESTAMP NOT NULL,
+  message_count BIGINT NOT NULL,
+  latency_sum_ms BIGINT NOT NULL,
+  latency_max_ms BIGINT NOT NULL,
+  updated_at TIMESTAMP NOT NULL,
+  CONSTRAINT uk_message_aggregates_bucket UNIQUE (message_type, source_account, target_account, bucket_start)
+);
+CREATE INDEX IF NOT EXISTS idx_message_aggregates_bucket_start ON message_aggregates(bucket_start);
+
 -- Insert sample data for testing (optional)
 INSERT INTO consumed_messages (
   message_id, 